@@ -0,0 +1,38 @@
+package com.shopcuathuy.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caffeine-backed cache manager for the {@code @Cacheable} regions. Each region gets
+ * its own Caffeine spec from {@code cache.specs.<region>}, with the region's ":" written
+ * as "-" (e.g. {@code cache.specs.products-flash-sale}); regions without an entry
+ * use {@code cache.default-spec}. Stats are always recorded so the regions show up
+ * under {@code /actuator/metrics/cache.*}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "cache")
+@Data
+public class CacheConfig {
+
+    private String defaultSpec = "maximumSize=1000,expireAfterWrite=10m";
+    private Map<String, String> specs = new LinkedHashMap<>();
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.from(defaultSpec).recordStats());
+        // Registered up front so metrics are bound at startup rather than on first use
+        specs.forEach((region, spec) -> cacheManager.registerCustomCache(
+            region.replaceFirst("-", ":"),
+            Caffeine.from(spec).recordStats().build()));
+        return cacheManager;
+    }
+}
@@ -74,6 +74,7 @@ public class SecurityConfig {
                 .requestMatchers("/api/shipper/register", "/api/shipper/status").authenticated()
                 .requestMatchers("/api/upload/**").authenticated()
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 // Shipper endpoints
                 .requestMatchers("/api/shipper/**").hasAnyRole("SHIPPER", "ADMIN")
                 // All other seller endpoints require SELLER or ADMIN role
@@ -16,6 +16,7 @@ import com.shopcuathuy.repository.VoucherRepository;
 import com.shopcuathuy.repository.ComplaintRepository;
 import com.shopcuathuy.repository.ComplaintMessageRepository;
 import com.shopcuathuy.repository.ShipmentRepository;
+import com.shopcuathuy.util.SnowflakeIdGenerator;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -44,6 +45,7 @@ public class AdminController {
     private final ComplaintRepository complaintRepository;
     private final ComplaintMessageRepository complaintMessageRepository;
     private final ShipmentRepository shipmentRepository;
+    private final SnowflakeIdGenerator idGenerator;
 
     public AdminController(UserRepository userRepository,
                            SellerRepository sellerRepository,
@@ -52,7 +54,8 @@ public class AdminController {
                            VoucherRepository voucherRepository,
                            ComplaintRepository complaintRepository,
                            ComplaintMessageRepository complaintMessageRepository,
-                           ShipmentRepository shipmentRepository) {
+                           ShipmentRepository shipmentRepository,
+                           SnowflakeIdGenerator idGenerator) {
         this.userRepository = userRepository;
         this.sellerRepository = sellerRepository;
         this.orderRepository = orderRepository;
@@ -61,6 +64,7 @@ public class AdminController {
         this.complaintRepository = complaintRepository;
         this.complaintMessageRepository = complaintMessageRepository;
         this.shipmentRepository = shipmentRepository;
+        this.idGenerator = idGenerator;
     }
 
     /* ===================== Dashboard / Overview ===================== */
@@ -284,7 +288,7 @@ public class AdminController {
 
         Shipment s = new Shipment();
         s.setOrder(order);
-        s.setTrackingNumber("SCT" + System.currentTimeMillis());
+        s.setTrackingNumber(idGenerator.nextTrackingNumber());
         try {
             String statusStr = (String) body.getOrDefault("status", "PENDING");
             s.setStatus(Shipment.ShipmentStatus.valueOf(statusStr.toUpperCase()));
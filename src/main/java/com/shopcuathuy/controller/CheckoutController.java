@@ -1,17 +1,16 @@
 package com.shopcuathuy.controller;
 
 import com.shopcuathuy.api.ApiResponse;
-import com.shopcuathuy.dto.request.CheckoutItemRequestDTO;
 import com.shopcuathuy.dto.request.CheckoutRequestDTO;
 import com.shopcuathuy.dto.response.CheckoutResponseDTO;
 import com.shopcuathuy.dto.response.CheckoutValidationResponseDTO;
-import com.shopcuathuy.entity.Product;
 import com.shopcuathuy.entity.UserAddress;
 import com.shopcuathuy.entity.Voucher;
 import com.shopcuathuy.exception.ResourceNotFoundException;
-import com.shopcuathuy.repository.ProductRepository;
 import com.shopcuathuy.repository.UserAddressRepository;
 import com.shopcuathuy.repository.VoucherRepository;
+import com.shopcuathuy.service.CartReadModel;
+import com.shopcuathuy.service.VoucherRedemptionCounter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -26,17 +25,20 @@ import java.util.UUID;
 @RequestMapping("/api/checkout")
 public class CheckoutController {
 
-    private final ProductRepository productRepository;
     private final UserAddressRepository userAddressRepository;
     private final VoucherRepository voucherRepository;
+    private final CartReadModel cartReadModel;
+    private final VoucherRedemptionCounter voucherRedemptionCounter;
 
     @Autowired
-    public CheckoutController(ProductRepository productRepository,
-                              UserAddressRepository userAddressRepository,
-                              VoucherRepository voucherRepository) {
-        this.productRepository = productRepository;
+    public CheckoutController(UserAddressRepository userAddressRepository,
+                              VoucherRepository voucherRepository,
+                              CartReadModel cartReadModel,
+                              VoucherRedemptionCounter voucherRedemptionCounter) {
         this.userAddressRepository = userAddressRepository;
         this.voucherRepository = voucherRepository;
+        this.cartReadModel = cartReadModel;
+        this.voucherRedemptionCounter = voucherRedemptionCounter;
     }
 
     @PostMapping
@@ -69,14 +71,14 @@ public class CheckoutController {
         UserAddress address = userAddressRepository.findById(request.shippingAddressId)
             .orElseThrow(() -> new ResourceNotFoundException("Shipping address not found"));
 
-        // Calculate totals from actual products
+        // Calculate totals from current prices (flash sale, promotion or base)
         BigDecimal subtotal = BigDecimal.ZERO;
-        for (CheckoutItemRequestDTO item : request.items) {
-            Product product = productRepository.findById(item.productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + item.productId));
-            
-            BigDecimal itemPrice = product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
-            subtotal = subtotal.add(itemPrice.multiply(BigDecimal.valueOf(item.quantity)));
+        for (CartReadModel.Line line : cartReadModel.forItems(request.items)) {
+            // Unknown product or variant: nothing to price
+            if (line.getUnitPrice() == null) {
+                throw new ResourceNotFoundException(line.getError());
+            }
+            subtotal = subtotal.add(line.getTotalPrice());
         }
 
         // Apply voucher if provided
@@ -155,20 +157,11 @@ public class CheckoutController {
         }
 
         // Validate product availability
-        if (request.items != null) {
-            for (CheckoutItemRequestDTO item : request.items) {
-                if (item.quantity <= 0) {
+        if (request.items != null && !request.items.isEmpty()) {
+            for (CartReadModel.Line line : cartReadModel.forItems(request.items)) {
+                if (!line.isValid()) {
                     validation.valid = false;
-                    validation.errors.add("Invalid quantity for product: " + item.productId);
-                } else {
-                    Product product = productRepository.findById(item.productId).orElse(null);
-                    if (product == null) {
-                        validation.valid = false;
-                        validation.errors.add("Product not found: " + item.productId);
-                    } else if (product.getQuantity() < item.quantity) {
-                        validation.valid = false;
-                        validation.errors.add("Insufficient stock for product: " + product.getName());
-                    }
+                    validation.errors.add(line.getError());
                 }
             }
         }
@@ -185,11 +178,8 @@ public class CheckoutController {
             subtotal.compareTo(voucher.getMinPurchaseAmount()) < 0) {
             return false;
         }
-        if (voucher.getTotalUsesLimit() != null && 
-            voucher.getTotalUses() >= voucher.getTotalUsesLimit()) {
-            return false;
-        }
-        return true;
+        // totalUses counts leased uses not redeemed yet
+        return voucherRedemptionCounter.hasUsesLeft(voucher);
     }
 }
 
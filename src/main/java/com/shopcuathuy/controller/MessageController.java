@@ -17,6 +17,7 @@ import com.shopcuathuy.repository.SellerRepository;
 import com.shopcuathuy.repository.UserRepository;
 import com.shopcuathuy.service.NotificationService;
 import com.shopcuathuy.service.RealtimeMessagingService;
+import com.shopcuathuy.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -89,7 +90,8 @@ public class MessageController {
             @PathVariable String conversationId,
             @RequestHeader(value = "X-User-Id", required = false) String userId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "50") int size
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor
     ) {
         if (userId == null || userId.isEmpty()) {
             return ResponseEntity.status(401)
@@ -107,6 +109,10 @@ public class MessageController {
         // Mark messages as read for customer
         markMessagesAsRead(conversationId, userId, false);
 
+        if (cursor != null) {
+            return ResponseEntity.ok(ApiResponse.success(loadMessagesAfter(conversationId, cursor, size)));
+        }
+
         Pageable pageable = PageRequest.of(page, size);
         Page<Message> messagePage = messageRepository.findByConversationIdOrderByCreatedAtDesc(conversationId, pageable);
         
@@ -237,7 +243,8 @@ public class MessageController {
             @PathVariable String conversationId,
             @RequestHeader(value = "X-User-Id", required = false) String sellerUserId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "50") int size
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor
     ) {
         if (sellerUserId == null || sellerUserId.isEmpty()) {
             return ResponseEntity.status(401)
@@ -256,6 +263,10 @@ public class MessageController {
         // Mark messages as read for seller
         markMessagesAsRead(conversationId, sellerUserId, true);
 
+        if (cursor != null) {
+            return ResponseEntity.ok(ApiResponse.success(loadMessagesAfter(conversationId, cursor, size)));
+        }
+
         Pageable pageable = PageRequest.of(page, size);
         Page<Message> messagePage = messageRepository.findByConversationIdOrderByCreatedAtDesc(conversationId, pageable);
         
@@ -406,6 +417,33 @@ public class MessageController {
         return dto;
     }
 
+    /**
+     * Keyset page of a conversation, newest first; skips the COUNT the offset page needs
+     */
+    private MessagePageResponseDTO loadMessagesAfter(String conversationId, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<Message> messages = messageRepository.findByConversationIdAfterCursor(
+            conversationId,
+            after != null ? after.getCreatedAt() : null,
+            after != null ? after.getId() : null,
+            PageRequest.of(0, size + 1));
+        boolean hasNext = messages.size() > size;
+        if (hasNext) {
+            messages = messages.subList(0, size);
+        }
+
+        MessagePageResponseDTO dto = new MessagePageResponseDTO();
+        dto.content = messages.stream()
+            .map(this::convertMessageToDTO)
+            .collect(Collectors.toList());
+        dto.size = size;
+        if (hasNext) {
+            Message last = messages.get(messages.size() - 1);
+            dto.nextCursor = KeysetCursor.encode(last.getCreatedAt(), last.getId());
+        }
+        return dto;
+    }
+
     private MessagePageResponseDTO convertToMessagePage(Page<Message> messagePage) {
         MessagePageResponseDTO dto = new MessagePageResponseDTO();
         dto.content = messagePage.getContent().stream()
@@ -12,6 +12,7 @@ import com.shopcuathuy.exception.ForbiddenException;
 import com.shopcuathuy.exception.ResourceNotFoundException;
 import com.shopcuathuy.repository.OrderRepository;
 import com.shopcuathuy.repository.OrderTimelineRepository;
+import com.shopcuathuy.service.IdempotencyStore;
 import com.shopcuathuy.service.OrderService;
 import java.time.ZoneId;
 import java.util.LinkedHashMap;
@@ -32,14 +33,17 @@ public class OrderController {
     private final OrderService orderService;
     private final OrderRepository orderRepository;
     private final OrderTimelineRepository orderTimelineRepository;
+    private final IdempotencyStore idempotencyStore;
 
     @Autowired
     public OrderController(OrderService orderService,
                            OrderRepository orderRepository,
-                           OrderTimelineRepository orderTimelineRepository) {
+                           OrderTimelineRepository orderTimelineRepository,
+                           IdempotencyStore idempotencyStore) {
         this.orderService = orderService;
         this.orderRepository = orderRepository;
         this.orderTimelineRepository = orderTimelineRepository;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @GetMapping("/{id}/timeline")
@@ -83,13 +87,20 @@ public class OrderController {
             @RequestHeader(value = "X-User-Role", required = false) String userRole,
             @RequestParam(required = false) String status,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
         
         if (userId == null || userId.isEmpty()) {
             return ResponseEntity.status(401)
                 .body(ApiResponse.error("User not authenticated"));
         }
 
+        // Passing cursor (empty for the first page) switches to keyset paging, newest first
+        if (cursor != null) {
+            return ResponseEntity.ok(ApiResponse.success(
+                orderService.getOrdersAfter(userId, userRole, status, cursor, size)));
+        }
+
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
         OrderPageResponseDTO result = orderService.getOrders(userId, userRole, status, pageable);
         return ResponseEntity.ok(ApiResponse.success(result));
@@ -121,15 +132,32 @@ public class OrderController {
     @PostMapping
     public ResponseEntity<ApiResponse<OrderResponseDTO>> createOrder(
             @RequestBody CreateOrderRequestDTO request,
-            @RequestHeader(value = "X-User-Id", required = false) String userId) {
+            @RequestHeader(value = "X-User-Id", required = false) String userId,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         
         if (userId == null || userId.isEmpty()) {
             return ResponseEntity.status(401)
                 .body(ApiResponse.error("User not authenticated"));
         }
 
-        OrderResponseDTO order = orderService.createOrder(userId, request);
-        return ResponseEntity.ok(ApiResponse.success(order));
+        // A resubmitted checkout gets the first order back instead of reserving stock again
+        return idempotencyStore.execute("orders.create", userId, idempotencyKey, request,
+            () -> ResponseEntity.ok(ApiResponse.success(orderService.createOrder(userId, request))));
+    }
+
+    @PostMapping("/checkout")
+    public ResponseEntity<ApiResponse<List<OrderResponseDTO>>> checkout(
+            @RequestBody CreateOrderRequestDTO request,
+            @RequestHeader(value = "X-User-Id", required = false) String userId,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+
+        if (userId == null || userId.isEmpty()) {
+            return ResponseEntity.status(401)
+                .body(ApiResponse.error("User not authenticated"));
+        }
+
+        return idempotencyStore.execute("orders.checkout", userId, idempotencyKey, request,
+            () -> ResponseEntity.ok(ApiResponse.success(orderService.checkout(userId, request))));
     }
 
     @PostMapping("/{id}/cancel")
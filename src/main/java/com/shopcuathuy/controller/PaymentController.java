@@ -14,11 +14,14 @@ import com.shopcuathuy.exception.ResourceNotFoundException;
 import com.shopcuathuy.repository.OrderRepository;
 import com.shopcuathuy.repository.PaymentMethodRepository;
 import com.shopcuathuy.repository.PaymentTransactionRepository;
+import com.shopcuathuy.service.IdempotencyStore;
 import com.shopcuathuy.service.VNPayService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
@@ -35,6 +38,8 @@ public class PaymentController {
     private final PaymentTransactionRepository paymentTransactionRepository;
     private final OrderRepository orderRepository;
     private final VNPayService vnPayService;
+    private final IdempotencyStore idempotencyStore;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${vnpay.return-url:http://localhost:3000/payment/callback}")
     private String vnpayReturnUrl;
@@ -43,11 +48,15 @@ public class PaymentController {
     public PaymentController(PaymentMethodRepository paymentMethodRepository,
                             PaymentTransactionRepository paymentTransactionRepository,
                             OrderRepository orderRepository,
-                            VNPayService vnPayService) {
+                            VNPayService vnPayService,
+                            IdempotencyStore idempotencyStore,
+                            PlatformTransactionManager transactionManager) {
         this.paymentMethodRepository = paymentMethodRepository;
         this.paymentTransactionRepository = paymentTransactionRepository;
         this.orderRepository = orderRepository;
         this.vnPayService = vnPayService;
+        this.idempotencyStore = idempotencyStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @GetMapping("/methods")
@@ -64,16 +73,22 @@ public class PaymentController {
     }
 
     @PostMapping("/process")
-    @Transactional
     public ResponseEntity<ApiResponse<PaymentResponseDTO>> processPayment(
             @RequestBody PaymentRequestDTO request,
-            @RequestHeader(value = "X-User-Id", required = false) String userId) {
+            @RequestHeader(value = "X-User-Id", required = false) String userId,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         
         if (userId == null || userId.isEmpty()) {
             return ResponseEntity.status(401)
                 .body(ApiResponse.error("User not authenticated"));
         }
 
+        // The response is stored only after the transaction has committed
+        return idempotencyStore.execute("payment.process", userId, idempotencyKey, request,
+            () -> transactionTemplate.execute(status -> createPayment(request)));
+    }
+
+    private ResponseEntity<ApiResponse<PaymentResponseDTO>> createPayment(PaymentRequestDTO request) {
         Order order = orderRepository.findById(request.orderId)
             .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
@@ -7,6 +7,8 @@ import com.shopcuathuy.dto.response.ProductResponseDTO;
 import com.shopcuathuy.entity.Product;
 import com.shopcuathuy.exception.ResourceNotFoundException;
 import com.shopcuathuy.repository.ProductRepository;
+import com.shopcuathuy.service.InventoryLedger;
+import com.shopcuathuy.service.ProductDetailCache;
 import com.shopcuathuy.service.ProductService;
 import com.shopcuathuy.service.impl.ProductServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,12 +31,27 @@ public class ProductAdminController {
     private final ProductRepository productRepository;
     private final ProductService productService;
     private final ProductServiceImpl productServiceImpl;
+    private final ProductDetailCache productDetailCache;
+    private final InventoryLedger inventoryLedger;
 
     @Autowired
-    public ProductAdminController(ProductRepository productRepository, ProductService productService, ProductServiceImpl productServiceImpl) {
+    public ProductAdminController(ProductRepository productRepository, ProductService productService,
+                                  ProductServiceImpl productServiceImpl, ProductDetailCache productDetailCache,
+                                  InventoryLedger inventoryLedger) {
         this.productRepository = productRepository;
         this.productService = productService;
         this.productServiceImpl = productServiceImpl;
+        this.productDetailCache = productDetailCache;
+        this.inventoryLedger = inventoryLedger;
+    }
+
+    /**
+     * Recompute the product's quantity and variant quantities from the inventory ledger.
+     */
+    @PostMapping("/{id}/inventory/rebuild")
+    public ResponseEntity<ApiResponse<ProductResponseDTO>> rebuildInventory(@PathVariable String id) {
+        Product product = inventoryLedger.rebuildSnapshots(id);
+        return ResponseEntity.ok(ApiResponse.success(productServiceImpl.convertToDTO(product)));
     }
 
     @PostMapping("/{id}/featured")
@@ -52,6 +69,7 @@ public class ProductAdminController {
         // Note: featuredPriority is not in Product entity, may need to add if needed
 
         product = productRepository.save(product);
+        productDetailCache.invalidate(product.getId());
         return ResponseEntity.ok(ApiResponse.success(productServiceImpl.convertToDTO(product)));
     }
 
@@ -81,6 +99,7 @@ public class ProductAdminController {
         }
 
         product = productRepository.save(product);
+        productDetailCache.invalidate(product.getId());
         return ResponseEntity.ok(ApiResponse.success(productServiceImpl.convertToDTO(product)));
     }
 
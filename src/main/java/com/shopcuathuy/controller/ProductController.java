@@ -4,7 +4,9 @@ import com.shopcuathuy.api.ApiResponse;
 import com.shopcuathuy.dto.request.UpdateProductRequestDTO;
 import com.shopcuathuy.dto.response.ProductPageResponseDTO;
 import com.shopcuathuy.dto.response.ProductResponseDTO;
+import com.shopcuathuy.dto.response.SuggestionResponseDTO;
 import com.shopcuathuy.service.ProductService;
+import com.shopcuathuy.service.ProductSuggestionService;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -21,10 +23,12 @@ import org.springframework.web.bind.annotation.*;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductSuggestionService productSuggestionService;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductSuggestionService productSuggestionService) {
         this.productService = productService;
+        this.productSuggestionService = productSuggestionService;
     }
 
     @GetMapping
@@ -32,8 +36,12 @@ public class ProductController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "DESC") String direction) {
-        ProductPageResponseDTO result = productService.getAllProducts(page, size, sortBy, direction);
+            @RequestParam(defaultValue = "DESC") String direction,
+            @RequestParam(required = false) String cursor) {
+        // Passing cursor (empty for the first page) switches to keyset paging, newest first
+        ProductPageResponseDTO result = cursor != null
+            ? productService.getAllProductsAfter(cursor, size)
+            : productService.getAllProducts(page, size, sortBy, direction);
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
@@ -84,16 +92,24 @@ public class ProductController {
             @RequestParam(required = false) Double minPrice,
             @RequestParam(required = false) Double maxPrice,
             @RequestParam(required = false) Double minRating,
-            @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "DESC") String direction) {
+            @RequestParam(defaultValue = "relevance") String sortBy,
+            @RequestParam(defaultValue = "DESC") String direction,
+            @RequestParam(defaultValue = "false") boolean facets) {
         
         ProductPageResponseDTO result = productService.searchProducts(
-            keyword, page, size, categoryId, minPrice, maxPrice, minRating, sortBy, direction
+            keyword, page, size, categoryId, minPrice, maxPrice, minRating, sortBy, direction, facets
         );
         
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<SuggestionResponseDTO>>> suggest(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(productSuggestionService.suggest(q, limit)));
+    }
+
 
     @PutMapping("/{id}")
     public ResponseEntity<ApiResponse<ProductResponseDTO>> updateProduct(
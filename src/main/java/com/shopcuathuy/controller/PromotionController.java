@@ -3,9 +3,11 @@ package com.shopcuathuy.controller;
 import com.shopcuathuy.api.ApiResponse;
 import com.shopcuathuy.entity.Promotion;
 import com.shopcuathuy.entity.Seller;
+import com.shopcuathuy.event.PromotionChangedEvent;
 import com.shopcuathuy.exception.ResourceNotFoundException;
 import com.shopcuathuy.repository.PromotionRepository;
 import com.shopcuathuy.repository.SellerRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -26,11 +28,14 @@ public class PromotionController {
 
     private final PromotionRepository promotionRepository;
     private final SellerRepository sellerRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public PromotionController(PromotionRepository promotionRepository,
-                               SellerRepository sellerRepository) {
+                               SellerRepository sellerRepository,
+                               ApplicationEventPublisher eventPublisher) {
         this.promotionRepository = promotionRepository;
         this.sellerRepository = sellerRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     /* ===================== Public endpoints ===================== */
@@ -113,6 +118,7 @@ public class PromotionController {
         promotion.setQuantityUsed(0);
 
         promotion = promotionRepository.save(promotion);
+        eventPublisher.publishEvent(new PromotionChangedEvent(promotion.getId()));
         return ResponseEntity.ok(ApiResponse.success(convertToDTO(promotion)));
     }
 
@@ -161,6 +167,7 @@ public class PromotionController {
 
         applyRequestToPromotion(promotion, request);
         promotion = promotionRepository.save(promotion);
+        eventPublisher.publishEvent(new PromotionChangedEvent(promotion.getId()));
         return ResponseEntity.ok(ApiResponse.success(convertToDTO(promotion)));
     }
 
@@ -185,6 +192,7 @@ public class PromotionController {
         }
 
         promotionRepository.delete(promotion);
+        eventPublisher.publishEvent(new PromotionChangedEvent(id));
         return ResponseEntity.ok(ApiResponse.success(null));
     }
 
@@ -19,6 +19,9 @@ import com.shopcuathuy.exception.ResourceNotFoundException;
 import com.shopcuathuy.repository.CategoryRepository;
 import com.shopcuathuy.repository.ProductRepository;
 import com.shopcuathuy.repository.SellerRepository;
+import com.shopcuathuy.service.FlashSaleGate;
+import com.shopcuathuy.service.InventoryLedger;
+import com.shopcuathuy.service.ProductDetailCache;
 import com.shopcuathuy.service.SellerProductImportService;
 import com.shopcuathuy.service.impl.ProductServiceImpl;
 import java.math.BigDecimal;
@@ -49,6 +52,9 @@ public class SellerProductController {
     private final CategoryRepository categoryRepository;
     private final ProductServiceImpl productServiceImpl;
     private final SellerProductImportService sellerProductImportService;
+    private final ProductDetailCache productDetailCache;
+    private final FlashSaleGate flashSaleGate;
+    private final InventoryLedger inventoryLedger;
     private final ObjectMapper objectMapper;
 
     @Autowired
@@ -57,15 +63,28 @@ public class SellerProductController {
                                   CategoryRepository categoryRepository,
                                   ProductServiceImpl productServiceImpl,
                                   SellerProductImportService sellerProductImportService,
+                                  ProductDetailCache productDetailCache,
+                                  FlashSaleGate flashSaleGate,
+                                  InventoryLedger inventoryLedger,
                                   ObjectMapper objectMapper) {
         this.productRepository = productRepository;
         this.sellerRepository = sellerRepository;
         this.categoryRepository = categoryRepository;
         this.productServiceImpl = productServiceImpl;
         this.sellerProductImportService = sellerProductImportService;
+        this.productDetailCache = productDetailCache;
+        this.flashSaleGate = flashSaleGate;
+        this.inventoryLedger = inventoryLedger;
         this.objectMapper = objectMapper;
     }
 
+    private void recordNewStock(Product product, String note) {
+        inventoryLedger.recordAdjustment(product.getId(), null, 0, product.getQuantity(), note, "seller");
+        for (ProductVariant variant : product.getVariants()) {
+            inventoryLedger.recordAdjustment(product.getId(), variant.getId(), 0, variant.getVariantQuantity(), note, "seller");
+        }
+    }
+
     private void checkSellerVerification(String userId) {
         if (userId == null || userId.isEmpty()) {
             return; // Sẽ được xử lý ở các method gọi
@@ -381,6 +400,7 @@ public class SellerProductController {
         }
 
         product = productRepository.save(product);
+        recordNewStock(product, "Tạo sản phẩm");
         return ResponseEntity.ok(ApiResponse.success(productServiceImpl.convertToDTO(product)));
     }
 
@@ -410,7 +430,11 @@ public class SellerProductController {
         if (request.description != null) product.setDescription(request.description);
         if (request.price != null) product.setPrice(BigDecimal.valueOf(request.price));
         if (request.comparePrice != null) product.setComparePrice(BigDecimal.valueOf(request.comparePrice));
-        if (request.quantity != null) product.setQuantity(request.quantity);
+        if (request.quantity != null) {
+            inventoryLedger.recordAdjustment(product.getId(), null, product.getQuantity(), request.quantity,
+                "Cập nhật tồn kho", "seller");
+            product.setQuantity(request.quantity);
+        }
         if (request.status != null) {
             try {
                 product.setStatus(Product.ProductStatus.valueOf(request.status.toUpperCase()));
@@ -442,6 +466,11 @@ public class SellerProductController {
 
         // Handle variants update
         if (request.variants != null) {
+            // Variants are replaced wholesale: the old ones leave the ledger, the new ones enter it
+            for (ProductVariant old : product.getVariants()) {
+                inventoryLedger.recordAdjustment(product.getId(), old.getId(), old.getVariantQuantity(), 0,
+                    "Xóa biến thể", "seller");
+            }
             product.getVariants().clear();
             for (Map<String, Object> variantMap : request.variants) {
                 ProductVariant variant = new ProductVariant();
@@ -537,6 +566,14 @@ public class SellerProductController {
         }
 
         product = productRepository.save(product);
+        if (request.variants != null) {
+            // After the replacement every variant is new; record them once they are saved
+            for (ProductVariant variant : product.getVariants()) {
+                inventoryLedger.recordAdjustment(product.getId(), variant.getId(), 0, variant.getVariantQuantity(),
+                    "Tạo biến thể", "seller");
+            }
+        }
+        productDetailCache.invalidate(product.getId());
         return ResponseEntity.ok(ApiResponse.success(productServiceImpl.convertToDTO(product)));
     }
 
@@ -564,6 +601,7 @@ public class SellerProductController {
         // Soft delete to preserve order history
         product.setStatus(Product.ProductStatus.DISCONTINUED);
         productRepository.save(product);
+        productDetailCache.invalidate(product.getId());
         return ResponseEntity.ok(ApiResponse.success("Sản phẩm đã được ngừng kinh doanh", null));
     }
 
@@ -598,6 +636,7 @@ public class SellerProductController {
         product.setIsFeatured(enabled);
 
         product = productRepository.save(product);
+        productDetailCache.invalidate(product.getId());
         return ResponseEntity.ok(ApiResponse.success(productServiceImpl.convertToDTO(product)));
     }
 
@@ -654,6 +693,8 @@ public class SellerProductController {
         }
 
         product = productRepository.save(product);
+        productDetailCache.invalidate(product.getId());
+        flashSaleGate.seed(product);
         return ResponseEntity.ok(ApiResponse.success(productServiceImpl.convertToDTO(product)));
     }
 }
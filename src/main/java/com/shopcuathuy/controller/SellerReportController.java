@@ -1,15 +1,20 @@
 package com.shopcuathuy.controller;
 
 import com.shopcuathuy.api.ApiResponse;
+import com.shopcuathuy.dto.ReportExportJobDTO;
 import com.shopcuathuy.dto.SellerReportDTO;
+import com.shopcuathuy.service.ReportExportService;
 import com.shopcuathuy.service.SellerReportService;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -21,9 +26,12 @@ import org.springframework.web.bind.annotation.RestController;
 public class SellerReportController {
 
     private final SellerReportService reportService;
+    private final ReportExportService reportExportService;
 
-    public SellerReportController(SellerReportService reportService) {
+    public SellerReportController(SellerReportService reportService,
+                                  ReportExportService reportExportService) {
         this.reportService = reportService;
+        this.reportExportService = reportExportService;
     }
 
     @GetMapping("/summary")
@@ -74,6 +82,52 @@ public class SellerReportController {
         }
     }
 
+    /**
+     * Start an export job; poll {@code /exports/{jobId}} until it is SUCCESS, then download.
+     */
+    @PostMapping("/exports")
+    public ResponseEntity<ApiResponse<ReportExportJobDTO>> submitExport(
+            @RequestHeader("X-User-Id") String userId,
+            @RequestParam(required = false, defaultValue = "EXCEL") String type,
+            @RequestParam(required = false) String period,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false, defaultValue = "all") String reportType
+    ) {
+        LocalDate[] dateRange = resolveDateRange(period, startDate, endDate);
+        try {
+            ReportExportJobDTO job = reportExportService.submit(userId, type, dateRange[0], dateRange[1], reportType);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(job));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/exports/{jobId}")
+    public ResponseEntity<ApiResponse<ReportExportJobDTO>> getExport(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable String jobId
+    ) {
+        return ResponseEntity.ok(ApiResponse.success(reportExportService.getJob(userId, jobId)));
+    }
+
+    @GetMapping("/exports/{jobId}/download")
+    public ResponseEntity<?> downloadExport(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable String jobId
+    ) throws Exception {
+        ReportExportService.Download download;
+        try {
+            download = reportExportService.download(userId, jobId);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error(e.getMessage()));
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(download.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + download.filename() + "\"")
+                .body(new InputStreamResource(download.stream()));
+    }
+
     private LocalDate[] resolveDateRange(String period, String startDate, String endDate) {
         LocalDate start = startDate != null ? LocalDate.parse(startDate) : null;
         LocalDate end = endDate != null ? LocalDate.parse(endDate) : null;
@@ -2,7 +2,10 @@ package com.shopcuathuy.controller;
 
 import com.shopcuathuy.api.ApiResponse;
 import com.shopcuathuy.entity.Voucher;
+import com.shopcuathuy.exception.ResourceNotFoundException;
 import com.shopcuathuy.repository.VoucherRepository;
+import com.shopcuathuy.service.PriceIndex;
+import com.shopcuathuy.service.VoucherRedemptionCounter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,10 +22,15 @@ import java.util.stream.Collectors;
 public class VoucherController {
 
     private final VoucherRepository voucherRepository;
+    private final PriceIndex priceIndex;
+    private final VoucherRedemptionCounter voucherRedemptionCounter;
 
     @Autowired
-    public VoucherController(VoucherRepository voucherRepository) {
+    public VoucherController(VoucherRepository voucherRepository, PriceIndex priceIndex,
+                             VoucherRedemptionCounter voucherRedemptionCounter) {
         this.voucherRepository = voucherRepository;
+        this.priceIndex = priceIndex;
+        this.voucherRedemptionCounter = voucherRedemptionCounter;
     }
 
     @GetMapping("/available")
@@ -36,6 +44,7 @@ public class VoucherController {
         List<Voucher> vouchers = voucherRepository.findAvailableVouchers(now, null, subtotalBD);
         
         List<Map<String, Object>> voucherDTOs = vouchers.stream()
+            .filter(voucherRedemptionCounter::hasUsesLeft)
             .map(this::convertToDTO)
             .collect(Collectors.toList());
 
@@ -47,8 +56,9 @@ public class VoucherController {
             @RequestBody Map<String, Object> request) {
         
         String code = (String) request.get("code");
-        Double subtotal = request.get("subtotal") != null ? 
-            ((Number) request.get("subtotal")).doubleValue() : null;
+        // Items, when sent, are priced here; otherwise the client's subtotal is trusted
+        Double subtotal = request.get("items") instanceof List<?> items ? priceItems(items)
+            : request.get("subtotal") != null ? ((Number) request.get("subtotal")).doubleValue() : null;
 
         Map<String, Object> response = new HashMap<>();
         
@@ -114,6 +124,28 @@ public class VoucherController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
+    private double priceItems(List<?> items) {
+        LocalDateTime now = LocalDateTime.now();
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (Object element : items) {
+            if (!(element instanceof Map<?, ?> item) || item.get("productId") == null) {
+                throw new IllegalArgumentException("Sản phẩm không hợp lệ.");
+            }
+            String productId = item.get("productId").toString();
+            String variantId = item.get("variantId") != null && !item.get("variantId").toString().isEmpty()
+                ? item.get("variantId").toString() : null;
+            int quantity = item.get("quantity") instanceof Number number ? number.intValue() : 1;
+            PriceIndex.Quote quote = priceIndex.quote(productId, variantId, now, true);
+            if (quote == null) {
+                throw new ResourceNotFoundException("Product not found: " + productId);
+            }
+            if (quote.getPrice() != null) {
+                subtotal = subtotal.add(quote.getPrice().multiply(BigDecimal.valueOf(quantity)));
+            }
+        }
+        return subtotal.doubleValue();
+    }
+
     private Map<String, Object> convertToDTO(Voucher voucher) {
         Map<String, Object> dto = new HashMap<>();
         dto.put("id", voucher.getId());
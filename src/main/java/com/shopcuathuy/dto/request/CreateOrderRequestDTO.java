@@ -7,6 +7,8 @@ public class CreateOrderRequestDTO {
     public String shippingAddressId;
     public String shippingMethodId;
     public java.math.BigDecimal shippingFee;
+    // Shipping fee per seller id for a multi-shop checkout; sellers missing here pay shippingFee
+    public java.util.Map<String, java.math.BigDecimal> shippingFees;
     public String paymentMethod;
     public String voucherCode;
     public String notes;
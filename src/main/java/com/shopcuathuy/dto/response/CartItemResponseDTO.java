@@ -11,6 +11,11 @@ public class CartItemResponseDTO {
     public Double variantPrice;
     public Integer quantity;
     public Integer availableQuantity;
+    // Current price per unit (flash sale, promotion or base) and where it comes from
+    public Double unitPrice;
+    public String priceSource;
+    // Why the line cannot be checked out as it stands (null when it can)
+    public String error;
     public String size;
     public String color;
 }
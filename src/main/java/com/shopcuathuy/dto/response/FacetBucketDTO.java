@@ -0,0 +1,20 @@
+package com.shopcuathuy.dto.response;
+
+public class FacetBucketDTO {
+    public String key;
+    public String label;
+    public Double from;
+    public Double to;
+    public Integer count;
+
+    public FacetBucketDTO() {
+    }
+
+    public FacetBucketDTO(String key, String label, Double from, Double to, Integer count) {
+        this.key = key;
+        this.label = label;
+        this.from = from;
+        this.to = to;
+        this.count = count;
+    }
+}
@@ -4,10 +4,12 @@ import java.util.List;
 
 public class OrderPageResponseDTO {
     public List<OrderResponseDTO> content;
-    public long totalElements;
-    public int totalPages;
-    public int size;
-    public int number;
+    // Totals and page number are left null in cursor mode (no COUNT query)
+    public Long totalElements;
+    public Integer totalPages;
+    public Integer size;
+    public Integer number;
+    public String nextCursor;
 }
 
 
@@ -0,0 +1,13 @@
+package com.shopcuathuy.dto.response;
+
+import java.util.List;
+
+/**
+ * Facet counts next to a search page. Each facet ignores its own filter,
+ * so e.g. category counts show what selecting another category would return.
+ */
+public class ProductFacetsDTO {
+    public List<FacetBucketDTO> categories;
+    public List<FacetBucketDTO> priceRanges;
+    public List<FacetBucketDTO> ratings;
+}
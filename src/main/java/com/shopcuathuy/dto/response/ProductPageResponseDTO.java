@@ -8,6 +8,10 @@ public class ProductPageResponseDTO {
     public Integer totalPages;
     public Integer size;
     public Integer number;
+    // Set in cursor mode only; null when there are no more pages
+    public String nextCursor;
+    // Only filled by search when facets are requested
+    public ProductFacetsDTO facets;
 
     public ProductPageResponseDTO() {
     }
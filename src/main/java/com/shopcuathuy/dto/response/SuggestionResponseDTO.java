@@ -0,0 +1,16 @@
+package com.shopcuathuy.dto.response;
+
+public class SuggestionResponseDTO {
+    public String text;
+    public String type;
+    public String id;
+
+    public SuggestionResponseDTO() {
+    }
+
+    public SuggestionResponseDTO(String text, String type, String id) {
+        this.text = text;
+        this.type = type;
+        this.id = id;
+    }
+}
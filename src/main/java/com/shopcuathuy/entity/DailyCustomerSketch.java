@@ -0,0 +1,30 @@
+package com.shopcuathuy.entity;
+
+import com.shopcuathuy.common.BaseEntity;
+import com.shopcuathuy.util.HyperLogLog;
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * {@link HyperLogLog} of the customers with standing orders from any seller on one day:
+ * the union of that day's {@link DailySellerStat} sketches, kept as one
+ * row so platform-wide counts read one row per day instead of one per seller and day.
+ */
+@Entity
+@Table(name = "daily_customer_sketches", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_daily_customer_sketch", columnNames = {"stat_date"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class DailyCustomerSketch extends BaseEntity {
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Column(name = "customer_sketch", nullable = false, length = HyperLogLog.MAX_BYTES)
+    private byte[] customerSketch;
+}
@@ -0,0 +1,40 @@
+package com.shopcuathuy.entity;
+
+import com.shopcuathuy.common.BaseEntity;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Units and revenue of one product in the orders placed on one day that still stand.
+ */
+@Entity
+@Table(name = "daily_product_stats", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_daily_product_stat", columnNames = {"product_id", "stat_date"})
+}, indexes = {
+    @Index(name = "idx_daily_product_stat_seller_date", columnList = "seller_id, stat_date"),
+    @Index(name = "idx_daily_product_stat_date", columnList = "stat_date")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class DailyProductStat extends BaseEntity {
+
+    @Column(name = "product_id", nullable = false, columnDefinition = "CHAR(36)")
+    private String productId;
+
+    @Column(name = "seller_id", nullable = false, columnDefinition = "CHAR(36)")
+    private String sellerId;
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Column(nullable = false)
+    private long quantity;
+
+    @Column(nullable = false, precision = 18, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+}
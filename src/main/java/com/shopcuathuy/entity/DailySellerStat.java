@@ -0,0 +1,45 @@
+package com.shopcuathuy.entity;
+
+import com.shopcuathuy.common.BaseEntity;
+import com.shopcuathuy.util.HyperLogLog;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Orders of one seller placed on one day. {@code orders} and {@code revenue} cover the
+ * orders that still stand; cancelled and returned ones move to {@code cancelledOrders}.
+ * {@code customerSketch} is a {@link HyperLogLog} of the customers of the standing orders.
+ */
+@Entity
+@Table(name = "daily_seller_stats", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_daily_seller_stat", columnNames = {"seller_id", "stat_date"})
+}, indexes = {
+    @Index(name = "idx_daily_seller_stat_date", columnList = "stat_date")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class DailySellerStat extends BaseEntity {
+
+    @Column(name = "seller_id", nullable = false, columnDefinition = "CHAR(36)")
+    private String sellerId;
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Column(nullable = false)
+    private long orders;
+
+    @Column(nullable = false, precision = 18, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(name = "cancelled_orders", nullable = false)
+    private long cancelledOrders;
+
+    @Column(name = "customer_sketch", length = HyperLogLog.MAX_BYTES)
+    private byte[] customerSketch;
+}
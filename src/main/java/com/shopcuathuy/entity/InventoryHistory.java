@@ -10,6 +10,11 @@ import jakarta.persistence.*;
 })
 public class InventoryHistory extends BaseEntity {
 
+    public static final String REASON_PURCHASE = "purchase";
+    public static final String REASON_RETURN = "return";
+    public static final String REASON_ADJUSTMENT = "adjustment";
+    public static final String REASON_RESTOCK = "restock";
+
     @Column(name = "product_id", nullable = false, columnDefinition = "CHAR(36)")
     private String productId;
 
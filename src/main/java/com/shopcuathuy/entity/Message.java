@@ -11,7 +11,8 @@ import lombok.Setter;
 @Entity
 @Table(name = "messages", indexes = {
     @Index(name = "idx_message_conversation", columnList = "conversation_id"),
-    @Index(name = "idx_message_created", columnList = "created_at")
+    @Index(name = "idx_message_created", columnList = "created_at"),
+    @Index(name = "idx_message_conversation_created", columnList = "conversation_id, created_at, id")
 })
 @Getter
 @Setter
@@ -16,7 +16,9 @@ import lombok.Setter;
     @Index(name = "idx_seller_id", columnList = "seller_id"),
     @Index(name = "idx_status", columnList = "status"),
     @Index(name = "idx_order_number", columnList = "order_number"),
-    @Index(name = "idx_created_at", columnList = "created_at")
+    @Index(name = "idx_created_at", columnList = "created_at"),
+    @Index(name = "idx_order_customer_created", columnList = "customer_id, created_at, id"),
+    @Index(name = "idx_order_seller_created", columnList = "seller_id, created_at, id")
 })
 @Getter
 @Setter
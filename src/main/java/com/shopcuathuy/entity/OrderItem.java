@@ -39,5 +39,9 @@ public class OrderItem extends BaseEntity {
     
     @Column(name = "total_price", precision = 15, scale = 2, nullable = false)
     private BigDecimal totalPrice;
+
+    // Units claimed from a flash sale, handed back to it on cancel; null on items placed before the column existed
+    @Column(name = "flash_sale")
+    private Boolean flashSale;
 }
 
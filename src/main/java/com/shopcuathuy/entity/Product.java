@@ -1,6 +1,7 @@
 package com.shopcuathuy.entity;
 
 import com.shopcuathuy.common.BaseEntity;
+import com.shopcuathuy.event.ProductEntityListener;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,8 +17,10 @@ import lombok.Setter;
     @Index(name = "idx_category_id", columnList = "category_id"),
     @Index(name = "idx_status", columnList = "status"),
     @Index(name = "idx_created_at", columnList = "created_at"),
-    @Index(name = "idx_sku", columnList = "sku")
+    @Index(name = "idx_sku", columnList = "sku"),
+    @Index(name = "idx_product_status_created", columnList = "status, created_at, id")
 })
+@EntityListeners(ProductEntityListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,27 @@
+package com.shopcuathuy.entity;
+
+import com.shopcuathuy.common.BaseEntity;
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "product_daily_views", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_product_daily_view", columnNames = {"product_id", "view_date"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProductDailyView extends BaseEntity {
+
+    @Column(name = "product_id", nullable = false, columnDefinition = "CHAR(36)")
+    private String productId;
+
+    @Column(name = "view_date", nullable = false)
+    private LocalDate viewDate;
+
+    @Column(nullable = false)
+    private long views;
+}
@@ -1,6 +1,7 @@
 package com.shopcuathuy.entity;
 
 import com.shopcuathuy.common.BaseEntity;
+import com.shopcuathuy.util.ImageUrls;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -30,5 +31,11 @@ public class ProductImage extends BaseEntity {
     
     @Column(name = "is_primary")
     private Boolean isPrimary = false;
+
+    @PrePersist
+    @PreUpdate
+    public void canonicalizeUrl() {
+        imageUrl = ImageUrls.canonicalize(imageUrl);
+    }
 }
 
@@ -1,6 +1,8 @@
 package com.shopcuathuy.entity;
 
 import com.shopcuathuy.common.BaseEntity;
+import com.shopcuathuy.util.ImageUrls;
+import com.shopcuathuy.util.VariantOptionParser;
 import java.math.BigDecimal;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -37,5 +39,34 @@ public class ProductVariant extends BaseEntity {
     
     @Column(columnDefinition = "JSON")
     private String attributes; // {color: "red", size: "M"}
+
+    // Parsed from attributes/variantName on save, so listings don't re-parse JSON
+    @Column(name = "option_size", length = 100)
+    private String optionSize;
+
+    @Column(name = "option_color", length = 100)
+    private String optionColor;
+
+    @PrePersist
+    @PreUpdate
+    public void beforeSave() {
+        variantImage = ImageUrls.canonicalize(variantImage);
+        projectOptions();
+    }
+
+    public void projectOptions() {
+        String[] options = VariantOptionParser.parse(attributes, variantName);
+        optionSize = truncate(options[0]);
+        optionColor = truncate(options[1]);
+    }
+
+    private static String truncate(String value) {
+        if (value == null || value.length() <= 100) {
+            return value;
+        }
+        // Keep whole values of a multi-value option
+        int end = value.lastIndexOf(VariantOptionParser.VALUE_SEPARATOR, 100);
+        return value.substring(0, end > 0 ? end : 100);
+    }
 }
 
@@ -6,7 +6,10 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "report_audits")
+@Table(name = "report_audits", uniqueConstraints = {
+    // A seller's unfinished export jobs each hold a different slot; finished ones release it (NULL)
+    @UniqueConstraint(name = "uk_report_audit_active_slot", columnNames = {"seller_id", "active_slot"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -25,6 +28,14 @@ public class ReportAudit {
     private String notes;
     private LocalDate periodStart;
     private LocalDate periodEnd;
+    // Export jobs: percentage done, and the MinIO object of the finished file
+    private Integer progress;
+    private String objectName;
+    @Column(name = "active_slot")
+    private Integer activeSlot;
+    // Export jobs: ids.node-id of the instance whose worker pool runs the job
+    @Column(name = "node_id")
+    private Integer nodeId;
     
     @Builder.Default
     @Column(name = "created_at")
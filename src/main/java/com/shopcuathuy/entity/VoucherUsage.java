@@ -10,7 +10,9 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "voucher_usages")
+@Table(name = "voucher_usages", indexes = {
+    @Index(name = "idx_voucher_usage_voucher_customer", columnList = "voucher_id, customer_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -25,6 +27,7 @@ public class VoucherUsage extends BaseEntity {
     @JoinColumn(name = "customer_id", nullable = false, columnDefinition = "CHAR(36)")
     private User customer;
     
+    // One row per checkout: the first discounted order; discountAmount covers all of the checkout's orders
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", nullable = false, columnDefinition = "CHAR(36)")
     private Order order;
@@ -0,0 +1,63 @@
+package com.shopcuathuy.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stock movement: a change of {@code Product.quantity} (no variant id) or of a
+ * variant's {@code variantQuantity}. Consumed by the inventory ledger inside the
+ * publishing transaction, so it is recorded if and only if that transaction commits.
+ */
+public class InventoryChangedEvent {
+
+    private final String productId;
+    private final String variantId;
+    private final int quantityChange;
+    private final String reason;
+    private final String referenceId;
+    private final String note;
+    private final String userLabel;
+    private final LocalDateTime occurredAt = LocalDateTime.now();
+
+    public InventoryChangedEvent(String productId, String variantId, int quantityChange,
+                                 String reason, String referenceId, String note, String userLabel) {
+        this.productId = productId;
+        this.variantId = variantId;
+        this.quantityChange = quantityChange;
+        this.reason = reason;
+        this.referenceId = referenceId;
+        this.note = note;
+        this.userLabel = userLabel;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public String getVariantId() {
+        return variantId;
+    }
+
+    public int getQuantityChange() {
+        return quantityChange;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public String getReferenceId() {
+        return referenceId;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public String getUserLabel() {
+        return userLabel;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+}
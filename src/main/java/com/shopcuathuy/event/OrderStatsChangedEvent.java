@@ -0,0 +1,84 @@
+package com.shopcuathuy.event;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Change an order makes to the daily rollups of the day it was placed: {@code orders} is
+ * +1 when it is placed or reinstated and -1 when it is cancelled or returned, and its
+ * total and lines move with it. Consumed after commit, so rolled-back orders never count.
+ */
+public class OrderStatsChangedEvent {
+
+    private final String sellerId;
+    private final String customerId;
+    private final LocalDate statDate;
+    private final int orders;
+    private final int cancelledOrders;
+    private final BigDecimal finalTotal;
+    private final List<Line> lines;
+
+    public OrderStatsChangedEvent(String sellerId, String customerId, LocalDate statDate, int orders,
+                                  int cancelledOrders, BigDecimal finalTotal, List<Line> lines) {
+        this.sellerId = sellerId;
+        this.customerId = customerId;
+        this.statDate = statDate;
+        this.orders = orders;
+        this.cancelledOrders = cancelledOrders;
+        this.finalTotal = finalTotal;
+        this.lines = lines;
+    }
+
+    public String getSellerId() {
+        return sellerId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public LocalDate getStatDate() {
+        return statDate;
+    }
+
+    public int getOrders() {
+        return orders;
+    }
+
+    public int getCancelledOrders() {
+        return cancelledOrders;
+    }
+
+    public BigDecimal getFinalTotal() {
+        return finalTotal;
+    }
+
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    public static final class Line {
+        private final String productId;
+        private final int quantity;
+        private final BigDecimal totalPrice;
+
+        public Line(String productId, int quantity, BigDecimal totalPrice) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.totalPrice = totalPrice;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public BigDecimal getTotalPrice() {
+            return totalPrice;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.shopcuathuy.event;
+
+import com.shopcuathuy.service.ProductDetailCache;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Drops cached product listings once a product write has committed. Listing
+ * caches are keyed by query, not by product, so the affected regions are cleared
+ * as a whole; the product's own detail entry is dropped precisely. Stock-only
+ * changes (every order) drop just the detail entry, so checkouts do not keep the
+ * listing caches cold; listings show stock as of their last fill, within the region TTL.
+ */
+@Component
+public class ProductCacheEvictionListener {
+
+    private static final String[] LISTING_REGIONS = {"products:search", "products:featured", "products:flash-sale"};
+
+    private final CacheManager cacheManager;
+    private final ProductDetailCache productDetailCache;
+
+    public ProductCacheEvictionListener(CacheManager cacheManager, ProductDetailCache productDetailCache) {
+        this.cacheManager = cacheManager;
+        this.productDetailCache = productDetailCache;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        productDetailCache.invalidate(event.getProductId());
+        if (event.isStockOnly()) {
+            return;
+        }
+        for (String region : LISTING_REGIONS) {
+            Cache cache = cacheManager.getCache(region);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+}
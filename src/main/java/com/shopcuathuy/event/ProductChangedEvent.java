@@ -0,0 +1,43 @@
+package com.shopcuathuy.event;
+
+/**
+ * Published whenever a product row is inserted, updated or removed.
+ * Listeners that keep in-memory projections (search index, caches)
+ * should consume it after the surrounding transaction commits.
+ *
+ * A {@link #stockChanged stock-only} event (stock reserved or returned by an order)
+ * leaves name, price, category and visibility as they were, so listing caches and
+ * indexes over those fields can skip it.
+ */
+public class ProductChangedEvent {
+
+    private final String productId;
+    private final boolean removed;
+    private final boolean stockOnly;
+
+    public ProductChangedEvent(String productId, boolean removed) {
+        this(productId, removed, false);
+    }
+
+    private ProductChangedEvent(String productId, boolean removed, boolean stockOnly) {
+        this.productId = productId;
+        this.removed = removed;
+        this.stockOnly = stockOnly;
+    }
+
+    public static ProductChangedEvent stockChanged(String productId) {
+        return new ProductChangedEvent(productId, false, true);
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    public boolean isStockOnly() {
+        return stockOnly;
+    }
+}
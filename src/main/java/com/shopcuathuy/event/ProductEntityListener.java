@@ -0,0 +1,33 @@
+package com.shopcuathuy.event;
+
+import com.shopcuathuy.entity.Product;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener turning product lifecycle callbacks into {@link ProductChangedEvent}s,
+ * so every write path (services, controllers, imports) is covered.
+ */
+@Component
+public class ProductEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ProductEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Product product) {
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), false));
+    }
+
+    @PostRemove
+    public void onRemoved(Product product) {
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), true));
+    }
+}
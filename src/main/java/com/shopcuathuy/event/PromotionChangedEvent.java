@@ -0,0 +1,18 @@
+package com.shopcuathuy.event;
+
+/**
+ * Published when a promotion is edited or deleted, so in-memory
+ * pricing can pick up the change after the transaction commits.
+ */
+public class PromotionChangedEvent {
+
+    private final String promotionId;
+
+    public PromotionChangedEvent(String promotionId) {
+        this.promotionId = promotionId;
+    }
+
+    public String getPromotionId() {
+        return promotionId;
+    }
+}
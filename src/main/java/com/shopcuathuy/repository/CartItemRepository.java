@@ -2,6 +2,8 @@ package com.shopcuathuy.repository;
 
 import com.shopcuathuy.entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,6 +13,11 @@ import java.util.Optional;
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, String> {
     List<CartItem> findByUserId(String userId);
+
+    // A cart with its products, their images and the chosen variants in one query
+    @Query("SELECT c FROM CartItem c JOIN FETCH c.product p LEFT JOIN FETCH p.images LEFT JOIN FETCH c.variant " +
+           "WHERE c.user.id = :userId")
+    List<CartItem> findByUserIdWithProducts(@Param("userId") String userId);
     Optional<CartItem> findByUserIdAndProductId(String userId, String productId);
     Optional<CartItem> findByUserIdAndProductIdAndVariantId(String userId, String productId, String variantId);
     void deleteByUserId(String userId);
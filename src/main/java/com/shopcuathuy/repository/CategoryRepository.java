@@ -17,6 +17,8 @@ public interface CategoryRepository extends JpaRepository<Category, String> {
     List<Category> findByParentIsNullAndIsActiveTrue();
     
     List<Category> findByParentIdAndIsActiveTrue(String parentId);
+
+    List<Category> findByIsActiveTrue();
     
     Optional<Category> findByNameIgnoreCase(String name);
 }
@@ -0,0 +1,29 @@
+package com.shopcuathuy.repository;
+
+import com.shopcuathuy.entity.DailyCustomerSketch;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DailyCustomerSketchRepository extends JpaRepository<DailyCustomerSketch, String> {
+
+    Optional<DailyCustomerSketch> findByStatDate(LocalDate statDate);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM DailyCustomerSketch s WHERE s.statDate = :statDate")
+    Optional<DailyCustomerSketch> findForUpdate(@Param("statDate") LocalDate statDate);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT s.customerSketch FROM DailyCustomerSketch s WHERE s.statDate BETWEEN :from AND :to")
+    Stream<byte[]> streamCustomerSketches(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
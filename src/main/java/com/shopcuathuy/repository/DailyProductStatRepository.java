@@ -0,0 +1,86 @@
+package com.shopcuathuy.repository;
+
+import com.shopcuathuy.entity.DailyProductStat;
+import jakarta.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DailyProductStatRepository extends JpaRepository<DailyProductStat, String> {
+
+    @Modifying
+    @Query("UPDATE DailyProductStat s SET s.quantity = s.quantity + :quantity, s.revenue = s.revenue + :revenue "
+        + "WHERE s.productId = :productId AND s.statDate = :statDate")
+    int addStats(@Param("productId") String productId, @Param("statDate") LocalDate statDate,
+                 @Param("quantity") long quantity, @Param("revenue") BigDecimal revenue);
+
+    List<DailyProductStat> findByStatDate(LocalDate statDate);
+
+    /**
+     * [productId, quantity, revenue] over the period, best revenue first.
+     */
+    @Query("SELECT s.productId, SUM(s.quantity), SUM(s.revenue) FROM DailyProductStat s "
+        + "WHERE s.statDate BETWEEN :from AND :to GROUP BY s.productId ORDER BY SUM(s.revenue) DESC")
+    List<Object[]> findTopProducts(@Param("from") LocalDate from, @Param("to") LocalDate to, Pageable pageable);
+
+    /**
+     * [productId, quantity, revenue] of one seller's products, best revenue first.
+     */
+    @Query("SELECT s.productId, SUM(s.quantity), SUM(s.revenue) FROM DailyProductStat s "
+        + "WHERE s.sellerId = :sellerId AND s.statDate BETWEEN :from AND :to "
+        + "GROUP BY s.productId ORDER BY SUM(s.revenue) DESC")
+    List<Object[]> findTopProductsBySellerId(@Param("sellerId") String sellerId, @Param("from") LocalDate from,
+                                             @Param("to") LocalDate to, Pageable pageable);
+
+    /**
+     * [productId, revenue] of the given products.
+     */
+    @Query("SELECT s.productId, SUM(s.revenue) FROM DailyProductStat s "
+        + "WHERE s.productId IN :productIds AND s.statDate BETWEEN :from AND :to GROUP BY s.productId")
+    List<Object[]> sumRevenueByProductIdIn(@Param("productIds") Collection<String> productIds,
+                                           @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * [productId, quantity, revenue] of the given products.
+     */
+    @Query("SELECT s.productId, SUM(s.quantity), SUM(s.revenue) FROM DailyProductStat s "
+        + "WHERE s.productId IN :productIds AND s.statDate BETWEEN :from AND :to GROUP BY s.productId")
+    List<Object[]> sumStatsByProductIdIn(@Param("productIds") Collection<String> productIds,
+                                         @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * [statDate, productId, revenue] of every row of the period.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT s.statDate, s.productId, s.revenue FROM DailyProductStat s WHERE s.statDate BETWEEN :from AND :to")
+    Stream<Object[]> streamRevenueByDay(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * [category name, revenue] over all days; products without a category count as "Khác".
+     */
+    @Query("SELECT COALESCE(c.name, 'Khác'), SUM(s.revenue) FROM DailyProductStat s "
+        + "LEFT JOIN Product p ON p.id = s.productId LEFT JOIN p.category c "
+        + "GROUP BY COALESCE(c.name, 'Khác')")
+    List<Object[]> sumRevenueByCategory();
+
+    /**
+     * [category name, revenue] of one seller's products.
+     */
+    @Query("SELECT COALESCE(c.name, 'Khác'), SUM(s.revenue) FROM DailyProductStat s "
+        + "LEFT JOIN Product p ON p.id = s.productId LEFT JOIN p.category c "
+        + "WHERE s.sellerId = :sellerId AND s.statDate BETWEEN :from AND :to "
+        + "GROUP BY COALESCE(c.name, 'Khác')")
+    List<Object[]> sumRevenueByCategoryForSeller(@Param("sellerId") String sellerId,
+                                                 @Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -0,0 +1,90 @@
+package com.shopcuathuy.repository;
+
+import com.shopcuathuy.entity.DailySellerStat;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DailySellerStatRepository extends JpaRepository<DailySellerStat, String> {
+
+    @Modifying
+    @Query("UPDATE DailySellerStat s SET s.orders = s.orders + :orders, s.revenue = s.revenue + :revenue, "
+        + "s.cancelledOrders = s.cancelledOrders + :cancelledOrders "
+        + "WHERE s.sellerId = :sellerId AND s.statDate = :statDate")
+    int addStats(@Param("sellerId") String sellerId, @Param("statDate") LocalDate statDate,
+                 @Param("orders") long orders, @Param("revenue") BigDecimal revenue,
+                 @Param("cancelledOrders") long cancelledOrders);
+
+    List<DailySellerStat> findByStatDate(LocalDate statDate);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM DailySellerStat s WHERE s.sellerId = :sellerId AND s.statDate = :statDate")
+    Optional<DailySellerStat> findForUpdate(@Param("sellerId") String sellerId, @Param("statDate") LocalDate statDate);
+
+    boolean existsByCustomerSketchIsNull();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT s.customerSketch FROM DailySellerStat s "
+        + "WHERE s.sellerId = :sellerId AND s.statDate BETWEEN :from AND :to AND s.customerSketch IS NOT NULL")
+    Stream<byte[]> streamCustomerSketchesBySellerId(@Param("sellerId") String sellerId,
+                                                    @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * [orders, revenue] of all sellers over all days.
+     */
+    @Query("SELECT COALESCE(SUM(s.orders), 0), COALESCE(SUM(s.revenue), 0) FROM DailySellerStat s")
+    List<Object[]> sumAll();
+
+    /**
+     * [orders, revenue] of one seller over all days.
+     */
+    @Query("SELECT COALESCE(SUM(s.orders), 0), COALESCE(SUM(s.revenue), 0) FROM DailySellerStat s "
+        + "WHERE s.sellerId = :sellerId")
+    List<Object[]> sumBySellerId(@Param("sellerId") String sellerId);
+
+    /**
+     * [statDate, orders, revenue] of all sellers per day.
+     */
+    @Query("SELECT s.statDate, SUM(s.orders), SUM(s.revenue) FROM DailySellerStat s "
+        + "WHERE s.statDate BETWEEN :from AND :to GROUP BY s.statDate")
+    List<Object[]> sumByDate(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    List<DailySellerStat> findBySellerIdAndStatDateBetween(String sellerId, LocalDate from, LocalDate to);
+
+    /**
+     * [statDate, sellerId, revenue] of every row of the period.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT s.statDate, s.sellerId, s.revenue FROM DailySellerStat s WHERE s.statDate BETWEEN :from AND :to")
+    Stream<Object[]> streamRevenueByDay(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * [sellerId, orders, revenue] of the given sellers.
+     */
+    @Query("SELECT s.sellerId, SUM(s.orders), SUM(s.revenue) FROM DailySellerStat s "
+        + "WHERE s.sellerId IN :sellerIds AND s.statDate BETWEEN :from AND :to GROUP BY s.sellerId")
+    List<Object[]> sumBySellerIdIn(@Param("sellerIds") Collection<String> sellerIds,
+                                   @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * [sellerId, orders, revenue] over the period, best revenue first.
+     */
+    @Query("SELECT s.sellerId, SUM(s.orders), SUM(s.revenue) FROM DailySellerStat s "
+        + "WHERE s.statDate BETWEEN :from AND :to GROUP BY s.sellerId ORDER BY SUM(s.revenue) DESC")
+    List<Object[]> findTopSellers(@Param("from") LocalDate from, @Param("to") LocalDate to, Pageable pageable);
+}
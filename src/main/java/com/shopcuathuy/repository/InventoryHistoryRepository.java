@@ -1,12 +1,19 @@
 package com.shopcuathuy.repository;
 
 import com.shopcuathuy.entity.InventoryHistory;
+import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface InventoryHistoryRepository extends JpaRepository<InventoryHistory, String> {
     Page<InventoryHistory> findByProductIdOrderByCreatedAtDesc(String productId, Pageable pageable);
+
+    // Net change per stock column of a product: variantId (null = product quantity), SUM(quantityChange)
+    @Query("SELECT h.variantId, SUM(h.quantityChange) FROM InventoryHistory h WHERE h.productId = :productId GROUP BY h.variantId")
+    List<Object[]> sumChangesByVariant(@Param("productId") String productId);
 }
@@ -1,11 +1,13 @@
 package com.shopcuathuy.repository;
 
 import com.shopcuathuy.entity.Message;
+import java.time.LocalDateTime;
 import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -13,6 +15,15 @@ public interface MessageRepository extends JpaRepository<Message, String> {
 
     Page<Message> findByConversationIdOrderByCreatedAtDesc(String conversationId, Pageable pageable);
 
+    // Keyset page (newest first): seeks past the (createdAt, id) cursor, no COUNT query
+    @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId " +
+           "AND (:createdAt IS NULL OR m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> findByConversationIdAfterCursor(@Param("conversationId") String conversationId,
+                                                  @Param("createdAt") LocalDateTime createdAt,
+                                                  @Param("id") String id,
+                                                  Pageable pageable);
+
     @Query("SELECT COUNT(m) FROM Message m WHERE m.conversation.id = :conversationId AND m.readAt IS NULL AND m.sender.userType <> 'SELLER'")
     long countUnreadForSeller(String conversationId);
 
@@ -44,6 +44,16 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, String> {
                                                      @Param("start") LocalDateTime start,
                                                      @Param("end") LocalDateTime end);
 
+    // Per-product totals of the standing orders placed in [start, end), for the daily rollups:
+    // [productId, sellerId, quantity, revenue]
+    @Query("SELECT oi.product.id, oi.order.seller.id, SUM(oi.quantity), COALESCE(SUM(oi.totalPrice), 0) "
+        + "FROM OrderItem oi "
+        + "WHERE oi.product IS NOT NULL "
+        + "AND oi.order.createdAt >= :start AND oi.order.createdAt < :end "
+        + "AND oi.order.status NOT IN ('CANCELLED', 'RETURNED') "
+        + "GROUP BY oi.product.id, oi.order.seller.id")
+    List<Object[]> sumStatsByProduct(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
     // Check if customer has purchased a product (through any order)
     @Query("SELECT COUNT(oi) > 0 FROM OrderItem oi WHERE oi.product.id = :productId AND oi.order.customer.id = :customerId")
     boolean existsByProductIdAndCustomerId(@Param("productId") String productId, @Param("customerId") String customerId);
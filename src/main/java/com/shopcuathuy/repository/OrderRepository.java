@@ -21,6 +21,27 @@ public interface OrderRepository extends JpaRepository<Order, String> {
     Page<Order> findBySellerIdAndStatus(String sellerId, Order.OrderStatus status, Pageable pageable);
     Page<Order> findByOrderNumber(String orderNumber, Pageable pageable);
     Page<Order> findByCustomerIdAndStatus(String customerId, Order.OrderStatus status, Pageable pageable);
+
+    // Keyset pages (newest first): seek past the (createdAt, id) cursor, no COUNT query
+    @Query("SELECT o FROM Order o WHERE o.customer.id = :customerId " +
+           "AND (:status IS NULL OR o.status = :status) " +
+           "AND (:createdAt IS NULL OR o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findByCustomerIdAfterCursor(@Param("customerId") String customerId,
+                                            @Param("status") Order.OrderStatus status,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") String id,
+                                            Pageable pageable);
+
+    @Query("SELECT o FROM Order o WHERE o.seller.id = :sellerId " +
+           "AND (:status IS NULL OR o.status = :status) " +
+           "AND (:createdAt IS NULL OR o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findBySellerIdAfterCursor(@Param("sellerId") String sellerId,
+                                          @Param("status") Order.OrderStatus status,
+                                          @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") String id,
+                                          Pageable pageable);
     @Query("SELECT o.customer, COUNT(o), COALESCE(SUM(o.finalTotal),0), MAX(o.createdAt) FROM Order o WHERE o.seller.id = :sellerId GROUP BY o.customer")
     List<Object[]> findCustomerStats(String sellerId);
 
@@ -57,6 +78,82 @@ public interface OrderRepository extends JpaRepository<Order, String> {
     @Query("SELECT o.status, COUNT(o) FROM Order o WHERE o.seller.id = :sellerId AND o.createdAt BETWEEN :start AND :end GROUP BY o.status")
     List<Object[]> countBySellerIdAndDateRangeGroupByStatus(String sellerId, LocalDateTime start, LocalDateTime end);
 
+    // Per-seller totals of the orders placed in [start, end), for the daily rollups:
+    // [sellerId, standing orders, standing revenue, cancelled or returned orders]
+    @Query("SELECT o.seller.id, "
+        + "SUM(CASE WHEN o.status IN ('CANCELLED', 'RETURNED') THEN 0 ELSE 1 END), "
+        + "SUM(CASE WHEN o.status IN ('CANCELLED', 'RETURNED') THEN 0 ELSE COALESCE(o.finalTotal, 0) END), "
+        + "SUM(CASE WHEN o.status IN ('CANCELLED', 'RETURNED') THEN 1 ELSE 0 END) "
+        + "FROM Order o WHERE o.createdAt >= :start AND o.createdAt < :end GROUP BY o.seller.id")
+    List<Object[]> sumStatsBySeller(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // [standing orders, revenue] of the admin overview
+    @Query("SELECT COUNT(o), COALESCE(SUM(o.finalTotal), 0) FROM Order o WHERE o.createdAt BETWEEN :start AND :end "
+        + "AND o.status NOT IN ('CANCELLED', 'RETURNED')")
+    List<Object[]> sumOverview(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("SELECT MIN(o.createdAt) FROM Order o")
+    LocalDateTime findFirstCreatedAt();
+
+    // Distinct [sellerId, customerId] pairs of the standing orders placed in [start, end), for the customer sketches
+    @Query("SELECT DISTINCT o.seller.id, o.customer.id FROM Order o WHERE o.createdAt >= :start AND o.createdAt < :end "
+        + "AND o.status NOT IN ('CANCELLED', 'RETURNED')")
+    List<Object[]> findSellerCustomerPairs(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Number of standing orders of each customer
+    @Query("SELECT COUNT(o) FROM Order o WHERE o.status NOT IN ('CANCELLED', 'RETURNED') GROUP BY o.customer.id")
+    List<Long> countGroupByCustomer();
+
+    @Query("SELECT COUNT(DISTINCT o.customer.id) FROM Order o WHERE o.createdAt >= :start AND o.createdAt < :end "
+        + "AND o.status NOT IN ('CANCELLED', 'RETURNED')")
+    long countDistinctCustomers(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("SELECT COUNT(DISTINCT o.customer.id) FROM Order o "
+        + "WHERE o.seller.id = :sellerId AND o.createdAt >= :start AND o.createdAt < :end "
+        + "AND o.status NOT IN ('CANCELLED', 'RETURNED')")
+    long countDistinctCustomersBySellerId(@Param("sellerId") String sellerId,
+                                          @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Number of standing orders of each customer of a seller in [start, end]
+    @Query("SELECT COUNT(o) FROM Order o WHERE o.seller.id = :sellerId AND o.createdAt BETWEEN :start AND :end "
+        + "AND o.status NOT IN ('CANCELLED', 'RETURNED') AND o.customer IS NOT NULL GROUP BY o.customer.id")
+    List<Long> countGroupByCustomerBySellerId(@Param("sellerId") String sellerId,
+                                              @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Customers with standing orders of a seller in [start, end] per province of their default address;
+    // customers without one are left out
+    @Query("SELECT a.province, COUNT(DISTINCT o.customer.id) FROM Order o "
+        + "JOIN UserAddress a ON a.user = o.customer AND a.isDefault = true "
+        + "WHERE o.seller.id = :sellerId AND o.createdAt BETWEEN :start AND :end "
+        + "AND o.status NOT IN ('CANCELLED', 'RETURNED') GROUP BY a.province")
+    List<Object[]> countCustomersGroupByProvinceBySellerId(@Param("sellerId") String sellerId,
+                                                           @Param("start") LocalDateTime start,
+                                                           @Param("end") LocalDateTime end);
+
+    // [day, standing orders, distinct customers] of a seller in [start, end]
+    @Query("SELECT CAST(o.createdAt AS LocalDate), COUNT(o), COUNT(DISTINCT o.customer.id) FROM Order o "
+        + "WHERE o.seller.id = :sellerId AND o.createdAt BETWEEN :start AND :end "
+        + "AND o.status NOT IN ('CANCELLED', 'RETURNED') GROUP BY CAST(o.createdAt AS LocalDate)")
+    List<Object[]> countGroupByDayBySellerId(@Param("sellerId") String sellerId,
+                                             @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("SELECT UPPER(o.paymentMethod), COUNT(o) FROM Order o "
+        + "WHERE o.seller.id = :sellerId AND o.createdAt BETWEEN :start AND :end "
+        + "AND o.status NOT IN ('CANCELLED', 'RETURNED') GROUP BY UPPER(o.paymentMethod)")
+    List<Object[]> countGroupByPaymentMethodBySellerId(@Param("sellerId") String sellerId,
+                                                       @Param("start") LocalDateTime start,
+                                                       @Param("end") LocalDateTime end);
+
+    @Query("SELECT LOWER(o.paymentMethod), COUNT(o) FROM Order o WHERE o.status NOT IN ('CANCELLED', 'RETURNED') "
+        + "GROUP BY LOWER(o.paymentMethod)")
+    List<Object[]> countGroupByPaymentMethod();
+
+    // Customers with standing orders per province of their default address; customers without one are left out
+    @Query("SELECT a.province, COUNT(DISTINCT o.customer.id) FROM Order o "
+        + "JOIN UserAddress a ON a.user = o.customer AND a.isDefault = true "
+        + "WHERE o.status NOT IN ('CANCELLED', 'RETURNED') GROUP BY a.province")
+    List<Object[]> countGroupByCustomerProvince();
+
     // Check if customer owns the order
     @Query("SELECT COUNT(o) > 0 FROM Order o WHERE o.id = :orderId AND o.customer.id = :customerId")
     boolean existsByIdAndCustomerId(@Param("orderId") String orderId, @Param("customerId") String customerId);
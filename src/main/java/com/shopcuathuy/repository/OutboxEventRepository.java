@@ -0,0 +1,31 @@
+package com.shopcuathuy.repository;
+
+import com.shopcuathuy.entity.OutboxEvent;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, String> {
+
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.status = 'PENDING' " +
+           "AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt")
+    List<String> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Conditional claim: of several pollers (or instances) only one moves the row to PROCESSING
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = 'PROCESSING', e.lockedUntil = :lockedUntil " +
+           "WHERE e.id = :id AND e.status = 'PENDING'")
+    int claim(@Param("id") String id, @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    // Events whose worker died mid-way (e.g. a restart) become due again once their lease runs out
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = 'PENDING', e.lockedUntil = NULL " +
+           "WHERE e.status = 'PROCESSING' AND e.lockedUntil < :now")
+    int releaseExpiredLeases(@Param("now") LocalDateTime now);
+}
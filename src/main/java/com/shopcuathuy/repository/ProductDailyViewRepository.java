@@ -0,0 +1,20 @@
+package com.shopcuathuy.repository;
+
+import com.shopcuathuy.entity.ProductDailyView;
+import java.time.LocalDate;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductDailyViewRepository extends JpaRepository<ProductDailyView, String> {
+
+    @Modifying
+    @Query("UPDATE ProductDailyView v SET v.views = v.views + :delta WHERE v.productId = :productId AND v.viewDate = :viewDate")
+    int addViews(@Param("productId") String productId, @Param("viewDate") LocalDate viewDate, @Param("delta") long delta);
+
+    List<ProductDailyView> findByProductIdAndViewDateBetweenOrderByViewDateAsc(String productId, LocalDate from, LocalDate to);
+}
@@ -2,6 +2,7 @@ package com.shopcuathuy.repository;
 
 import com.shopcuathuy.entity.ProductImage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,6 +14,11 @@ public interface ProductImageRepository extends JpaRepository<ProductImage, Stri
     List<ProductImage> findByProductIdAndIsPrimaryTrue(String productId);
     List<ProductImage> findByProductIdOrderByDisplayOrderAsc(String productId);
     void deleteByProductId(String productId);
+
+    // MinIO URLs and bare object paths written before URLs were canonicalized on save
+    @Query("SELECT i FROM ProductImage i WHERE i.imageUrl NOT LIKE '/api/upload/image/%' " +
+           "AND (i.imageUrl NOT LIKE 'http%' OR i.imageUrl LIKE '%localhost:9000%' OR i.imageUrl LIKE '%minio%')")
+    List<ProductImage> findWithNonCanonicalUrl();
 }
 
 
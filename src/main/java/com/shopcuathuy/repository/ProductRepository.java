@@ -4,11 +4,14 @@ import com.shopcuathuy.entity.Product;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.Lock;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -31,64 +34,116 @@ public interface ProductRepository extends JpaRepository<Product, String> {
                                        @Param("status") Product.ProductStatus status,
                                        Pageable pageable);
     
-    @Query("SELECT DISTINCT p FROM Product p " +
-           "LEFT JOIN FETCH p.category " +
-           "LEFT JOIN FETCH p.seller " +
-           "LEFT JOIN FETCH p.images " +
+    // Listing queries return a page of ids only: combining a fetch-joined collection with
+    // a Pageable makes Hibernate paginate in memory (HHH90003004). Callers hydrate the ids
+    // with findByIdInWithImages.
+    @Query(value = "SELECT p.id FROM Product p " +
+           "LEFT JOIN p.category c " +
+           "LEFT JOIN p.seller s " +
            "WHERE p.status = :status " +
            "AND (:keyword IS NULL OR (" +
            "    LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
            "    OR LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
            "    OR LOWER(p.sku) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-           "    OR LOWER(p.category.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-           "    OR LOWER(p.seller.shopName) LIKE LOWER(CONCAT('%', :keyword, '%'))" +
+           "    OR LOWER(c.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+           "    OR LOWER(s.shopName) LIKE LOWER(CONCAT('%', :keyword, '%'))" +
            ")) " +
-           "AND (:categoryId IS NULL OR p.category.id = :categoryId) " +
+           "AND (:categoryId IS NULL OR c.id = :categoryId) " +
+           "AND (:minPrice IS NULL OR p.price >= :minPrice) " +
+           "AND (:maxPrice IS NULL OR p.price <= :maxPrice) " +
+           "AND (:minRating IS NULL OR p.rating >= :minRating)",
+           countQuery = "SELECT COUNT(p) FROM Product p " +
+           "LEFT JOIN p.category c " +
+           "LEFT JOIN p.seller s " +
+           "WHERE p.status = :status " +
+           "AND (:keyword IS NULL OR (" +
+           "    LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+           "    OR LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+           "    OR LOWER(p.sku) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+           "    OR LOWER(c.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+           "    OR LOWER(s.shopName) LIKE LOWER(CONCAT('%', :keyword, '%'))" +
+           ")) " +
+           "AND (:categoryId IS NULL OR c.id = :categoryId) " +
            "AND (:minPrice IS NULL OR p.price >= :minPrice) " +
            "AND (:maxPrice IS NULL OR p.price <= :maxPrice) " +
            "AND (:minRating IS NULL OR p.rating >= :minRating)")
-    Page<Product> searchProductsWithFilters(@Param("status") Product.ProductStatus status, 
-                                            @Param("keyword") String keyword, 
-                                            @Param("categoryId") String categoryId,
-                                            @Param("minPrice") BigDecimal minPrice,
-                                            @Param("maxPrice") BigDecimal maxPrice,
-                                            @Param("minRating") BigDecimal minRating,
-                                            Pageable pageable);
-
-    @Query("SELECT DISTINCT p FROM Product p " +
-           "LEFT JOIN FETCH p.category " +
-           "LEFT JOIN FETCH p.seller " +
-           "LEFT JOIN FETCH p.images " +
-           "WHERE (p.category.slug = :slug OR p.category.parent.slug = :slug) " +
+    Page<String> searchProductIdsWithFilters(@Param("status") Product.ProductStatus status,
+                                             @Param("keyword") String keyword,
+                                             @Param("categoryId") String categoryId,
+                                             @Param("minPrice") BigDecimal minPrice,
+                                             @Param("maxPrice") BigDecimal maxPrice,
+                                             @Param("minRating") BigDecimal minRating,
+                                             Pageable pageable);
+
+    @Query(value = "SELECT p.id FROM Product p " +
+           "JOIN p.category c " +
+           "LEFT JOIN c.parent pc " +
+           "WHERE (c.slug = :slug OR pc.slug = :slug) " +
+           "AND p.status = :status " +
+           "AND (:minPrice IS NULL OR p.price >= :minPrice) " +
+           "AND (:maxPrice IS NULL OR p.price <= :maxPrice) " +
+           "AND (:minRating IS NULL OR p.rating >= :minRating)",
+           countQuery = "SELECT COUNT(p) FROM Product p " +
+           "JOIN p.category c " +
+           "LEFT JOIN c.parent pc " +
+           "WHERE (c.slug = :slug OR pc.slug = :slug) " +
            "AND p.status = :status " +
            "AND (:minPrice IS NULL OR p.price >= :minPrice) " +
            "AND (:maxPrice IS NULL OR p.price <= :maxPrice) " +
            "AND (:minRating IS NULL OR p.rating >= :minRating)")
-    Page<Product> findByCategorySlugWithFilters(@Param("slug") String slug, 
-                                                @Param("status") Product.ProductStatus status, 
-                                                @Param("minPrice") BigDecimal minPrice,
-                                                @Param("maxPrice") BigDecimal maxPrice,
-                                                @Param("minRating") BigDecimal minRating,
-                                                Pageable pageable);
+    Page<String> findIdsByCategorySlugWithFilters(@Param("slug") String slug,
+                                                  @Param("status") Product.ProductStatus status,
+                                                  @Param("minPrice") BigDecimal minPrice,
+                                                  @Param("maxPrice") BigDecimal maxPrice,
+                                                  @Param("minRating") BigDecimal minRating,
+                                                  Pageable pageable);
 
     @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.seller LEFT JOIN FETCH p.images WHERE p.status = :status AND p.isFeatured = :isFeatured")
     Page<Product> findByStatusAndIsFeatured(@Param("status") Product.ProductStatus status, @Param("isFeatured") Boolean isFeatured, Pageable pageable);
     
-    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.seller LEFT JOIN FETCH p.images WHERE p.status = :status AND p.isFeatured = true")
-    Page<Product> findFeaturedProducts(@Param("status") Product.ProductStatus status, Pageable pageable);
+    @Query(value = "SELECT p.id FROM Product p WHERE p.status = :status AND p.isFeatured = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.status = :status AND p.isFeatured = true")
+    Page<String> findFeaturedProductIds(@Param("status") Product.ProductStatus status, Pageable pageable);
     
     @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.seller LEFT JOIN FETCH p.images WHERE p.status = :status AND p.isFeatured = :isFeatured")
     Page<Product> findFeaturedProductsByParam(@Param("status") Product.ProductStatus status, @Param("isFeatured") Boolean isFeatured, Pageable pageable);
     
-    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.seller LEFT JOIN FETCH p.images " +
+    @Query(value = "SELECT p.id FROM Product p " +
+           "WHERE p.status = :status AND p.comparePrice IS NOT NULL AND p.price IS NOT NULL AND p.comparePrice > p.price",
+           countQuery = "SELECT COUNT(p) FROM Product p " +
            "WHERE p.status = :status AND p.comparePrice IS NOT NULL AND p.price IS NOT NULL AND p.comparePrice > p.price")
-    Page<Product> findFlashSaleProducts(@Param("status") Product.ProductStatus status, Pageable pageable);
+    Page<String> findFlashSaleProductIds(@Param("status") Product.ProductStatus status, Pageable pageable);
+
+    // Keyset page (newest first): seeks past the (createdAt, id) cursor, no COUNT query.
+    // Rows are (id, createdAt), so the next cursor comes from the page itself.
+    @Query("SELECT p.id, p.createdAt FROM Product p WHERE p.status = :status " +
+           "AND (:createdAt IS NULL OR p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Object[]> findKeysByStatusAfterCursor(@Param("status") Product.ProductStatus status,
+                                               @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("id") String id,
+                                               Pageable pageable);
 
     @Query("SELECT p FROM Product p WHERE p.category.slug = :slug AND p.status = :status")
     Page<Product> findByCategorySlug(@Param("slug") String slug, @Param("status") Product.ProductStatus status, Pageable pageable);
     
     @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.seller LEFT JOIN FETCH p.images WHERE p.status = :status")
     List<Product> findByStatusWithImages(@Param("status") Product.ProductStatus status);
+
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.seller LEFT JOIN FETCH p.images WHERE p.id IN :ids")
+    List<Product> findByIdInWithImages(@Param("ids") Collection<String> ids);
+
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.seller LEFT JOIN FETCH p.images WHERE p.id = :id")
+    Optional<Product> findByIdWithImages(@Param("id") String id);
+
+    // Bulk update on purpose: no entity load, no lifecycle events, no cache eviction
+    @Modifying
+    @Query("UPDATE Product p SET p.totalViews = COALESCE(p.totalViews, 0) + :delta WHERE p.id = :id")
+    int addViews(@Param("id") String id, @Param("delta") int delta);
+
+    // Narrow projection for the autocomplete trie: id, name, totalSold, categoryId, sellerId, shopName
+    @Query("SELECT p.id, p.name, p.totalSold, c.id, s.id, s.shopName FROM Product p LEFT JOIN p.category c LEFT JOIN p.seller s WHERE p.status = :status")
+    List<Object[]> findSuggestionRowsByStatus(@Param("status") Product.ProductStatus status);
     
     long countBySellerId(String sellerId);
     long countBySellerIdAndStatus(String sellerId, Product.ProductStatus status);
@@ -104,4 +159,51 @@ public interface ProductRepository extends JpaRepository<Product, String> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT p FROM Product p WHERE p.id = :id")
     Optional<Product> findByIdWithLock(@Param("id") String id);
+
+    // Rows are locked in id order so concurrent reservations cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<String> ids);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity - :n WHERE p.id = :id AND p.quantity >= :n")
+    int decrementStock(@Param("id") String id, @Param("n") int n);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity + :n WHERE p.id = :id")
+    int incrementStock(@Param("id") String id, @Param("n") int n);
+
+    // Products that have no inventory ledger rows yet and need an opening balance
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.variants " +
+           "WHERE NOT EXISTS (SELECT 1 FROM InventoryHistory h WHERE h.productId = p.id)")
+    List<Product> findWithoutInventoryHistory();
+
+    // Sales that are running or still to come: id, flashSaleStock, flashSaleStart, flashSaleEnd
+    @Query("SELECT p.id, p.flashSaleStock, p.flashSaleStart, p.flashSaleEnd FROM Product p " +
+           "WHERE p.flashSaleEnabled = true AND p.flashSalePrice IS NOT NULL " +
+           "AND p.flashSaleStart IS NOT NULL AND p.flashSaleEnd > :now")
+    List<Object[]> findFlashSaleWindows(@Param("now") LocalDateTime now);
+
+    // Price index rows: id, price, flashSaleEnabled, flashSalePrice, flashSaleStart, flashSaleEnd
+    @Query("SELECT p.id, p.price, p.flashSaleEnabled, p.flashSalePrice, p.flashSaleStart, p.flashSaleEnd FROM Product p")
+    List<Object[]> findPriceRows();
+
+    @Query("SELECT p.id, p.price, p.flashSaleEnabled, p.flashSalePrice, p.flashSaleStart, p.flashSaleEnd FROM Product p " +
+           "WHERE p.id IN :ids")
+    List<Object[]> findPriceRowsByIdIn(@Param("ids") Collection<String> ids);
+
+    // Claims flash-sale units if the sale is running and has stock (null stock = unlimited)
+    @Modifying
+    @Query("UPDATE Product p SET p.flashSaleStock = CASE WHEN p.flashSaleStock IS NULL THEN NULL ELSE p.flashSaleStock - :n END, " +
+           "p.flashSaleSold = COALESCE(p.flashSaleSold, 0) + :n " +
+           "WHERE p.id = :id AND p.flashSaleEnabled = true AND p.flashSalePrice IS NOT NULL " +
+           "AND p.flashSaleStart < :now AND p.flashSaleEnd > :now " +
+           "AND (p.flashSaleStock IS NULL OR p.flashSaleStock >= :n)")
+    int claimFlashSaleStock(@Param("id") String id, @Param("n") int n, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.flashSaleStock = CASE WHEN p.flashSaleStock IS NULL THEN NULL ELSE p.flashSaleStock + :n END, " +
+           "p.flashSaleSold = CASE WHEN COALESCE(p.flashSaleSold, 0) >= :n THEN p.flashSaleSold - :n ELSE 0 END " +
+           "WHERE p.id = :id")
+    int returnFlashSaleStock(@Param("id") String id, @Param("n") int n);
 }
@@ -2,10 +2,39 @@ package com.shopcuathuy.repository;
 
 import com.shopcuathuy.entity.ProductVariant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ProductVariantRepository extends JpaRepository<ProductVariant, String> {
     List<ProductVariant> findByProductId(String productId);
+
+    @Modifying
+    @Query("UPDATE ProductVariant v SET v.variantQuantity = v.variantQuantity - :n WHERE v.id = :id AND v.variantQuantity >= :n")
+    int decrementStock(@Param("id") String id, @Param("n") int n);
+
+    @Modifying
+    @Query("UPDATE ProductVariant v SET v.variantQuantity = v.variantQuantity + :n WHERE v.id = :id")
+    int incrementStock(@Param("id") String id, @Param("n") int n);
+
+    // Rows saved before size/color were parsed on save
+    @Query("SELECT v FROM ProductVariant v WHERE v.optionSize IS NULL AND v.optionColor IS NULL " +
+           "AND (v.attributes IS NOT NULL OR v.variantName IS NOT NULL)")
+    List<ProductVariant> findWithoutParsedOptions();
+
+    @Query("SELECT v FROM ProductVariant v WHERE v.variantImage IS NOT NULL AND v.variantImage <> '' " +
+           "AND v.variantImage NOT LIKE '/api/upload/image/%' " +
+           "AND (v.variantImage NOT LIKE 'http%' OR v.variantImage LIKE '%localhost:9000%' OR v.variantImage LIKE '%minio%')")
+    List<ProductVariant> findWithNonCanonicalImage();
+
+    // Price index rows: productId, variantId, variantPrice
+    @Query("SELECT v.product.id, v.id, v.variantPrice FROM ProductVariant v")
+    List<Object[]> findPriceRows();
+
+    @Query("SELECT v.product.id, v.id, v.variantPrice FROM ProductVariant v WHERE v.product.id IN :productIds")
+    List<Object[]> findPriceRowsByProductIdIn(@Param("productIds") Collection<String> productIds);
 }
@@ -1,9 +1,12 @@
 package com.shopcuathuy.repository;
 
 import com.shopcuathuy.entity.PromotionItem;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -16,4 +19,20 @@ public interface PromotionItemRepository extends JpaRepository<PromotionItem, St
            "AND p.endDate >= CURRENT_TIMESTAMP " +
            "AND (pi.product.id = :productId OR (pi.variant.id IS NOT NULL AND pi.variant.id = :variantId))")
     List<PromotionItem> findActivePromotionsForProduct(String productId, String variantId);
+
+    // Price index rules of active promotions not yet ended:
+    // productId, variantId, promotionId, promotionType, discountValue, startDate, endDate
+    @Query("SELECT pi.product.id, pi.variant.id, p.id, p.promotionType, p.discountValue, p.startDate, p.endDate " +
+           "FROM PromotionItem pi JOIN pi.promotion p " +
+           "WHERE p.status = 'ACTIVE' AND p.endDate >= :now")
+    List<Object[]> findPriceRules(@Param("now") LocalDateTime now);
+
+    @Query("SELECT pi.product.id, pi.variant.id, p.id, p.promotionType, p.discountValue, p.startDate, p.endDate " +
+           "FROM PromotionItem pi JOIN pi.promotion p " +
+           "WHERE p.status = 'ACTIVE' AND p.endDate >= :now AND pi.product.id IN :productIds")
+    List<Object[]> findPriceRulesByProductIdIn(@Param("now") LocalDateTime now,
+                                               @Param("productIds") Collection<String> productIds);
+
+    @Query("SELECT DISTINCT pi.product.id FROM PromotionItem pi WHERE pi.promotion.id = :promotionId")
+    List<String> findProductIdsByPromotionId(@Param("promotionId") String promotionId);
 }
@@ -1,9 +1,60 @@
 package com.shopcuathuy.repository;
 
 import com.shopcuathuy.entity.ReportAudit;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ReportAuditRepository extends JpaRepository<ReportAudit, String> {
+
+    Optional<ReportAudit> findByIdAndSellerId(String id, String sellerId);
+
+    // Finished export jobs; audits of direct downloads have no object
+    List<ReportAudit> findByStatusAndObjectNameIsNotNullAndCreatedAtBefore(String status, LocalDateTime cutoff);
+
+    @Modifying
+    @Query("UPDATE ReportAudit a SET a.status = :to WHERE a.id = :id AND a.status = :from")
+    int updateStatus(@Param("id") String id, @Param("from") String from, @Param("to") String to);
+
+    @Modifying
+    @Query("UPDATE ReportAudit a SET a.progress = :progress WHERE a.id = :id")
+    int updateProgress(@Param("id") String id, @Param("progress") int progress);
+
+    // Finishes a job still in one of the given states and frees its slot
+    @Modifying
+    @Query("UPDATE ReportAudit a SET a.status = :to, a.progress = :progress, a.objectName = :objectName, "
+        + "a.durationMs = :durationMs, a.activeSlot = NULL WHERE a.id = :id AND a.status IN :from")
+    int complete(@Param("id") String id, @Param("from") Collection<String> from, @Param("to") String to,
+                 @Param("progress") int progress, @Param("objectName") String objectName,
+                 @Param("durationMs") Long durationMs);
+
+    @Modifying
+    @Query("UPDATE ReportAudit a SET a.status = :to, a.notes = :notes, a.durationMs = :durationMs, a.activeSlot = NULL "
+        + "WHERE a.id = :id AND a.status IN :from")
+    int fail(@Param("id") String id, @Param("from") Collection<String> from, @Param("to") String to,
+             @Param("notes") String notes, @Param("durationMs") Long durationMs);
+
+    @Query("SELECT a.id FROM ReportAudit a WHERE a.nodeId = :nodeId AND a.status = :status AND a.createdAt < :cutoff")
+    List<String> findIdsByNodeIdAndStatusBefore(@Param("nodeId") int nodeId, @Param("status") String status,
+                                                @Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("UPDATE ReportAudit a SET a.status = :to, a.notes = :notes, a.activeSlot = NULL "
+        + "WHERE a.nodeId = :nodeId AND a.status IN :from AND a.createdAt < :cutoff")
+    int updateStatusByNodeIdBefore(@Param("nodeId") int nodeId, @Param("from") Collection<String> from,
+                                   @Param("to") String to, @Param("notes") String notes,
+                                   @Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("UPDATE ReportAudit a SET a.status = :to, a.notes = :notes, a.activeSlot = NULL "
+        + "WHERE a.status IN :from AND a.createdAt < :cutoff")
+    int updateStatusBefore(@Param("from") Collection<String> from, @Param("to") String to,
+                           @Param("notes") String notes, @Param("cutoff") LocalDateTime cutoff);
 }
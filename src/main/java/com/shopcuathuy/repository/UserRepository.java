@@ -3,7 +3,11 @@ package com.shopcuathuy.repository;
 import com.shopcuathuy.entity.User;
 import java.util.List;
 import java.util.Optional;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -12,5 +16,10 @@ public interface UserRepository extends JpaRepository<User, String> {
     boolean existsByEmail(String email);
     List<User> findByUserType(User.UserType userType);
     List<User> findByUserTypeAndApprovalStatus(User.UserType userType, User.ApprovalStatus approvalStatus);
+
+    // Serializes a customer's checkouts where a per-customer limit is checked and then written
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findByIdForUpdate(@Param("id") String id);
 }
 
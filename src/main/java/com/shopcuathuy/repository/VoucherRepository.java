@@ -7,6 +7,7 @@ import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -27,14 +28,29 @@ public interface VoucherRepository extends JpaRepository<Voucher, String> {
     // Find vouchers by seller
     Page<Voucher> findBySellerIdOrderByCreatedAtDesc(String sellerId, Pageable pageable);
     
-    // Find available vouchers (active, not expired, within date range)
+    // Find available vouchers (active, not expired, within date range). The uses limit is left to
+    // VoucherRedemptionCounter.hasUsesLeft: totalUses includes leased uses not redeemed yet
     @Query("SELECT v FROM Voucher v WHERE v.status = 'ACTIVE' " +
            "AND v.startDate <= :now AND v.endDate >= :now " +
            "AND (v.seller IS NULL OR v.seller.id = :sellerId) " +
-           "AND (v.minPurchaseAmount IS NULL OR v.minPurchaseAmount <= :subtotal) " +
-           "AND (v.totalUsesLimit IS NULL OR v.totalUses < v.totalUsesLimit)")
+           "AND (v.minPurchaseAmount IS NULL OR v.minPurchaseAmount <= :subtotal)")
     List<Voucher> findAvailableVouchers(@Param("now") LocalDateTime now,
                                         @Param("sellerId") String sellerId,
                                         @Param("subtotal") java.math.BigDecimal subtotal);
-}
 
+    // Takes n uses of a limited voucher if all n fit under its limit. They count in totalUses from
+    // now on, before orders redeem them; readers asking whether uses are left go through
+    // VoucherRedemptionCounter.hasUsesLeft, which knows this instance's unclaimed block
+    @Modifying
+    @Query("UPDATE Voucher v SET v.totalUses = COALESCE(v.totalUses, 0) + :n " +
+           "WHERE v.id = :id AND v.totalUsesLimit IS NOT NULL AND COALESCE(v.totalUses, 0) + :n <= v.totalUsesLimit")
+    int leaseUses(@Param("id") String id, @Param("n") int n);
+
+    // Uses left under the limit; null for a voucher without a limit
+    @Query("SELECT v.totalUsesLimit - COALESCE(v.totalUses, 0) FROM Voucher v WHERE v.id = :id AND v.totalUsesLimit IS NOT NULL")
+    Integer findRemainingUses(@Param("id") String id);
+
+    @Modifying
+    @Query("UPDATE Voucher v SET v.totalUses = COALESCE(v.totalUses, 0) + :delta WHERE v.id = :id")
+    int addUses(@Param("id") String id, @Param("delta") int delta);
+}
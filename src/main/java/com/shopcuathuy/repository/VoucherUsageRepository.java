@@ -6,6 +6,9 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface VoucherUsageRepository extends JpaRepository<VoucherUsage, String> {
+
+    // Served by idx_voucher_usage_voucher_customer
+    long countByVoucherIdAndCustomerId(String voucherId, String customerId);
 }
 
 
@@ -21,6 +21,8 @@ import com.shopcuathuy.entity.Voucher;
 import com.shopcuathuy.repository.AdminMetricRepository;
 import com.shopcuathuy.repository.ComplaintMessageRepository;
 import com.shopcuathuy.repository.ComplaintRepository;
+import com.shopcuathuy.repository.DailyProductStatRepository;
+import com.shopcuathuy.repository.DailySellerStatRepository;
 import com.shopcuathuy.repository.NotificationRepository;
 import com.shopcuathuy.repository.OrderItemRepository;
 import com.shopcuathuy.repository.OrderRepository;
@@ -30,9 +32,11 @@ import com.shopcuathuy.repository.SellerRepository;
 import com.shopcuathuy.repository.ShipmentRepository;
 import com.shopcuathuy.repository.ShippingMethodRepository;
 import com.shopcuathuy.repository.ShippingPartnerRepository;
+import com.shopcuathuy.event.PromotionChangedEvent;
 import com.shopcuathuy.repository.UserRepository;
 import com.shopcuathuy.repository.VoucherRepository;
 import com.shopcuathuy.service.NotificationService;
+import com.shopcuathuy.util.SnowflakeIdGenerator;
 import java.math.BigDecimal;
 import java.text.Normalizer;
 import java.time.Duration;
@@ -45,7 +49,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -53,6 +56,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -64,6 +68,11 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class AdminService {
 
+    // Rows of the top sellers and top products panels
+    private static final int TOP_LIMIT = 5;
+    // Candidates taken from the TopSalesTracker and ranked by their exact rollup totals
+    private static final int TOP_CANDIDATES = 20;
+
     private final ComplaintRepository complaintRepository;
     private final ComplaintMessageRepository complaintMessageRepository;
     private final UserRepository userRepository;
@@ -78,9 +87,15 @@ public class AdminService {
     private final ShippingPartnerRepository shippingPartnerRepository;
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
+    private final DailySellerStatRepository dailySellerStatRepository;
+    private final DailyProductStatRepository dailyProductStatRepository;
+    private final DistinctCustomerCounter distinctCustomerCounter;
+    private final TopSalesTracker topSalesTracker;
     private final NotificationRepository notificationRepository;
     private final NotificationService notificationService;
     private final ObjectMapper objectMapper;
+    private final SnowflakeIdGenerator idGenerator;
+    private final ApplicationEventPublisher eventPublisher;
 
     public AdminService(ComplaintRepository complaintRepository,
                         ComplaintMessageRepository complaintMessageRepository,
@@ -96,9 +111,15 @@ public class AdminService {
                         ShippingPartnerRepository shippingPartnerRepository,
                         OrderRepository orderRepository,
                         OrderItemRepository orderItemRepository,
+                        DailySellerStatRepository dailySellerStatRepository,
+                        DailyProductStatRepository dailyProductStatRepository,
+                        DistinctCustomerCounter distinctCustomerCounter,
+                        TopSalesTracker topSalesTracker,
                         NotificationRepository notificationRepository,
                         NotificationService notificationService,
-                        ObjectMapper objectMapper) {
+                        ObjectMapper objectMapper,
+                        SnowflakeIdGenerator idGenerator,
+                        ApplicationEventPublisher eventPublisher) {
         this.complaintRepository = complaintRepository;
         this.complaintMessageRepository = complaintMessageRepository;
         this.userRepository = userRepository;
@@ -113,9 +134,15 @@ public class AdminService {
         this.shippingPartnerRepository = shippingPartnerRepository;
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
+        this.dailySellerStatRepository = dailySellerStatRepository;
+        this.dailyProductStatRepository = dailyProductStatRepository;
+        this.distinctCustomerCounter = distinctCustomerCounter;
+        this.topSalesTracker = topSalesTracker;
         this.notificationRepository = notificationRepository;
         this.notificationService = notificationService;
         this.objectMapper = objectMapper;
+        this.idGenerator = idGenerator;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<AdminUserDTO> listUsers(String q, String role, String status) {
@@ -252,7 +279,7 @@ public class AdminService {
         if (request.getShipperId() != null && !request.getShipperId().isBlank()) {
             shipment.setShippingPartner(resolveShippingPartner(request.getShipperId()));
         }
-        shipment.setTrackingNumber(generateTrackingNumber(order));
+        shipment.setTrackingNumber(idGenerator.nextTrackingNumber());
         applyAddressFromMap(shipment, request.getPickupAddress(), true);
         applyAddressFromMap(shipment, request.getDeliveryAddress(), false);
         shipment.setWeight(toBigDecimal(request.getPackageWeight()));
@@ -423,6 +450,7 @@ public class AdminService {
         promotion.setQuantityUsed(0);
 
         promotion = promotionRepository.save(promotion);
+        eventPublisher.publishEvent(new PromotionChangedEvent(promotion.getId()));
         return toAdminPromotionDTO(promotion);
     }
 
@@ -637,29 +665,17 @@ public class AdminService {
         LocalDateTime startDateTime = start.atStartOfDay();
         LocalDateTime endDateTime = end.plusDays(1).atStartOfDay().minusSeconds(1);
 
-        List<Order> orders = orderRepository.findByCreatedAtBetween(startDateTime, endDateTime);
-        double revenue = orders.stream()
-            .filter(order -> order.getFinalTotal() != null)
-            .mapToDouble(order -> order.getFinalTotal().doubleValue())
-            .sum();
-        long totalOrders = orders.size();
-        long totalCustomers = orders.stream()
-            .map(Order::getCustomer)
-            .filter(Objects::nonNull)
-            .map(User::getId)
-            .filter(Objects::nonNull)
-            .distinct()
-            .count();
+        Object[] totals = orderRepository.sumOverview(startDateTime, endDateTime).get(0);
         long activeSellers = sellerRepository.count();
 
         AdminOverviewDTO dto = new AdminOverviewDTO();
         dto.setStartDate(start);
         dto.setEndDate(end);
-        dto.setTotalRevenue(revenue);
-        dto.setTotalOrders(totalOrders);
-        dto.setTotalCustomers(totalCustomers);
+        dto.setTotalRevenue(((Number) totals[1]).doubleValue());
+        dto.setTotalOrders(((Number) totals[0]).longValue());
+        dto.setTotalCustomers(distinctCustomerCounter.count(null, start, end));
         dto.setActiveSellers(activeSellers);
-        dto.setTopSellers(buildTopSellerStats(orders));
+        dto.setTopSellers(buildTopSellerStats(start, end));
         return dto;
     }
 
@@ -671,14 +687,10 @@ public class AdminService {
         }
 
         long productCount = productRepository.countBySellerIdAndStatus(targetSellerId, Product.ProductStatus.ACTIVE);
-        List<Order> sellerOrders = getOrdersForSeller(targetSellerId);
-        long totalOrders = sellerOrders.size();
-        long totalCustomers = sellerOrders.stream()
-            .map(order -> order.getCustomer() != null ? order.getCustomer().getId() : null)
-            .filter(Objects::nonNull)
-            .distinct()
-            .count();
-        double totalRevenue = calculateRevenue(targetSellerId);
+        Object[] totals = dailySellerStatRepository.sumBySellerId(targetSellerId).get(0);
+        long totalOrders = ((Number) totals[0]).longValue();
+        long totalCustomers = distinctCustomerCounter.countAllTime(targetSellerId);
+        double totalRevenue = ((Number) totals[1]).doubleValue();
 
         return new SellerOverviewDTO(productCount, totalOrders, totalCustomers, totalRevenue);
     }
@@ -760,25 +772,28 @@ public class AdminService {
         SellerAnalyticsDashboardDTO dto = new SellerAnalyticsDashboardDTO();
 
         SellerAnalyticsOverviewDTO overview = new SellerAnalyticsOverviewDTO();
-        double revenue = calculateRevenue(null);
-        long orders = orderRepository.count();
+        // Orders still standing (not cancelled or returned), from the daily rollups
+        Object[] totals = dailySellerStatRepository.sumAll().get(0);
+        long orders = ((Number) totals[0]).longValue();
+        double revenue = ((Number) totals[1]).doubleValue();
         overview.setRevenue(revenue);
         overview.setRevenueChange(estimateChange(revenue));
         overview.setOrders(orders);
         overview.setOrdersChange(estimateChange(orders));
         overview.setAverageOrderValue(orders > 0 ? revenue / orders : 0.0);
         overview.setAverageOrderValueChange(estimateChange(overview.getAverageOrderValue()));
-        overview.setConversionRate(estimateConversionRate());
+        overview.setConversionRate(estimateConversionRate(orders));
         overview.setConversionRateChange(estimateChange(overview.getConversionRate()));
         dto.setOverview(overview);
 
         dto.setRevenueSeries(calculateRevenueSeries(period));
         dto.setCategorySeries(calculateCategorySeries());
-        dto.setCustomerTypes(calculateCustomerTypes());
-        dto.setCustomerLocations(calculateCustomerLocations());
+        List<Long> ordersByCustomer = orderRepository.countGroupByCustomer();
+        dto.setCustomerTypes(calculateCustomerTypes(ordersByCustomer));
+        dto.setCustomerLocations(calculateCustomerLocations(ordersByCustomer.size()));
         dto.setTrafficSeries(calculateTrafficSeries(period));
         dto.setTrafficSources(calculateTrafficSources());
-        dto.setTopProducts(calculateTopProducts());
+        dto.setTopProducts(calculateTopProducts(period));
         dto.setLowStockProducts(calculateLowStockProducts());
 
         return dto;
@@ -1098,55 +1113,44 @@ public class AdminService {
             .orElse(null);
     }
 
-    private double calculateRevenue(String sellerId) {
-        return getOrdersForSeller(sellerId).stream()
-            .map(order -> order.getFinalTotal() != null ? order.getFinalTotal().doubleValue() : 0.0)
-            .reduce(0.0, Double::sum);
-    }
-
-    private List<Order> getOrdersForSeller(String sellerId) {
-        List<Order> orders = orderRepository.findAll();
-        if (sellerId == null || sellerId.isBlank()) {
-            return orders;
-        }
-        return orders.stream()
-            .filter(order -> order.getSeller() != null && sellerId.equals(order.getSeller().getId()))
-            .collect(Collectors.toList());
-    }
-
-    private List<AdminOverviewDTO.TopSellerDTO> buildTopSellerStats(List<Order> orders) {
-        Map<String, SellerAggregate> aggregates = new HashMap<>();
-        for (Order order : orders) {
-            if (order.getSeller() == null) {
-                continue;
-            }
-            String sellerId = order.getSeller().getId();
-            SellerAggregate aggregate = aggregates.computeIfAbsent(sellerId, id -> new SellerAggregate(order.getSeller()));
-            aggregate.incrementOrders();
-            aggregate.addRevenue(order.getFinalTotal());
-        }
-        return aggregates.values().stream()
-            .sorted(Comparator.comparing(SellerAggregate::getRevenue).reversed())
-            .limit(5)
-            .map(aggregate -> {
+    private List<AdminOverviewDTO.TopSellerDTO> buildTopSellerStats(LocalDate start, LocalDate end) {
+        List<String> candidates = topSalesTracker.topSellers(start, end, TOP_CANDIDATES);
+        List<Object[]> top = rankTop(candidates == null
+            ? dailySellerStatRepository.findTopSellers(start, end, PageRequest.of(0, TOP_LIMIT))
+            : candidates.isEmpty() ? List.of() : dailySellerStatRepository.sumBySellerIdIn(candidates, start, end));
+        // Shop names of the sellers shown only
+        Map<String, String> shopNames = new HashMap<>();
+        sellerRepository.findAllById(top.stream().map(row -> (String) row[0]).collect(Collectors.toList()))
+            .forEach(seller -> shopNames.put(seller.getId(), seller.getShopName()));
+        return top.stream()
+            .map(row -> {
                 AdminOverviewDTO.TopSellerDTO dto = new AdminOverviewDTO.TopSellerDTO();
-                dto.setSellerId(aggregate.getSellerId());
-                dto.setShopName(aggregate.getShopName());
-                dto.setOrders(aggregate.getOrders());
-                dto.setRevenue(aggregate.getRevenue());
+                dto.setSellerId((String) row[0]);
+                dto.setShopName(Objects.requireNonNullElse(shopNames.get((String) row[0]), "Unknown seller"));
+                dto.setOrders(((Number) row[1]).longValue());
+                dto.setRevenue(((Number) row[2]).doubleValue());
                 return dto;
             })
             .collect(Collectors.toList());
     }
 
-    private List<Order> filterOrdersByPeriod(String period) {
-        LocalDate start = resolvePeriodStart(period);
-        return orderRepository.findAll().stream()
-            .filter(order -> order.getCreatedAt() != null)
-            .filter(order -> !order.getCreatedAt().toLocalDate().isBefore(start))
+    // The TOP_LIMIT rows [id, orders or units, revenue] with the most revenue
+    private List<Object[]> rankTop(List<Object[]> rows) {
+        return rows.stream()
+            .sorted(Comparator.comparing((Object[] row) -> ((Number) row[2]).doubleValue()).reversed())
+            .limit(TOP_LIMIT)
             .collect(Collectors.toList());
     }
 
+    // [orders, revenue] of all sellers per day of the period, from the daily rollups
+    private Map<LocalDate, Object[]> sumByDate(LocalDate start, LocalDate end) {
+        Map<LocalDate, Object[]> totals = new HashMap<>();
+        for (Object[] row : dailySellerStatRepository.sumByDate(start, end)) {
+            totals.put((LocalDate) row[0], new Object[]{row[1], row[2]});
+        }
+        return totals;
+    }
+
     private LocalDate resolvePeriodStart(String period) {
         LocalDate today = LocalDate.now();
         if (period == null || period.isBlank()) {
@@ -1161,19 +1165,14 @@ public class AdminService {
     }
 
     private List<RevenuePointDTO> calculateRevenueSeries(String period) {
-        Map<LocalDate, List<Order>> grouped = filterOrdersByPeriod(period).stream()
-            .collect(Collectors.groupingBy(order -> order.getCreatedAt() != null
-                ? order.getCreatedAt().toLocalDate()
-                : LocalDate.now()));
         LocalDate start = resolvePeriodStart(period);
         LocalDate end = LocalDate.now();
+        Map<LocalDate, Object[]> totals = sumByDate(start, end);
         List<RevenuePointDTO> points = new ArrayList<>();
         for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
-            List<Order> orders = grouped.getOrDefault(date, List.of());
-            double revenue = orders.stream()
-                .map(order -> order.getFinalTotal() != null ? order.getFinalTotal().doubleValue() : 0.0)
-                .reduce(0.0, Double::sum);
-            int orderCount = orders.size();
+            Object[] day = totals.get(date);
+            double revenue = day != null ? ((Number) day[1]).doubleValue() : 0.0;
+            int orderCount = day != null ? ((Number) day[0]).intValue() : 0;
             double profit = revenue * 0.25;
             points.add(new RevenuePointDTO(date.toString(), revenue, profit, orderCount));
         }
@@ -1181,27 +1180,15 @@ public class AdminService {
     }
 
     private List<CategoryRevenueDTO> calculateCategorySeries() {
-        Map<String, Double> totals = new LinkedHashMap<>();
-        orderItemRepository.findAll().forEach(item -> {
-            Product product = item.getProduct();
-            String categoryName = (product != null && product.getCategory() != null)
-                ? product.getCategory().getName()
-                : "Khác";
-            double value = item.getTotalPrice() != null ? item.getTotalPrice().doubleValue() : 0.0;
-            totals.merge(categoryName, value, Double::sum);
-        });
-        return totals.entrySet().stream()
-            .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
-            .map(entry -> new CategoryRevenueDTO(entry.getKey(), entry.getValue()))
+        return dailyProductStatRepository.sumRevenueByCategory().stream()
+            .map(row -> new CategoryRevenueDTO((String) row[0], ((Number) row[1]).doubleValue()))
+            .sorted(Comparator.comparing(CategoryRevenueDTO::getRevenue).reversed())
             .collect(Collectors.toList());
     }
 
-    private List<CustomerTypeDTO> calculateCustomerTypes() {
-        Map<String, Long> ordersByCustomer = orderRepository.findAll().stream()
-            .filter(order -> order.getCustomer() != null)
-            .collect(Collectors.groupingBy(order -> order.getCustomer().getId(), Collectors.counting()));
-        long newCustomers = ordersByCustomer.values().stream().filter(count -> count == 1).count();
-        long returningCustomers = ordersByCustomer.values().stream().filter(count -> count > 1).count();
+    private List<CustomerTypeDTO> calculateCustomerTypes(List<Long> ordersByCustomer) {
+        long newCustomers = ordersByCustomer.stream().filter(count -> count == 1).count();
+        long returningCustomers = ordersByCustomer.stream().filter(count -> count > 1).count();
         long totalCustomers = ordersByCustomer.size();
         long inactiveCustomers = Math.max(0, totalCustomers - newCustomers - returningCustomers);
 
@@ -1211,18 +1198,22 @@ public class AdminService {
         return List.of(newDto, returningDto, inactiveDto);
     }
 
-    private List<CustomerLocationDTO> calculateCustomerLocations() {
+    private List<CustomerLocationDTO> calculateCustomerLocations(long customers) {
         Map<String, Long> locations = new HashMap<>();
-        orderRepository.findAll().forEach(order -> {
-            String province = "Không rõ";
-            if (order.getCustomer() != null && order.getCustomer().getAddresses() != null
-                && !order.getCustomer().getAddresses().isEmpty()) {
-                province = Optional.ofNullable(order.getCustomer().getAddresses().get(0).getProvince())
-                    .filter(value -> !value.isBlank())
-                    .orElse("Không rõ");
-            }
-            locations.merge(province, 1L, Long::sum);
-        });
+        long located = 0;
+        for (Object[] row : orderRepository.countGroupByCustomerProvince()) {
+            String province = Optional.ofNullable((String) row[0])
+                .filter(value -> !value.isBlank())
+                .orElse("Không rõ");
+            long count = ((Number) row[1]).longValue();
+            locations.merge(province, count, Long::sum);
+            located += count;
+        }
+        // Customers without a default address
+        long unknown = customers - located;
+        if (unknown > 0) {
+            locations.merge("Không rõ", unknown, Long::sum);
+        }
 
         return locations.entrySet().stream()
             .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
@@ -1232,17 +1223,13 @@ public class AdminService {
     }
 
     private List<TrafficPointDTO> calculateTrafficSeries(String period) {
-        Map<LocalDate, Long> ordersPerDay = filterOrdersByPeriod(period).stream()
-            .collect(Collectors.groupingBy(order -> order.getCreatedAt() != null
-                    ? order.getCreatedAt().toLocalDate()
-                    : LocalDate.now(),
-                Collectors.counting()));
-
         LocalDate start = resolvePeriodStart(period);
         LocalDate end = LocalDate.now();
+        Map<LocalDate, Object[]> totals = sumByDate(start, end);
         List<TrafficPointDTO> points = new ArrayList<>();
         for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
-            long orderCount = ordersPerDay.getOrDefault(date, 0L);
+            Object[] day = totals.get(date);
+            long orderCount = day != null ? ((Number) day[0]).longValue() : 0L;
             int visitors = (int) Math.max(orderCount * 2, 1);
             int views = visitors * 3;
             double bounceRate = 60 - Math.min(orderCount * 2, 40);
@@ -1252,13 +1239,11 @@ public class AdminService {
     }
 
     private List<TrafficSourceDTO> calculateTrafficSources() {
-        Map<String, Long> sources = orderRepository.findAll().stream()
-            .collect(Collectors.groupingBy(order -> {
-                if (order.getPaymentMethod() == null || order.getPaymentMethod().isBlank()) {
-                    return "other";
-                }
-                return order.getPaymentMethod().toLowerCase();
-            }, Collectors.counting()));
+        Map<String, Long> sources = new HashMap<>();
+        for (Object[] row : orderRepository.countGroupByPaymentMethod()) {
+            String method = (String) row[0];
+            sources.merge(method == null || method.isBlank() ? "other" : method, ((Number) row[1]).longValue(), Long::sum);
+        }
 
         if (sources.isEmpty()) {
             sources.put("other", 0L);
@@ -1269,34 +1254,30 @@ public class AdminService {
             .collect(Collectors.toList());
     }
 
-    private List<TopProductDTO> calculateTopProducts() {
-        Map<String, ProductSalesStats> stats = new HashMap<>();
-        orderItemRepository.findAll().forEach(item -> {
-            Product product = item.getProduct();
-            if (product == null) {
-                return;
-            }
-            ProductSalesStats acc = stats.computeIfAbsent(product.getId(), id -> new ProductSalesStats(product));
-            int quantity = item.getQuantity() != null ? item.getQuantity() : 0;
-            double revenue = item.getTotalPrice() != null ? item.getTotalPrice().doubleValue() : 0.0;
-            acc.addQuantity(quantity);
-            acc.addRevenue(revenue);
-        });
-
-        return stats.values().stream()
-            .sorted(Comparator.comparing(ProductSalesStats::getRevenue).reversed())
-            .limit(5)
-            .map(stat -> {
+    private List<TopProductDTO> calculateTopProducts(String period) {
+        LocalDate start = resolvePeriodStart(period);
+        LocalDate end = LocalDate.now();
+        List<String> candidates = topSalesTracker.topProducts(start, end, TOP_CANDIDATES);
+        List<Object[]> rows = rankTop(candidates == null
+            ? dailyProductStatRepository.findTopProducts(start, end, PageRequest.of(0, TOP_LIMIT))
+            : candidates.isEmpty() ? List.of() : dailyProductStatRepository.sumStatsByProductIdIn(candidates, start, end));
+        Map<String, Product> products = productRepository.findByIdInWithImages(
+                rows.stream().map(row -> (String) row[0]).collect(Collectors.toList())).stream()
+            .collect(Collectors.toMap(Product::getId, product -> product));
+
+        return rows.stream()
+            .filter(row -> products.containsKey((String) row[0]))
+            .map(row -> {
+                Product product = products.get((String) row[0]);
+                int quantity = ((Number) row[1]).intValue();
                 TopProductDTO dto = new TopProductDTO();
-                dto.setId(stat.getProduct().getId());
-                dto.setName(stat.getProduct().getName());
-                dto.setSold(stat.getQuantity());
-                dto.setRevenue(stat.getRevenue());
-                dto.setTrend(stat.getQuantity() > 0 ? "+15%" : "0%");
-                dto.setTrendUp(stat.getQuantity() > 0);
-                dto.setImage(stat.getProduct().getImages() != null && !stat.getProduct().getImages().isEmpty()
-                    ? stat.getProduct().getImages().get(0).getImageUrl()
-                    : null);
+                dto.setId(product.getId());
+                dto.setName(product.getName());
+                dto.setSold(quantity);
+                dto.setRevenue(((Number) row[2]).doubleValue());
+                dto.setTrend(quantity > 0 ? "+15%" : "0%");
+                dto.setTrendUp(quantity > 0);
+                dto.setImage(!product.getImages().isEmpty() ? product.getImages().get(0).getImageUrl() : null);
                 return dto;
             })
             .collect(Collectors.toList());
@@ -1324,85 +1305,10 @@ public class AdminService {
         return estimateChange((double) value);
     }
 
-    private double estimateConversionRate() {
-        List<Order> orders = orderRepository.findAll();
-        long uniqueCustomers = orders.stream()
-            .map(order -> order.getCustomer() != null ? order.getCustomer().getId() : null)
-            .filter(Objects::nonNull)
-            .distinct()
-            .count();
+    private double estimateConversionRate(long orders) {
+        long uniqueCustomers = distinctCustomerCounter.countAllTime(null);
         long estimatedVisitors = Math.max(uniqueCustomers * 5, 1);
-        return Math.min(100.0, (orders.size() * 100.0) / estimatedVisitors);
-    }
-
-    private static class ProductSalesStats {
-        private final Product product;
-        private int quantity;
-        private double revenue;
-
-        ProductSalesStats(Product product) {
-            this.product = product;
-        }
-
-        void addQuantity(int value) {
-            this.quantity += value;
-        }
-
-        void addRevenue(double value) {
-            this.revenue += value;
-        }
-
-        public Product getProduct() {
-            return product;
-        }
-
-        public int getQuantity() {
-            return quantity;
-        }
-
-        public double getRevenue() {
-            return revenue;
-        }
-    }
-
-    private static class SellerAggregate {
-        private final String sellerId;
-        private final String shopName;
-        private long orders;
-        private double revenue;
-
-        SellerAggregate(Seller seller) {
-            this.sellerId = seller != null ? seller.getId() : null;
-            this.shopName = seller != null && seller.getShopName() != null
-                ? seller.getShopName()
-                : "Unknown seller";
-        }
-
-        void incrementOrders() {
-            this.orders++;
-        }
-
-        void addRevenue(BigDecimal value) {
-            if (value != null) {
-                this.revenue += value.doubleValue();
-            }
-        }
-
-        public String getSellerId() {
-            return sellerId;
-        }
-
-        public String getShopName() {
-            return shopName;
-        }
-
-        public long getOrders() {
-            return orders;
-        }
-
-        public double getRevenue() {
-            return revenue;
-        }
+        return Math.min(100.0, (orders * 100.0) / estimatedVisitors);
     }
 
     private Voucher.DiscountType parseDiscountType(String type) {
@@ -1529,10 +1435,5 @@ public class AdminService {
         Object value = map.get(key);
         return value != null ? value.toString() : null;
     }
-
-    private String generateTrackingNumber(Order order) {
-        return "TRK-" + (order.getOrderNumber() != null ? order.getOrderNumber() : UUID.randomUUID().toString())
-            + "-" + System.currentTimeMillis();
-    }
 }
 
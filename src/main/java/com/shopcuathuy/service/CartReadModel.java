@@ -0,0 +1,201 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.dto.request.CheckoutItemRequestDTO;
+import com.shopcuathuy.entity.Product;
+import com.shopcuathuy.entity.ProductVariant;
+import com.shopcuathuy.repository.CartItemRepository;
+import com.shopcuathuy.repository.ProductRepository;
+import com.shopcuathuy.repository.ProductVariantRepository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.stereotype.Service;
+
+/**
+ * Priced and validated cart lines, loaded with a fixed number of queries whatever the
+ * size of the cart: a saved cart comes back with its products, images and variants in
+ * one query; lines sent by the client take one query for the products with their
+ * images and one for the variants. Prices come from the {@link PriceIndex}.
+ *
+ * A line that cannot be bought as it stands (unknown product or variant, bad quantity,
+ * not enough stock) carries an error message instead of failing the whole cart.
+ */
+@Service
+public class CartReadModel {
+
+    private final CartItemRepository cartItemRepository;
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final PriceIndex priceIndex;
+
+    public CartReadModel(CartItemRepository cartItemRepository,
+                         ProductRepository productRepository,
+                         ProductVariantRepository productVariantRepository,
+                         PriceIndex priceIndex) {
+        this.cartItemRepository = cartItemRepository;
+        this.productRepository = productRepository;
+        this.productVariantRepository = productVariantRepository;
+        this.priceIndex = priceIndex;
+    }
+
+    /**
+     * The saved cart of a user.
+     */
+    public List<Line> forUser(String userId) {
+        LocalDateTime now = LocalDateTime.now();
+        return cartItemRepository.findByUserIdWithProducts(userId).stream()
+            .map(item -> price(item.getId(), item.getProduct().getId(), item.getProduct(), item.getVariant(),
+                item.getVariant() != null ? item.getVariant().getId() : null, item.getQuantity(), now))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Lines sent with a checkout request, in request order.
+     */
+    public List<Line> forItems(List<CheckoutItemRequestDTO> items) {
+        Set<String> productIds = items.stream().map(item -> item.productId)
+            .filter(id -> id != null).collect(Collectors.toSet());
+        Set<String> variantIds = items.stream().map(item -> variantId(item.variantId))
+            .filter(id -> id != null).collect(Collectors.toSet());
+        Map<String, Product> products = productRepository.findByIdInWithImages(productIds).stream()
+            .collect(Collectors.toMap(Product::getId, Function.identity()));
+        Map<String, ProductVariant> variants = variantIds.isEmpty() ? Map.of()
+            : productVariantRepository.findAllById(variantIds).stream()
+                .collect(Collectors.toMap(ProductVariant::getId, Function.identity()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Line> lines = new ArrayList<>(items.size());
+        for (CheckoutItemRequestDTO item : items) {
+            String variantId = variantId(item.variantId);
+            lines.add(price(null, item.productId, products.get(item.productId),
+                variantId != null ? variants.get(variantId) : null, variantId, item.quantity, now));
+        }
+        return lines;
+    }
+
+    private Line price(String cartItemId, String productId, Product product, ProductVariant variant,
+                       String variantId, Integer quantity, LocalDateTime now) {
+        Line line = new Line(cartItemId, productId, product, variant, quantity);
+        if (product == null) {
+            line.error = "Product not found: " + productId;
+            return line;
+        }
+        // Proxy ids are read without loading the product
+        if (variantId != null && (variant == null || !variant.getProduct().getId().equals(productId))) {
+            line.error = "Variant not found: " + variantId;
+            return line;
+        }
+
+        PriceIndex.Quote quote = priceIndex.quote(productId, variantId, now, true);
+        if (quote != null) {
+            line.unitPrice = quote.getPrice();
+            line.priceSource = quote.getSource();
+        } else {
+            // Not indexed yet (created moments ago): base price
+            line.unitPrice = variant != null && variant.getVariantPrice() != null ? variant.getVariantPrice() : product.getPrice();
+            line.priceSource = PriceIndex.Source.BASE;
+        }
+        if (line.unitPrice == null) {
+            line.unitPrice = BigDecimal.ZERO;
+        }
+
+        Integer available = line.getAvailableQuantity();
+        if (quantity == null || quantity <= 0) {
+            line.error = "Invalid quantity for product: " + productId;
+        } else if (available == null || available < quantity) {
+            line.error = "Insufficient stock for product: " + product.getName();
+        }
+        return line;
+    }
+
+    private static String variantId(String variantId) {
+        return variantId == null || variantId.isEmpty() ? null : variantId;
+    }
+
+    public static final class Line {
+        private final String cartItemId;
+        private final String productId;
+        private final Product product;
+        private final ProductVariant variant;
+        private final Integer quantity;
+        private BigDecimal unitPrice;
+        private PriceIndex.Source priceSource;
+        private String error;
+
+        private Line(String cartItemId, String productId, Product product, ProductVariant variant, Integer quantity) {
+            this.cartItemId = cartItemId;
+            this.productId = productId;
+            this.product = product;
+            this.variant = variant;
+            this.quantity = quantity;
+        }
+
+        public String getCartItemId() {
+            return cartItemId;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        /**
+         * Null when the product does not exist.
+         */
+        public Product getProduct() {
+            return product;
+        }
+
+        public ProductVariant getVariant() {
+            return variant;
+        }
+
+        public Integer getQuantity() {
+            return quantity;
+        }
+
+        /**
+         * Null when the product or variant does not exist.
+         */
+        public BigDecimal getUnitPrice() {
+            return unitPrice;
+        }
+
+        public BigDecimal getTotalPrice() {
+            return unitPrice != null && quantity != null ? unitPrice.multiply(BigDecimal.valueOf(quantity)) : BigDecimal.ZERO;
+        }
+
+        public PriceIndex.Source getPriceSource() {
+            return priceSource;
+        }
+
+        /**
+         * Stock of the chosen variant, or of the product for lines without one.
+         */
+        public Integer getAvailableQuantity() {
+            if (variant != null) {
+                return variant.getVariantQuantity();
+            }
+            return product != null ? product.getQuantity() : null;
+        }
+
+        public String getImageUrl() {
+            return product != null && !product.getImages().isEmpty() ? product.getImages().get(0).getImageUrl() : null;
+        }
+
+        /**
+         * Why the line cannot be bought as it stands, or null.
+         */
+        public String getError() {
+            return error;
+        }
+
+        public boolean isValid() {
+            return error == null;
+        }
+    }
+}
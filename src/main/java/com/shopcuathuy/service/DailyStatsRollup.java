@@ -0,0 +1,438 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.entity.DailyCustomerSketch;
+import com.shopcuathuy.entity.DailyProductStat;
+import com.shopcuathuy.entity.DailySellerStat;
+import com.shopcuathuy.entity.Order;
+import com.shopcuathuy.event.OrderStatsChangedEvent;
+import com.shopcuathuy.repository.DailyCustomerSketchRepository;
+import com.shopcuathuy.repository.DailyProductStatRepository;
+import com.shopcuathuy.repository.DailySellerStatRepository;
+import com.shopcuathuy.repository.OrderItemRepository;
+import com.shopcuathuy.repository.OrderRepository;
+import com.shopcuathuy.util.HyperLogLog;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Keeps {@code daily_seller_stats} and {@code daily_product_stats} up to date, so the
+ * dashboards read one row per seller (or product) and day instead of every order.
+ *
+ * Placing, cancelling or returning an order publishes an {@link OrderStatsChangedEvent};
+ * after commit its change is added to an in-memory delta per seller and day and per
+ * product and day, and the deltas are written out in one transaction on the flush
+ * interval. An order always counts on the day it was placed. The customers of newly
+ * placed orders also go into a {@link HyperLogLog} per seller and day, merged into the
+ * row's sketch on flush, and into one per day across all sellers ({@code daily_customer_sketches}).
+ * A sketch cannot take a customer back out, so a customer whose orders of the day were all
+ * cancelled leaves it only when the reconciliation rebuilds that day. Deltas lost to a crash, or
+ * order writes that bypass the events, are repaired by the nightly reconciliation, which
+ * recomputes the last closed days from the orders and rewrites every row that differs.
+ */
+@Service
+public class DailyStatsRollup {
+
+    private static final Logger log = LoggerFactory.getLogger(DailyStatsRollup.class);
+
+    private static final Set<Order.OrderStatus> VOIDED = EnumSet.of(Order.OrderStatus.CANCELLED, Order.OrderStatus.RETURNED);
+
+    private final DailySellerStatRepository dailySellerStatRepository;
+    private final DailyProductStatRepository dailyProductStatRepository;
+    private final DailyCustomerSketchRepository dailyCustomerSketchRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int reconcileDays;
+    private final ConcurrentHashMap<DayKey, SellerDelta> sellerDeltas = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<DayKey, ProductDelta> productDeltas = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<DayKey, HyperLogLog> customerSketches = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<LocalDate, HyperLogLog> allCustomerSketches = new ConcurrentHashMap<>();
+
+    public DailyStatsRollup(DailySellerStatRepository dailySellerStatRepository,
+                            DailyProductStatRepository dailyProductStatRepository,
+                            DailyCustomerSketchRepository dailyCustomerSketchRepository,
+                            OrderRepository orderRepository,
+                            OrderItemRepository orderItemRepository,
+                            ApplicationEventPublisher eventPublisher,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${analytics.rollup.reconcile-days:7}") int reconcileDays) {
+        Assert.isTrue(reconcileDays > 0, "analytics.rollup.reconcile-days must be positive");
+        this.dailySellerStatRepository = dailySellerStatRepository;
+        this.dailyProductStatRepository = dailyProductStatRepository;
+        this.dailyCustomerSketchRepository = dailyCustomerSketchRepository;
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reconcileDays = reconcileDays;
+    }
+
+    /**
+     * Whether an order in this status is left out of every dashboard figure: orders,
+     * revenue, units sold, customers, locations, payment methods and conversion all count
+     * standing orders only, that is orders neither cancelled nor returned. Queries behind
+     * those figures filter on {@code o.status NOT IN ('CANCELLED', 'RETURNED')} to match.
+     */
+    public static boolean isVoided(Order.OrderStatus status) {
+        return VOIDED.contains(status);
+    }
+
+    /**
+     * Count a newly saved order (its items must be attached).
+     */
+    public void recordPlaced(Order order) {
+        if (!isVoided(order.getStatus())) {
+            publish(order, 1, 0);
+        }
+    }
+
+    /**
+     * Move an order in or out of the counts when its status crosses into or out of
+     * cancelled/returned; other transitions change nothing.
+     */
+    public void recordStatusChange(Order order, Order.OrderStatus oldStatus) {
+        boolean wasVoided = isVoided(oldStatus);
+        boolean voided = isVoided(order.getStatus());
+        if (wasVoided != voided) {
+            publish(order, voided ? -1 : 1, voided ? 1 : -1);
+        }
+    }
+
+    private void publish(Order order, int orders, int cancelledOrders) {
+        List<OrderStatsChangedEvent.Line> lines = order.getOrderItems().stream()
+            .filter(item -> item.getProduct() != null)
+            .map(item -> new OrderStatsChangedEvent.Line(item.getProduct().getId(),
+                item.getQuantity() != null ? item.getQuantity() : 0, item.getTotalPrice()))
+            .collect(Collectors.toList());
+        LocalDate statDate = order.getCreatedAt() != null ? order.getCreatedAt().toLocalDate() : LocalDate.now();
+        eventPublisher.publishEvent(new OrderStatsChangedEvent(order.getSeller().getId(),
+            order.getCustomer() != null ? order.getCustomer().getId() : null, statDate,
+            orders, cancelledOrders, order.getFinalTotal(), lines));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatsChanged(OrderStatsChangedEvent event) {
+        BigDecimal sign = BigDecimal.valueOf(event.getOrders());
+        DayKey sellerDay = new DayKey(event.getSellerId(), event.getStatDate());
+        sellerDeltas.merge(sellerDay,
+            new SellerDelta(event.getOrders(), sign.multiply(orZero(event.getFinalTotal())), event.getCancelledOrders()),
+            SellerDelta::plus);
+        // A placed or reinstated order brings its customer in; a cancelled one cannot take it out
+        if (event.getOrders() > 0 && event.getCustomerId() != null) {
+            // The sketches are only touched inside compute(), which excludes a concurrent drain
+            customerSketches.compute(sellerDay, (key, sketch) -> addCustomer(sketch, event.getCustomerId()));
+            allCustomerSketches.compute(event.getStatDate(), (key, sketch) -> addCustomer(sketch, event.getCustomerId()));
+        }
+        for (OrderStatsChangedEvent.Line line : event.getLines()) {
+            productDeltas.merge(new DayKey(line.getProductId(), event.getStatDate()),
+                new ProductDelta(event.getSellerId(), (long) event.getOrders() * line.getQuantity(),
+                    sign.multiply(orZero(line.getTotalPrice()))),
+                ProductDelta::plus);
+        }
+    }
+
+    private static HyperLogLog addCustomer(HyperLogLog sketch, String customerId) {
+        HyperLogLog customers = sketch != null ? sketch : new HyperLogLog();
+        customers.add(customerId);
+        return customers;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.rollup.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        Map<DayKey, SellerDelta> sellers = drain(sellerDeltas);
+        Map<DayKey, ProductDelta> products = drain(productDeltas);
+        Map<DayKey, HyperLogLog> sketches = drain(customerSketches);
+        Map<LocalDate, HyperLogLog> allSketches = drain(allCustomerSketches);
+        if (sellers.isEmpty() && products.isEmpty() && sketches.isEmpty() && allSketches.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                sellers.forEach(this::applySellerDelta);
+                products.forEach(this::applyProductDelta);
+                sketches.forEach(this::applyCustomerSketch);
+                allSketches.forEach(this::applyAllCustomerSketch);
+            });
+        } catch (RuntimeException e) {
+            // Keep the deltas for the next flush (a row inserted by another instance meanwhile is then updated)
+            sellers.forEach((key, delta) -> sellerDeltas.merge(key, delta, SellerDelta::plus));
+            products.forEach((key, delta) -> productDeltas.merge(key, delta, ProductDelta::plus));
+            sketches.forEach((key, sketch) -> customerSketches.merge(key, sketch, DailyStatsRollup::mergeSketches));
+            allSketches.forEach((date, sketch) -> allCustomerSketches.merge(date, sketch, DailyStatsRollup::mergeSketches));
+            log.warn("Failed to flush {} seller and {} product rollup deltas: {}",
+                sellers.size(), products.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void applySellerDelta(DayKey key, SellerDelta delta) {
+        if (dailySellerStatRepository.addStats(key.id(), key.date(), delta.orders(), delta.revenue(), delta.cancelledOrders()) == 0) {
+            DailySellerStat row = new DailySellerStat();
+            row.setSellerId(key.id());
+            row.setStatDate(key.date());
+            row.setOrders(delta.orders());
+            row.setRevenue(delta.revenue());
+            row.setCancelledOrders(delta.cancelledOrders());
+            row.setCustomerSketch(new HyperLogLog().toBytes());
+            dailySellerStatRepository.save(row);
+        }
+    }
+
+    private void applyCustomerSketch(DayKey key, HyperLogLog customers) {
+        // Locked, so sketches flushed by several instances merge instead of overwriting each other
+        DailySellerStat row = dailySellerStatRepository.findForUpdate(key.id(), key.date()).orElse(null);
+        if (row == null) {
+            row = new DailySellerStat();
+            row.setSellerId(key.id());
+            row.setStatDate(key.date());
+        } else {
+            customers.merge(HyperLogLog.fromBytes(row.getCustomerSketch()));
+        }
+        row.setCustomerSketch(customers.toBytes());
+        dailySellerStatRepository.save(row);
+    }
+
+    private void applyAllCustomerSketch(LocalDate date, HyperLogLog customers) {
+        DailyCustomerSketch row = dailyCustomerSketchRepository.findForUpdate(date).orElse(null);
+        if (row == null) {
+            row = new DailyCustomerSketch();
+            row.setStatDate(date);
+        } else {
+            customers.merge(HyperLogLog.fromBytes(row.getCustomerSketch()));
+        }
+        row.setCustomerSketch(customers.toBytes());
+        dailyCustomerSketchRepository.save(row);
+    }
+
+    private static HyperLogLog mergeSketches(HyperLogLog current, HyperLogLog failed) {
+        current.merge(failed);
+        return current;
+    }
+
+    private void applyProductDelta(DayKey key, ProductDelta delta) {
+        if (dailyProductStatRepository.addStats(key.id(), key.date(), delta.quantity(), delta.revenue()) == 0) {
+            DailyProductStat row = new DailyProductStat();
+            row.setProductId(key.id());
+            row.setSellerId(delta.sellerId());
+            row.setStatDate(key.date());
+            row.setQuantity(delta.quantity());
+            row.setRevenue(delta.revenue());
+            dailyProductStatRepository.save(row);
+        }
+    }
+
+    /**
+     * Rebuild the last {@code analytics.rollup.reconcile-days} closed days. Today is left to
+     * the live deltas: its orders are still coming in.
+     */
+    @Scheduled(cron = "${analytics.rollup.reconcile-cron:0 30 2 * * *}")
+    public void reconcileRecentDays() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        int rewritten = reconcile(yesterday.minusDays(reconcileDays - 1), yesterday);
+        if (rewritten > 0) {
+            log.warn("Daily rollups: rewrote {} drifted rows of the last {} days", rewritten, reconcileDays);
+        }
+    }
+
+    /**
+     * Fill the rollups from the order history the first time the app starts with them, or
+     * with rows written before they carried customer sketches. Runs before the other
+     * startup listeners, which may read the rollups. Stops at yesterday: today's rows take
+     * live deltas meanwhile and are closed by the nightly reconcile.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @org.springframework.core.annotation.Order(Ordered.HIGHEST_PRECEDENCE)
+    public void backfill() {
+        if (dailySellerStatRepository.count() > 0 && !dailySellerStatRepository.existsByCustomerSketchIsNull()
+                && dailyCustomerSketchRepository.count() > 0) {
+            return;
+        }
+        LocalDateTime firstOrder = orderRepository.findFirstCreatedAt();
+        if (firstOrder == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int rows = reconcile(firstOrder.toLocalDate(), LocalDate.now().minusDays(1));
+        log.info("Daily rollups backfilled: {} rows since {} in {} ms", rows, firstOrder.toLocalDate(),
+            System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Recompute the rollups of the days from {@code from} to {@code to} from the orders and
+     * rewrite the rows that differ; returns how many rows were written or deleted. Each day
+     * commits on its own. A delta committed while its day is being recomputed may be counted
+     * twice, so only run it over days that are quiet (closed days, or an idle app).
+     */
+    public synchronized int reconcile(LocalDate from, LocalDate to) {
+        flush();
+        int rewritten = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            LocalDate statDate = day;
+            Integer count = transactionTemplate.execute(status -> reconcileSellers(statDate) + reconcileProducts(statDate));
+            rewritten += count != null ? count : 0;
+        }
+        return rewritten;
+    }
+
+    private int reconcileSellers(LocalDate day) {
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = day.plusDays(1).atStartOfDay();
+        Map<String, HyperLogLog> customers = new HashMap<>();
+        HyperLogLog allCustomers = new HyperLogLog();
+        List<Object[]> pairs = orderRepository.findSellerCustomerPairs(start, end);
+        for (Object[] pair : pairs) {
+            customers.computeIfAbsent((String) pair[0], id -> new HyperLogLog()).add((String) pair[1]);
+            allCustomers.add((String) pair[1]);
+        }
+        int rewritten = reconcileAllCustomers(day, pairs.isEmpty() ? null : allCustomers.toBytes());
+        Map<String, DailySellerStat> stale = dailySellerStatRepository.findByStatDate(day).stream()
+            .collect(Collectors.toMap(DailySellerStat::getSellerId, row -> row));
+        List<DailySellerStat> changed = new ArrayList<>();
+        for (Object[] totals : orderRepository.sumStatsBySeller(start, end)) {
+            String sellerId = (String) totals[0];
+            long orders = ((Number) totals[1]).longValue();
+            BigDecimal revenue = toBigDecimal(totals[2]);
+            long cancelledOrders = ((Number) totals[3]).longValue();
+            byte[] customerSketch = customers.getOrDefault(sellerId, new HyperLogLog()).toBytes();
+            DailySellerStat row = stale.remove(sellerId);
+            if (row != null && row.getOrders() == orders && row.getRevenue().compareTo(revenue) == 0
+                    && row.getCancelledOrders() == cancelledOrders
+                    && Arrays.equals(row.getCustomerSketch(), customerSketch)) {
+                continue;
+            }
+            if (row == null) {
+                row = new DailySellerStat();
+                row.setSellerId(sellerId);
+                row.setStatDate(day);
+            }
+            row.setOrders(orders);
+            row.setRevenue(revenue);
+            row.setCancelledOrders(cancelledOrders);
+            row.setCustomerSketch(customerSketch);
+            changed.add(row);
+        }
+        // Rows left over have no orders behind them
+        dailySellerStatRepository.deleteAll(stale.values());
+        dailySellerStatRepository.saveAll(changed);
+        return rewritten + changed.size() + stale.size();
+    }
+
+    // A null sketch means the day has no orders
+    private int reconcileAllCustomers(LocalDate day, byte[] customerSketch) {
+        DailyCustomerSketch row = dailyCustomerSketchRepository.findByStatDate(day).orElse(null);
+        if (customerSketch == null) {
+            if (row == null) {
+                return 0;
+            }
+            dailyCustomerSketchRepository.delete(row);
+            return 1;
+        }
+        if (row != null && Arrays.equals(row.getCustomerSketch(), customerSketch)) {
+            return 0;
+        }
+        if (row == null) {
+            row = new DailyCustomerSketch();
+            row.setStatDate(day);
+        }
+        row.setCustomerSketch(customerSketch);
+        dailyCustomerSketchRepository.save(row);
+        return 1;
+    }
+
+    private int reconcileProducts(LocalDate day) {
+        Map<String, DailyProductStat> stale = dailyProductStatRepository.findByStatDate(day).stream()
+            .collect(Collectors.toMap(DailyProductStat::getProductId, row -> row));
+        List<DailyProductStat> changed = new ArrayList<>();
+        for (Object[] totals : orderItemRepository.sumStatsByProduct(day.atStartOfDay(), day.plusDays(1).atStartOfDay())) {
+            String productId = (String) totals[0];
+            String sellerId = (String) totals[1];
+            long quantity = ((Number) totals[2]).longValue();
+            BigDecimal revenue = toBigDecimal(totals[3]);
+            DailyProductStat row = stale.remove(productId);
+            if (row != null && row.getQuantity() == quantity && row.getRevenue().compareTo(revenue) == 0
+                    && sellerId.equals(row.getSellerId())) {
+                continue;
+            }
+            if (row == null) {
+                row = new DailyProductStat();
+                row.setProductId(productId);
+                row.setStatDate(day);
+            }
+            row.setSellerId(sellerId);
+            row.setQuantity(quantity);
+            row.setRevenue(revenue);
+            changed.add(row);
+        }
+        dailyProductStatRepository.deleteAll(stale.values());
+        dailyProductStatRepository.saveAll(changed);
+        return changed.size() + stale.size();
+    }
+
+    private static <K, V> Map<K, V> drain(ConcurrentHashMap<K, V> deltas) {
+        Map<K, V> batch = new HashMap<>();
+        // remove() is atomic with merge(): a delta added after the removal starts a new entry
+        for (K key : deltas.keySet()) {
+            V delta = deltas.remove(key);
+            if (delta != null) {
+                batch.put(key, delta);
+            }
+        }
+        return batch;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    // Seller or product id and the day its orders were placed
+    private record DayKey(String id, LocalDate date) {
+    }
+
+    private record SellerDelta(long orders, BigDecimal revenue, long cancelledOrders) {
+        SellerDelta plus(SellerDelta other) {
+            return new SellerDelta(orders + other.orders, revenue.add(other.revenue), cancelledOrders + other.cancelledOrders);
+        }
+    }
+
+    private record ProductDelta(String sellerId, long quantity, BigDecimal revenue) {
+        ProductDelta plus(ProductDelta other) {
+            return new ProductDelta(sellerId, quantity + other.quantity, revenue.add(other.revenue));
+        }
+    }
+}
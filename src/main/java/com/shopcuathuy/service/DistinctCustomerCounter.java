@@ -0,0 +1,75 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.repository.DailyCustomerSketchRepository;
+import com.shopcuathuy.repository.DailySellerStatRepository;
+import com.shopcuathuy.repository.OrderRepository;
+import com.shopcuathuy.util.HyperLogLog;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Number of distinct customers with standing orders (see {@link DailyStatsRollup#isVoided})
+ * placed in a range of days. Windows of up to {@code analytics.customers.exact-max-days} days are counted
+ * exactly with COUNT(DISTINCT) over their orders; longer ones merge the per-day
+ * {@link HyperLogLog} sketches kept by {@link DailyStatsRollup}, which reads one small row
+ * per day (per seller and day for one seller) whatever the number of orders (error bound
+ * documented on {@link HyperLogLog}). Sketches of today trail the orders by one rollup flush,
+ * and keep the customers of orders cancelled since the day was last reconciled.
+ */
+@Service
+public class DistinctCustomerCounter {
+
+    // Start of the "all time" window
+    private static final LocalDate ALL_TIME = LocalDate.of(2000, 1, 1);
+
+    private final OrderRepository orderRepository;
+    private final DailySellerStatRepository dailySellerStatRepository;
+    private final DailyCustomerSketchRepository dailyCustomerSketchRepository;
+    private final int exactMaxDays;
+
+    public DistinctCustomerCounter(OrderRepository orderRepository,
+                                   DailySellerStatRepository dailySellerStatRepository,
+                                   DailyCustomerSketchRepository dailyCustomerSketchRepository,
+                                   @Value("${analytics.customers.exact-max-days:7}") int exactMaxDays) {
+        this.orderRepository = orderRepository;
+        this.dailySellerStatRepository = dailySellerStatRepository;
+        this.dailyCustomerSketchRepository = dailyCustomerSketchRepository;
+        this.exactMaxDays = exactMaxDays;
+    }
+
+    /**
+     * Customers of one seller, or of all sellers when {@code sellerId} is null, from
+     * {@code from} to {@code to} inclusive.
+     */
+    @Transactional(readOnly = true)
+    public long count(String sellerId, LocalDate from, LocalDate to) {
+        if (ChronoUnit.DAYS.between(from, to) + 1 <= exactMaxDays) {
+            return countExact(sellerId, from, to);
+        }
+        HyperLogLog customers = new HyperLogLog();
+        try (Stream<byte[]> sketches = sellerId != null
+                ? dailySellerStatRepository.streamCustomerSketchesBySellerId(sellerId, from, to)
+                : dailyCustomerSketchRepository.streamCustomerSketches(from, to)) {
+            sketches.forEach(sketch -> customers.merge(HyperLogLog.fromBytes(sketch)));
+        }
+        return customers.estimate();
+    }
+
+    /**
+     * Customers over all days.
+     */
+    @Transactional(readOnly = true)
+    public long countAllTime(String sellerId) {
+        return count(sellerId, ALL_TIME, LocalDate.now());
+    }
+
+    public long countExact(String sellerId, LocalDate from, LocalDate to) {
+        return sellerId != null
+            ? orderRepository.countDistinctCustomersBySellerId(sellerId, from.atStartOfDay(), to.plusDays(1).atStartOfDay())
+            : orderRepository.countDistinctCustomers(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+    }
+}
@@ -0,0 +1,148 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.entity.Product;
+import com.shopcuathuy.repository.ProductRepository;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory admission gate for flash-sale units. Each sale window gets an atomic
+ * counter seeded from {@code Product.flashSaleStock}; buyers take units from it with
+ * a CAS, so a sold-out sale is answered without a query or a row lock. Only admitted
+ * units go on to the conditional claim in the database, which stays authoritative
+ * (several app instances each admit up to the full stock; the database decides).
+ * Windows are reloaded periodically: new ones are seeded, a counter above the
+ * database's remaining stock is pulled down, and closed or disabled sales are dropped.
+ */
+@Service
+public class FlashSaleGate {
+
+    private static final Logger log = LoggerFactory.getLogger(FlashSaleGate.class);
+
+    // Counter value for a sale without a stock limit
+    private static final int UNLIMITED = -1;
+
+    private final ProductRepository productRepository;
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    public FlashSaleGate(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Take {@code quantity} flash-sale units of a product. Returns false when the product
+     * has no running sale or the sale cannot cover the quantity; the caller then sells at
+     * the regular price.
+     */
+    public boolean tryAcquire(String productId, int quantity, LocalDateTime now) {
+        Window window = windows.get(productId);
+        if (window == null || !window.isOpen(now)) {
+            return false;
+        }
+        AtomicInteger remaining = window.remaining;
+        while (true) {
+            int current = remaining.get();
+            if (current == UNLIMITED) {
+                return true;
+            }
+            if (current < quantity) {
+                return false;
+            }
+            if (remaining.compareAndSet(current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Hand units back, e.g. when the database claim failed or the order was cancelled.
+     * They go to the product's current window, even one re-seeded since they were taken:
+     * it was seeded from the database while the units were claimed there, so it does not
+     * count them yet. Once the sale has closed and its window is dropped, they are ignored.
+     */
+    public void release(String productId, int quantity) {
+        Window window = windows.get(productId);
+        if (window != null) {
+            window.remaining.updateAndGet(current -> current == UNLIMITED ? UNLIMITED : current + quantity);
+        }
+    }
+
+    /**
+     * Re-seed a product's window from its current flash-sale settings, after a seller edits them.
+     */
+    public void seed(Product product) {
+        LocalDateTime now = LocalDateTime.now();
+        if (Boolean.TRUE.equals(product.getFlashSaleEnabled()) && product.getFlashSalePrice() != null
+                && product.getFlashSaleStart() != null && product.getFlashSaleEnd() != null
+                && product.getFlashSaleEnd().isAfter(now)) {
+            windows.put(product.getId(), new Window(product.getFlashSaleStart(), product.getFlashSaleEnd(),
+                product.getFlashSaleStock()));
+        } else {
+            windows.remove(product.getId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${flash-sale.gate.refresh-interval-ms:10000}",
+               fixedDelayString = "${flash-sale.gate.refresh-interval-ms:10000}")
+    public void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = productRepository.findFlashSaleWindows(now);
+        Set<String> live = new HashSet<>();
+        for (Object[] row : rows) {
+            String productId = (String) row[0];
+            Integer stock = (Integer) row[1];
+            LocalDateTime start = (LocalDateTime) row[2];
+            LocalDateTime end = (LocalDateTime) row[3];
+            live.add(productId);
+            windows.compute(productId, (id, window) -> {
+                if (window == null || !window.start.equals(start) || !window.end.equals(end)
+                        || (window.remaining.get() == UNLIMITED) != (stock == null)) {
+                    return new Window(start, end, stock);
+                }
+                // Never admit more than the database still has; in-flight claims keep the
+                // counter at or below it, so only a lowered limit pulls it down
+                if (stock != null) {
+                    window.remaining.accumulateAndGet(Math.max(stock, 0), Math::min);
+                }
+                return window;
+            });
+        }
+        for (Map.Entry<String, Window> entry : windows.entrySet()) {
+            if (!live.contains(entry.getKey())) {
+                int left = entry.getValue().remaining.get();
+                windows.remove(entry.getKey(), entry.getValue());
+                log.info("Flash sale on product {} closed with {} units left in the gate",
+                    entry.getKey(), left == UNLIMITED ? "unlimited" : left);
+            }
+        }
+    }
+
+    private static final class Window {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final AtomicInteger remaining;
+
+        private Window(LocalDateTime start, LocalDateTime end, Integer stock) {
+            this.start = Objects.requireNonNull(start);
+            this.end = Objects.requireNonNull(end);
+            this.remaining = new AtomicInteger(stock == null ? UNLIMITED : Math.max(stock, 0));
+        }
+
+        private boolean isOpen(LocalDateTime now) {
+            return now.isAfter(start) && now.isBefore(end);
+        }
+    }
+}
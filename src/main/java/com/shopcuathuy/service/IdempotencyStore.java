@@ -0,0 +1,136 @@
+package com.shopcuathuy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shopcuathuy.api.ApiResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Results of non-repeatable POSTs keyed by the client's {@code Idempotency-Key}.
+ * The first request with a key runs; a retry gets the stored response back, and a
+ * duplicate arriving while the first is still running waits for it instead of running
+ * again. A key is scoped to the endpoint and the user, and reusing it with a different
+ * body is rejected with 409 Conflict. Only completed responses below 500 are kept; if the action throws,
+ * the key is dropped so the client can retry. Size and TTL are configurable; stats are
+ * exported as {@code cache.*} metrics under the name {@code idempotency}.
+ */
+@Service
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final Cache<String, Entry> cache;
+    private final ObjectMapper objectMapper;
+    private final Duration waitTimeout;
+
+    public IdempotencyStore(MeterRegistry meterRegistry,
+                            ObjectMapper objectMapper,
+                            @Value("${idempotency.max-size:10000}") long maxSize,
+                            @Value("${idempotency.ttl:24h}") Duration ttl,
+                            @Value("${idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        this.objectMapper = objectMapper;
+        this.waitTimeout = waitTimeout;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency");
+    }
+
+    /**
+     * Run {@code action} once per (scope, user, key). Without a key the action simply runs.
+     */
+    public <T> ResponseEntity<ApiResponse<T>> execute(String scope, String userId, String key, Object request,
+                                                      Supplier<ResponseEntity<ApiResponse<T>>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key không được dài quá " + MAX_KEY_LENGTH + " ký tự.");
+        }
+        String cacheKey = scope + "|" + userId + "|" + key;
+        Entry entry = new Entry(fingerprint(request));
+        Entry existing = cache.asMap().putIfAbsent(cacheKey, entry);
+        if (existing != null) {
+            return replay(existing, entry.fingerprint);
+        }
+
+        ResponseEntity<ApiResponse<T>> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException | Error e) {
+            cache.asMap().remove(cacheKey, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+        if (response.getStatusCode().is5xxServerError()) {
+            cache.asMap().remove(cacheKey, entry);
+        }
+        entry.result.complete(response);
+        return response;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ResponseEntity<ApiResponse<T>> replay(Entry existing, String fingerprint) {
+        if (!existing.fingerprint.equals(fingerprint)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error("Idempotency-Key đã được dùng cho một yêu cầu khác."));
+        }
+        ResponseEntity<?> stored;
+        try {
+            stored = existing.result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error("Yêu cầu với Idempotency-Key này vẫn đang được xử lý, vui lòng thử lại sau."));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request", e);
+        } catch (ExecutionException e) {
+            // The original request failed; this one reports the same error
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw (Error) e.getCause();
+        }
+        return ResponseEntity.status(stored.getStatusCode())
+            .headers(stored.getHeaders())
+            .header(REPLAYED_HEADER, "true")
+            .body((ApiResponse<T>) stored.getBody());
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            return DigestUtils.md5DigestAsHex(objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Request body is not serializable", e);
+        }
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final CompletableFuture<ResponseEntity<?>> result = new CompletableFuture<>();
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
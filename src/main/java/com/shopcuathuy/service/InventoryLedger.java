@@ -0,0 +1,159 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.entity.InventoryHistory;
+import com.shopcuathuy.entity.Product;
+import com.shopcuathuy.entity.ProductVariant;
+import com.shopcuathuy.event.InventoryChangedEvent;
+import com.shopcuathuy.exception.ResourceNotFoundException;
+import com.shopcuathuy.repository.InventoryHistoryRepository;
+import com.shopcuathuy.repository.ProductRepository;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Append-only stock ledger behind {@code inventory_history}. Stock changes are
+ * published as {@link InventoryChangedEvent}s and written in the transaction that
+ * changes the stock: its rows are collected and saved together just before it commits,
+ * going out as one JDBC batch, so a row exists exactly when its stock change does.
+ * Each row moves one stock column: {@code Product.quantity} when it has no variant id,
+ * otherwise that variant's {@code variantQuantity}. Summing the rows of a column
+ * therefore gives its quantity, which {@link #rebuildSnapshots} writes back.
+ */
+@Service
+public class InventoryLedger {
+
+    private final InventoryHistoryRepository inventoryHistoryRepository;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    // Binds the rows of the current transaction
+    private final Object pendingKey = new Object();
+
+    public InventoryLedger(InventoryHistoryRepository inventoryHistoryRepository,
+                           ProductRepository productRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager) {
+        this.inventoryHistoryRepository = inventoryHistoryRepository;
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void record(String productId, String variantId, int quantityChange,
+                       String reason, String referenceId, String note, String userLabel) {
+        if (quantityChange != 0) {
+            eventPublisher.publishEvent(new InventoryChangedEvent(productId, variantId, quantityChange,
+                reason, referenceId, note, userLabel));
+        }
+    }
+
+    /**
+     * Record the movements of reserved (sign -1) or returned (sign +1) order lines,
+     * each under its own reference.
+     */
+    public void recordReservations(List<StockReservationService.Reservation> lines, int sign,
+                                   String reason, String userLabel) {
+        for (StockReservationService.Reservation line : lines) {
+            if (line.getVariantId() != null) {
+                record(line.getProductId(), line.getVariantId(), sign * line.getQuantity(), reason,
+                    line.getReferenceId(), null, userLabel);
+            }
+            if (line.isProductDecremented()) {
+                record(line.getProductId(), null, sign * line.getQuantity(), reason, line.getReferenceId(), null, userLabel);
+            }
+        }
+    }
+
+    /**
+     * Record a stock level set by hand (seller edit, import); a null previous level counts as 0.
+     */
+    public void recordAdjustment(String productId, String variantId, Integer before, Integer after,
+                                 String note, String userLabel) {
+        int change = (after != null ? after : 0) - (before != null ? before : 0);
+        record(productId, variantId, change, InventoryHistory.REASON_ADJUSTMENT, null, note, userLabel);
+    }
+
+    @EventListener
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        InventoryHistory row = new InventoryHistory();
+        row.setProductId(event.getProductId());
+        row.setVariantId(event.getVariantId());
+        row.setQuantityChange(event.getQuantityChange());
+        row.setReason(event.getReason());
+        row.setReferenceId(event.getReferenceId());
+        row.setNote(event.getNote());
+        row.setUserLabel(event.getUserLabel());
+        row.setCreatedAt(event.getOccurredAt());
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            pendingRows().add(row);
+        } else {
+            transactionTemplate.executeWithoutResult(status -> inventoryHistoryRepository.save(row));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<InventoryHistory> pendingRows() {
+        List<InventoryHistory> rows = (List<InventoryHistory>) TransactionSynchronizationManager.getResource(pendingKey);
+        if (rows != null) {
+            return rows;
+        }
+        List<InventoryHistory> created = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(pendingKey, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(pendingKey);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(pendingKey, created);
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                inventoryHistoryRepository.saveAll(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(pendingKey);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * Replay the ledger of a product into its quantity and variant quantities.
+     * Columns without ledger rows are left alone.
+     */
+    public Product rebuildSnapshots(String productId) {
+        return transactionTemplate.execute(status -> {
+            Product product = productRepository.findByIdWithLock(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+            Map<String, Long> totals = new HashMap<>();
+            for (Object[] row : inventoryHistoryRepository.sumChangesByVariant(productId)) {
+                totals.put((String) row[0], ((Number) row[1]).longValue());
+            }
+            if (totals.containsKey(null)) {
+                product.setQuantity(Math.toIntExact(totals.get(null)));
+            }
+            for (ProductVariant variant : product.getVariants()) {
+                Long total = totals.get(variant.getId());
+                if (total != null) {
+                    variant.setVariantQuantity(Math.toIntExact(total));
+                }
+            }
+            return productRepository.save(product);
+        });
+    }
+}
@@ -1,6 +1,7 @@
 package com.shopcuathuy.service;
 
 import com.shopcuathuy.config.MinIOConfig;
+import com.shopcuathuy.util.ImageUrls;
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
 import io.minio.GetObjectArgs;
@@ -78,6 +79,24 @@ public class MinIOService {
         }
     }
 
+    /**
+     * Store {@code size} bytes read from {@code stream} under {@code objectName}.
+     */
+    public void uploadStream(String objectName, InputStream stream, long size, String contentType) throws Exception {
+        try {
+            minioClient.putObject(
+                PutObjectArgs.builder()
+                    .bucket(minIOConfig.getBucketName())
+                    .object(objectName)
+                    .stream(stream, size, -1)
+                    .contentType(contentType)
+                    .build()
+            );
+        } catch (MinioException e) {
+            throw new Exception("Failed to upload file to MinIO: " + e.getMessage(), e);
+        }
+    }
+
     public String uploadImage(MultipartFile file) throws Exception {
         return uploadFile(file, "images");
     }
@@ -92,7 +111,7 @@ public class MinIOService {
     public String getProxyUrl(String objectName) {
         // Return URL that goes through Next.js proxy
         // Format: /api/upload/image/{objectName}
-        return "/api/upload/image/" + objectName;
+        return ImageUrls.proxyUrl(objectName);
     }
 
     public InputStream getFile(String objectName) throws Exception {
@@ -14,6 +14,7 @@ import com.shopcuathuy.repository.UserAddressRepository;
 import com.shopcuathuy.repository.UserRepository;
 import com.shopcuathuy.repository.OrderTimelineRepository;
 import com.shopcuathuy.entity.OrderTimeline;
+import com.shopcuathuy.util.SnowflakeIdGenerator;
 import java.time.LocalDateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,6 +39,7 @@ public class OrderDispatchService {
     private final UserAddressRepository userAddressRepository;
     private final OrderTimelineRepository orderTimelineRepository;
     private final ShippingService shippingService;
+    private final SnowflakeIdGenerator idGenerator;
     private final Random random = new Random();
 
     @Autowired
@@ -49,7 +51,8 @@ public class OrderDispatchService {
             UserRepository userRepository,
             UserAddressRepository userAddressRepository,
             OrderTimelineRepository orderTimelineRepository,
-            ShippingService shippingService) {
+            ShippingService shippingService,
+            SnowflakeIdGenerator idGenerator) {
         this.orderRepository = orderRepository;
         this.shipmentRepository = shipmentRepository;
         this.shippingMethodRepository = shippingMethodRepository;
@@ -58,6 +61,7 @@ public class OrderDispatchService {
         this.userAddressRepository = userAddressRepository;
         this.orderTimelineRepository = orderTimelineRepository;
         this.shippingService = shippingService;
+        this.idGenerator = idGenerator;
     }
 
     /**
@@ -109,7 +113,7 @@ public class OrderDispatchService {
         }
 
         // Tạo tracking number
-        shipment.setTrackingNumber(generateTrackingNumber(order));
+        shipment.setTrackingNumber(idGenerator.nextTrackingNumber());
 
         // Use Order snapshot information (Correct way)
         shipment.setRecipientName(order.getRecipientName());
@@ -197,13 +201,6 @@ public class OrderDispatchService {
                 });
     }
 
-    /**
-     * Tạo tracking number
-     */
-    private String generateTrackingNumber(Order order) {
-        return "TRK" + order.getOrderNumber().substring(3) + System.currentTimeMillis() % 10000;
-    }
-
     private void addTimelineEntry(Order order, String status, String note, String createdBy) {
         OrderTimeline timeline = new OrderTimeline();
         timeline.setId(UUID.randomUUID().toString());
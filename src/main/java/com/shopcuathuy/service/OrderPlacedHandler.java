@@ -0,0 +1,70 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.entity.Order;
+import com.shopcuathuy.entity.OrderItem;
+import com.shopcuathuy.entity.OrderTimeline;
+import com.shopcuathuy.repository.CartItemRepository;
+import com.shopcuathuy.repository.OrderRepository;
+import com.shopcuathuy.repository.OrderTimelineRepository;
+import java.util.Map;
+import java.util.UUID;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bookkeeping after an order is placed: cart cleanup, the first timeline entry,
+ * then dispatch to shipping. All of it commits together with the removal of the
+ * outbox event.
+ */
+@Component
+public class OrderPlacedHandler implements OutboxHandler {
+
+    public static final String EVENT_TYPE = "order.placed";
+
+    private final OrderRepository orderRepository;
+    private final CartItemRepository cartItemRepository;
+    private final OrderTimelineRepository orderTimelineRepository;
+    private final OrderDispatchService orderDispatchService;
+
+    public OrderPlacedHandler(OrderRepository orderRepository,
+                              CartItemRepository cartItemRepository,
+                              OrderTimelineRepository orderTimelineRepository,
+                              OrderDispatchService orderDispatchService) {
+        this.orderRepository = orderRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.orderTimelineRepository = orderTimelineRepository;
+        this.orderDispatchService = orderDispatchService;
+    }
+
+    @Override
+    public String eventType() {
+        return EVENT_TYPE;
+    }
+
+    @Override
+    public void handle(String orderId, Map<String, String> payload) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            return;
+        }
+        String customerId = order.getCustomer().getId();
+
+        for (OrderItem item : order.getOrderItems()) {
+            if (item.getProduct() == null) {
+                continue;
+            }
+            String variantId = item.getVariant() != null ? item.getVariant().getId() : null;
+            cartItemRepository.findByUserIdAndProductIdAndVariantId(customerId, item.getProduct().getId(), variantId)
+                .ifPresent(cartItemRepository::delete);
+        }
+
+        OrderTimeline timeline = new OrderTimeline();
+        timeline.setId(UUID.randomUUID().toString());
+        timeline.setOrder(order);
+        timeline.setStatus("CONFIRMED");
+        timeline.setNote("Đơn hàng được đặt thành công.");
+        timeline.setCreatedBy("customer");
+        orderTimelineRepository.save(timeline);
+
+        orderDispatchService.dispatchOrder(orderId);
+    }
+}
@@ -0,0 +1,45 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.entity.Notification;
+import com.shopcuathuy.entity.Order;
+import com.shopcuathuy.repository.OrderRepository;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tells the customer and the seller about a new order. Kept apart from the
+ * bookkeeping so a failed push does not hold up dispatch.
+ */
+@Component
+public class OrderPlacedNotificationHandler implements OutboxHandler {
+
+    public static final String EVENT_TYPE = "order.placed.notify";
+
+    private final OrderRepository orderRepository;
+    private final NotificationService notificationService;
+
+    public OrderPlacedNotificationHandler(OrderRepository orderRepository, NotificationService notificationService) {
+        this.orderRepository = orderRepository;
+        this.notificationService = notificationService;
+    }
+
+    @Override
+    public String eventType() {
+        return EVENT_TYPE;
+    }
+
+    @Override
+    public void handle(String orderId, Map<String, String> payload) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            return;
+        }
+        notificationService.createAndDispatch(order.getCustomer(), Notification.NotificationType.ORDER_STATUS, "Đặt hàng thành công",
+            "Đơn hàng #" + order.getOrderNumber() + " của bạn đã được tiếp nhận.", "/orders/" + order.getId(), order.getId(), null);
+
+        if (order.getSeller() != null && order.getSeller().getUser() != null) {
+            notificationService.createAndDispatch(order.getSeller().getUser(), Notification.NotificationType.ORDER_NEW, "Đơn hàng mới",
+                "Bạn có đơn hàng mới #" + order.getOrderNumber() + " từ " + order.getCustomer().getFullName(), "/seller/orders/" + order.getId(), order.getId(), null);
+        }
+    }
+}
@@ -5,13 +5,20 @@ import com.shopcuathuy.dto.request.UpdateOrderStatusRequestDTO;
 import com.shopcuathuy.dto.response.OrderPageResponseDTO;
 import com.shopcuathuy.dto.response.OrderResponseDTO;
 import com.shopcuathuy.dto.response.PurchaseStatusResponseDTO;
+import java.util.List;
 import org.springframework.data.domain.Pageable;
 
 public interface OrderService {
     OrderPageResponseDTO getOrders(String userId, String userRole, String status, Pageable pageable);
+    OrderPageResponseDTO getOrdersAfter(String userId, String userRole, String status, String cursor, int size);
     OrderResponseDTO getOrderById(String id, String userId);
     PurchaseStatusResponseDTO checkPurchase(String productId, String userId);
     OrderResponseDTO createOrder(String userId, CreateOrderRequestDTO request);
+    /**
+     * Check out a cart with products of any number of shops: one order per seller,
+     * all placed together or none.
+     */
+    List<OrderResponseDTO> checkout(String userId, CreateOrderRequestDTO request);
     OrderResponseDTO cancelOrder(String id, String userId);
     OrderResponseDTO updateOrderStatus(String id, UpdateOrderStatusRequestDTO request, String userId);
 }
@@ -0,0 +1,15 @@
+package com.shopcuathuy.service;
+
+import java.util.Map;
+
+/**
+ * Carries out one type of outbox event. Runs in a transaction that also deletes the
+ * event, so database work is applied exactly once; a thrown exception rolls it back
+ * and schedules a retry.
+ */
+public interface OutboxHandler {
+
+    String eventType();
+
+    void handle(String aggregateId, Map<String, String> payload);
+}
@@ -0,0 +1,168 @@
+package com.shopcuathuy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopcuathuy.entity.OutboxEvent;
+import com.shopcuathuy.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Transactional outbox. {@link #enqueue} stores a side effect in the caller's
+ * transaction; a poller claims due events and hands them to a bounded worker pool.
+ * A failed event is retried with exponential backoff and marked FAILED after
+ * {@code outbox.max-attempts}. Claims are conditional updates with a lease, so
+ * several instances can poll the same table and a crashed worker's events come back.
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxService.class);
+    private static final long LEASE_MINUTES = 5;
+    private static final long MAX_BACKOFF_MS = 3_600_000;
+    private static final TypeReference<Map<String, String>> PAYLOAD_TYPE = new TypeReference<>() {};
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final Map<String, OutboxHandler> handlers;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor workers;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository,
+                         List<OutboxHandler> handlers,
+                         ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${outbox.workers:4}") int workerCount,
+                         @Value("${outbox.queue-capacity:200}") int queueCapacity,
+                         @Value("${outbox.max-attempts:8}") int maxAttempts,
+                         @Value("${outbox.backoff-ms:1000}") long backoffMs) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.handlers = handlers.stream().collect(Collectors.toMap(OutboxHandler::eventType, Function.identity()));
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "outbox-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Store a side effect in the current transaction; it runs only if that transaction commits.
+     */
+    public void enqueue(String eventType, String aggregateId, Map<String, String> payload) {
+        if (!handlers.containsKey(eventType)) {
+            throw new IllegalStateException("No outbox handler for event type " + eventType);
+        }
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(eventType);
+        event.setAggregateId(aggregateId);
+        event.setNextAttemptAt(LocalDateTime.now());
+        if (payload != null && !payload.isEmpty()) {
+            try {
+                event.setPayload(objectMapper.writeValueAsString(payload));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Outbox payload is not serializable", e);
+            }
+        }
+        outboxEventRepository.save(event);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:500}")
+    public void poll() {
+        // Claim only what the pool can queue, so the executor never has to reject work
+        int free = workers.getQueue().remainingCapacity();
+        if (free == 0) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<String> claimed = transactionTemplate.execute(status -> {
+            outboxEventRepository.releaseExpiredLeases(now);
+            return outboxEventRepository.findDueIds(now, PageRequest.of(0, free)).stream()
+                .filter(id -> outboxEventRepository.claim(id, now.plusMinutes(LEASE_MINUTES)) == 1)
+                .collect(Collectors.toList());
+        });
+        for (String id : claimed) {
+            workers.execute(() -> process(id));
+        }
+    }
+
+    private void process(String id) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.findById(id).ifPresent(event -> {
+                handlers.get(event.getEventType()).handle(event.getAggregateId(), readPayload(event));
+                outboxEventRepository.delete(event);
+            }));
+        } catch (RuntimeException e) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                    outboxEventRepository.findById(id).ifPresent(event -> scheduleRetry(event, e)));
+            } catch (RuntimeException retryFailure) {
+                // The lease expires and the event is picked up again
+                log.error("Could not record failure of outbox event {}: {}", id, retryFailure.getMessage());
+            }
+        }
+    }
+
+    private void scheduleRetry(OutboxEvent event, RuntimeException failure) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLockedUntil(null);
+        event.setLastError(String.valueOf(failure.getMessage()));
+        if (attempts >= maxAttempts) {
+            event.setStatus(OutboxEvent.Status.FAILED);
+            log.error("Outbox event {} ({} for {}) failed {} times, giving up: {}",
+                event.getId(), event.getEventType(), event.getAggregateId(), attempts, failure.getMessage());
+        } else {
+            long delay = Math.min(backoffMs << Math.min(attempts - 1, 20), MAX_BACKOFF_MS);
+            event.setStatus(OutboxEvent.Status.PENDING);
+            event.setNextAttemptAt(LocalDateTime.now().plusNanos(delay * 1_000_000));
+            log.warn("Outbox event {} ({} for {}) failed, retry {} in {} ms: {}",
+                event.getId(), event.getEventType(), event.getAggregateId(), attempts, delay, failure.getMessage());
+        }
+    }
+
+    private Map<String, String> readPayload(OutboxEvent event) {
+        if (event.getPayload() == null || event.getPayload().isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(event.getPayload(), PAYLOAD_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable outbox payload", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            // Unfinished events keep their lease and are retried after the next start
+            workers.shutdownNow();
+        }
+    }
+}
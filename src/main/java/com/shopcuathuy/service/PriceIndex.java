@@ -0,0 +1,270 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.entity.Product;
+import com.shopcuathuy.entity.ProductVariant;
+import com.shopcuathuy.entity.Promotion;
+import com.shopcuathuy.event.ProductChangedEvent;
+import com.shopcuathuy.event.PromotionChangedEvent;
+import com.shopcuathuy.repository.ProductRepository;
+import com.shopcuathuy.repository.ProductVariantRepository;
+import com.shopcuathuy.repository.PromotionItemRepository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory prices of every product and variant: base prices, the flash-sale window and
+ * the rules of active promotions. Each rule keeps its start and end, so a quote flips
+ * to or from a promotion exactly at its boundaries without a rebuild. Orders, the
+ * checkout preview and voucher validation price lines from here without a query per item.
+ *
+ * A product's entry is reloaded when it changes ({@link ProductChangedEvent}) or one of its
+ * promotions does ({@link PromotionChangedEvent}); a periodic rebuild catches writes that
+ * publish neither (e.g. a variant price edited on its own) and drops ended rules.
+ */
+@Service
+public class PriceIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceIndex.class);
+
+    public enum Source { FLASH_SALE, PROMOTION, BASE }
+
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final PromotionItemRepository promotionItemRepository;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public PriceIndex(ProductRepository productRepository,
+                      ProductVariantRepository productVariantRepository,
+                      PromotionItemRepository promotionItemRepository) {
+        this.productRepository = productRepository;
+        this.productVariantRepository = productVariantRepository;
+        this.promotionItemRepository = promotionItemRepository;
+    }
+
+    /**
+     * Current price of a product or variant, or null if the product is unknown. A running
+     * flash sale wins when {@code flashSale} is set; otherwise the lowest promotion price;
+     * otherwise the base price.
+     */
+    public Quote quote(String productId, String variantId, LocalDateTime now, boolean flashSale) {
+        Entry entry = entries.get(productId);
+        if (entry == null) {
+            return null;
+        }
+        if (flashSale && entry.flashSalePrice != null && entry.flashSaleStart != null && entry.flashSaleEnd != null
+                && now.isAfter(entry.flashSaleStart) && now.isBefore(entry.flashSaleEnd)) {
+            return new Quote(entry.flashSalePrice, Source.FLASH_SALE);
+        }
+        BigDecimal base = variantId != null && entry.variantPrices.get(variantId) != null
+            ? entry.variantPrices.get(variantId)
+            : entry.price;
+        return applyPromotions(entry, variantId, base, now);
+    }
+
+    /**
+     * Price of an order line from the loaded rows: their base and flash-sale prices are
+     * authoritative, promotions come from the index. {@code flashSale} means the units
+     * were claimed at the flash-sale price.
+     */
+    public Quote quote(Product product, ProductVariant variant, LocalDateTime now, boolean flashSale) {
+        if (flashSale) {
+            return new Quote(product.getFlashSalePrice(), Source.FLASH_SALE);
+        }
+        BigDecimal base = variant != null && variant.getVariantPrice() != null
+            ? variant.getVariantPrice()
+            : product.getPrice();
+        Entry entry = entries.get(product.getId());
+        return entry != null
+            ? applyPromotions(entry, variant != null ? variant.getId() : null, base, now)
+            : new Quote(base, Source.BASE);
+    }
+
+    private static Quote applyPromotions(Entry entry, String variantId, BigDecimal base, LocalDateTime now) {
+        if (base == null) {
+            return new Quote(null, Source.BASE);
+        }
+        BigDecimal best = null;
+        for (Rule rule : entry.rules) {
+            // A rule without a variant covers the whole product
+            if ((rule.variantId != null && !rule.variantId.equals(variantId))
+                    || rule.startDate.isAfter(now) || rule.endDate.isBefore(now)) {
+                continue;
+            }
+            BigDecimal price = base;
+            if (rule.type == Promotion.PromotionType.PERCENTAGE) {
+                price = base.multiply(BigDecimal.ONE.subtract(rule.discountValue.divide(BigDecimal.valueOf(100))));
+            } else if (rule.type == Promotion.PromotionType.FIXED_AMOUNT) {
+                price = base.subtract(rule.discountValue);
+            } else {
+                continue;
+            }
+            if (price.compareTo(BigDecimal.ZERO) < 0) {
+                price = BigDecimal.ZERO;
+            }
+            if (best == null || price.compareTo(best) < 0) {
+                best = price;
+            }
+        }
+        return best != null ? new Quote(best, Source.PROMOTION) : new Quote(base, Source.BASE);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${pricing.index.rebuild-interval-ms:300000}",
+               fixedDelayString = "${pricing.index.rebuild-interval-ms:300000}")
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<String, Entry> rebuilt = load(productRepository.findPriceRows(),
+            productVariantRepository.findPriceRows(),
+            promotionItemRepository.findPriceRules(LocalDateTime.now()));
+        entries.keySet().retainAll(rebuilt.keySet());
+        entries.putAll(rebuilt);
+        ready = true;
+        log.debug("Price index rebuilt: {} products in {} ms", rebuilt.size(), System.currentTimeMillis() - start);
+    }
+
+    // No transaction of its own: the read reuses the committed transaction's connection.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // Stock moves on every checkout and cancel and never changes a price; skipping it keeps
+        // checkouts off the monitor that serializes refreshes with rebuilds
+        if (!ready || event.isStockOnly()) {
+            return;
+        }
+        if (event.isRemoved()) {
+            entries.remove(event.getProductId());
+        } else {
+            refresh(Set.of(event.getProductId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPromotionChanged(PromotionChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+        // Products that had the promotion and products that have it now
+        Set<String> productIds = new HashSet<>(promotionItemRepository.findProductIdsByPromotionId(event.getPromotionId()));
+        entries.forEach((productId, entry) -> {
+            if (entry.rules.stream().anyMatch(rule -> rule.promotionId.equals(event.getPromotionId()))) {
+                productIds.add(productId);
+            }
+        });
+        refresh(productIds);
+    }
+
+    private synchronized void refresh(Collection<String> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        Map<String, Entry> loaded = load(productRepository.findPriceRowsByIdIn(productIds),
+            productVariantRepository.findPriceRowsByProductIdIn(productIds),
+            promotionItemRepository.findPriceRulesByProductIdIn(LocalDateTime.now(), productIds));
+        for (String productId : productIds) {
+            Entry entry = loaded.get(productId);
+            if (entry != null) {
+                entries.put(productId, entry);
+            } else {
+                entries.remove(productId);
+            }
+        }
+    }
+
+    private static Map<String, Entry> load(List<Object[]> productRows, List<Object[]> variantRows, List<Object[]> ruleRows) {
+        Map<String, Map<String, BigDecimal>> variantPrices = new HashMap<>();
+        for (Object[] row : variantRows) {
+            if (row[2] != null) {
+                variantPrices.computeIfAbsent((String) row[0], id -> new HashMap<>()).put((String) row[1], (BigDecimal) row[2]);
+            }
+        }
+        Map<String, List<Rule>> rules = new HashMap<>();
+        for (Object[] row : ruleRows) {
+            rules.computeIfAbsent((String) row[0], id -> new ArrayList<>()).add(new Rule((String) row[2], (String) row[1],
+                (Promotion.PromotionType) row[3], (BigDecimal) row[4], (LocalDateTime) row[5], (LocalDateTime) row[6]));
+        }
+        Map<String, Entry> loaded = new HashMap<>();
+        for (Object[] row : productRows) {
+            String productId = (String) row[0];
+            boolean flashSaleEnabled = Boolean.TRUE.equals(row[2]);
+            loaded.put(productId, new Entry((BigDecimal) row[1],
+                Map.copyOf(variantPrices.getOrDefault(productId, Map.of())),
+                flashSaleEnabled ? (BigDecimal) row[3] : null,
+                (LocalDateTime) row[4], (LocalDateTime) row[5],
+                List.copyOf(rules.getOrDefault(productId, List.of()))));
+        }
+        return loaded;
+    }
+
+    public static final class Quote {
+        private final BigDecimal price;
+        private final Source source;
+
+        private Quote(BigDecimal price, Source source) {
+            this.price = price;
+            this.source = source;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        public Source getSource() {
+            return source;
+        }
+    }
+
+    private static final class Entry {
+        private final BigDecimal price;
+        private final Map<String, BigDecimal> variantPrices;
+        private final BigDecimal flashSalePrice;
+        private final LocalDateTime flashSaleStart;
+        private final LocalDateTime flashSaleEnd;
+        private final List<Rule> rules;
+
+        private Entry(BigDecimal price, Map<String, BigDecimal> variantPrices, BigDecimal flashSalePrice,
+                      LocalDateTime flashSaleStart, LocalDateTime flashSaleEnd, List<Rule> rules) {
+            this.price = price;
+            this.variantPrices = variantPrices;
+            this.flashSalePrice = flashSalePrice;
+            this.flashSaleStart = flashSaleStart;
+            this.flashSaleEnd = flashSaleEnd;
+            this.rules = rules;
+        }
+    }
+
+    private static final class Rule {
+        private final String promotionId;
+        private final String variantId;
+        private final Promotion.PromotionType type;
+        private final BigDecimal discountValue;
+        private final LocalDateTime startDate;
+        private final LocalDateTime endDate;
+
+        private Rule(String promotionId, String variantId, Promotion.PromotionType type, BigDecimal discountValue,
+                     LocalDateTime startDate, LocalDateTime endDate) {
+            this.promotionId = promotionId;
+            this.variantId = variantId;
+            this.type = type;
+            this.discountValue = discountValue;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+    }
+}
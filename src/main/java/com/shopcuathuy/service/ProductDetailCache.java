@@ -0,0 +1,65 @@
+package com.shopcuathuy.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shopcuathuy.dto.response.ProductResponseDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded cache of product detail DTOs, keyed by product id. Size and TTL are
+ * configurable; hit/miss/eviction counts are exported as {@code cache.*} metrics
+ * under the name {@code products:detail}.
+ *
+ * Writers must call {@link #invalidate} for every product they touch. Inside a
+ * transaction the entry is dropped again after commit, so a reader that loaded
+ * the old row mid-transaction cannot leave a stale copy behind.
+ */
+@Service
+public class ProductDetailCache {
+
+    public static final String NAME = "products:detail";
+
+    private final Cache<String, ProductResponseDTO> cache;
+
+    public ProductDetailCache(MeterRegistry meterRegistry,
+                              @Value("${cache.product-detail.max-size:10000}") long maxSize,
+                              @Value("${cache.product-detail.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+    }
+
+    public ProductResponseDTO get(String productId, Function<String, ProductResponseDTO> loader) {
+        return cache.get(productId, loader);
+    }
+
+    public void invalidate(String productId) {
+        if (productId == null) {
+            return;
+        }
+        cache.invalidate(productId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(productId);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll(Collection<String> productIds) {
+        productIds.forEach(this::invalidate);
+    }
+}
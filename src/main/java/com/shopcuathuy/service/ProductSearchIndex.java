@@ -0,0 +1,494 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.dto.response.FacetBucketDTO;
+import com.shopcuathuy.dto.response.ProductFacetsDTO;
+import com.shopcuathuy.entity.Product;
+import com.shopcuathuy.event.ProductChangedEvent;
+import com.shopcuathuy.repository.ProductRepository;
+import com.shopcuathuy.util.VietnameseTextNormalizer;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory inverted index over active products, ranked with BM25.
+ * Built at startup and kept current from {@link ProductChangedEvent}s;
+ * callers get back ranked product ids and hydrate only the page they need.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_WEIGHT = 3;
+    private static final int KEYWORD_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+
+    private final ProductRepository productRepository;
+    private final double[] priceBucketBounds;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Map<String, Integer>> postings = new TreeMap<>();
+    private final Map<String, IndexedProduct> documents = new HashMap<>();
+    // Categories get dense ordinals so facet counting can use plain int arrays
+    private final Map<String, Integer> categoryOrdinals = new HashMap<>();
+    private final List<String> categoryIds = new ArrayList<>();
+    private final List<String> categoryNames = new ArrayList<>();
+    private long totalLength;
+    private volatile boolean ready;
+
+    public ProductSearchIndex(ProductRepository productRepository,
+                              @Value("${search.facets.price-buckets:100000,200000,500000,1000000,2000000,5000000}")
+                              double[] priceBucketBounds) {
+        this.productRepository = productRepository;
+        this.priceBucketBounds = priceBucketBounds.clone();
+        Arrays.sort(this.priceBucketBounds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<Product> products = productRepository.findByStatusWithImages(Product.ProductStatus.ACTIVE);
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            categoryOrdinals.clear();
+            categoryIds.clear();
+            categoryNames.clear();
+            totalLength = 0;
+            for (Product product : products) {
+                addDocument(product);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product search index built with {} products in {} ms",
+            products.size(), System.currentTimeMillis() - start);
+    }
+
+    // Runs before ProductCacheEvictionListener so a refilled search cache sees the new index.
+    // No transaction of its own: the read reuses the committed transaction's connection.
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // Stock is not indexed
+        if (!ready || event.isStockOnly()) {
+            return;
+        }
+        if (event.isRemoved()) {
+            remove(event.getProductId());
+            return;
+        }
+        productRepository.findByIdWithImages(event.getProductId())
+            .ifPresentOrElse(this::index, () -> remove(event.getProductId()));
+    }
+
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            if (product.getStatus() == Product.ProductStatus.ACTIVE) {
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Runs a keyword query with the same filters as the DB search.
+     * All query terms must match; the last one is also matched as a prefix
+     * so partially typed words still hit. {@code sortBy = "relevance"} keeps
+     * BM25 order, other supported fields sort with relevance as tiebreaker.
+     * With {@code withFacets}, the facet counts are taken in the same pass
+     * over the matches.
+     */
+    public SearchResult search(String query, String categoryId, Double minPrice, Double maxPrice,
+                               Double minRating, String sortBy, String direction, int page, int size,
+                               boolean withFacets) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(VietnameseTextNormalizer.tokenize(query)));
+        List<ScoredProduct> hits = new ArrayList<>();
+        FacetCounter facetCounter = withFacets ? new FacetCounter(categoryId, minPrice, maxPrice, minRating) : null;
+        ProductFacetsDTO facets = null;
+        lock.readLock().lock();
+        try {
+            if (!terms.isEmpty()) {
+                for (Map.Entry<String, Double> entry : match(terms).entrySet()) {
+                    IndexedProduct doc = documents.get(entry.getKey());
+                    if (facetCounter != null) {
+                        facetCounter.add(doc);
+                    }
+                    if (doc.matches(categoryId, minPrice, maxPrice, minRating)) {
+                        hits.add(new ScoredProduct(doc, entry.getValue()));
+                    }
+                }
+            }
+            if (facetCounter != null) {
+                facets = facetCounter.toDTO();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        hits.sort(comparator(sortBy, direction));
+
+        int from = Math.min(page * size, hits.size());
+        int to = Math.min(from + size, hits.size());
+        List<String> ids = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            ids.add(hits.get(i).doc.id);
+        }
+        return new SearchResult(ids, hits.size(), facets);
+    }
+
+    /**
+     * Facet histograms over all products for the given filters, for listings
+     * without a keyword. Each facet skips its own filter.
+     */
+    public ProductFacetsDTO facets(String categoryId, Double minPrice, Double maxPrice, Double minRating) {
+        FacetCounter facetCounter = new FacetCounter(categoryId, minPrice, maxPrice, minRating);
+        lock.readLock().lock();
+        try {
+            for (IndexedProduct doc : documents.values()) {
+                facetCounter.add(doc);
+            }
+            return facetCounter.toDTO();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int priceBucket(double price) {
+        int position = Arrays.binarySearch(priceBucketBounds, price);
+        // Bucket i covers [bound[i-1], bound[i]); an exact bound starts the next bucket
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    /**
+     * Scores of the documents matching every term (caller holds the read lock)
+     */
+    private Map<String, Double> match(List<String> terms) {
+        Map<String, Double> scores = null;
+        for (int i = 0; i < terms.size(); i++) {
+            Map<String, Double> termScores = scoreTerm(terms.get(i), i == terms.size() - 1);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<String, Double> merged = new HashMap<>();
+                for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                    Double other = termScores.get(entry.getKey());
+                    if (other != null) {
+                        merged.put(entry.getKey(), entry.getValue() + other);
+                    }
+                }
+                scores = merged;
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        return scores != null ? scores : Collections.emptyMap();
+    }
+
+    private Map<String, Double> scoreTerm(String term, boolean allowPrefix) {
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Map<String, Integer>> matching = new HashMap<>();
+        Map<String, Integer> exact = postings.get(term);
+        if (exact != null) {
+            matching.put(term, exact);
+        }
+        if (allowPrefix) {
+            // Keep the expansions found in the most documents, not the first ones alphabetically,
+            // so a short prefix still reaches common words late in the alphabet
+            PriorityQueue<Map.Entry<String, Map<String, Integer>>> expansions = new PriorityQueue<>(
+                MAX_PREFIX_EXPANSIONS + 1, Comparator.comparingInt(entry -> entry.getValue().size()));
+            for (Map.Entry<String, Map<String, Integer>> entry
+                    : postings.subMap(term, false, term + Character.MAX_VALUE, false).entrySet()) {
+                expansions.add(entry);
+                if (expansions.size() > MAX_PREFIX_EXPANSIONS) {
+                    expansions.poll();
+                }
+            }
+            for (Map.Entry<String, Map<String, Integer>> entry : expansions) {
+                matching.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        double avgLength = documents.isEmpty() ? 1.0 : (double) totalLength / documents.size();
+        for (Map<String, Integer> posting : matching.values()) {
+            double idf = Math.log(1 + (documents.size() - posting.size() + 0.5) / (posting.size() + 0.5));
+            for (Map.Entry<String, Integer> entry : posting.entrySet()) {
+                IndexedProduct doc = documents.get(entry.getKey());
+                double tf = entry.getValue();
+                double score = idf * (tf * (K1 + 1)) / (tf + K1 * (1 - B + B * doc.length / avgLength));
+                // A doc matching several expansions of the prefix keeps its best one
+                scores.merge(doc.id, score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private Comparator<ScoredProduct> comparator(String sortBy, String direction) {
+        Comparator<ScoredProduct> byScore = Comparator.comparingDouble((ScoredProduct hit) -> hit.score).reversed();
+        Comparator<ScoredProduct> byField;
+        if ("createdAt".equals(sortBy)) {
+            byField = Comparator.comparingLong(hit -> hit.doc.createdAt);
+        } else if ("price".equals(sortBy)) {
+            byField = Comparator.comparingDouble(hit -> hit.doc.price);
+        } else if ("rating".equals(sortBy)) {
+            byField = Comparator.comparingDouble(hit -> hit.doc.rating);
+        } else if ("totalSold".equals(sortBy)) {
+            byField = Comparator.comparingInt(hit -> hit.doc.totalSold);
+        } else if ("name".equals(sortBy)) {
+            byField = Comparator.comparing(hit -> hit.doc.name);
+        } else {
+            return byScore;
+        }
+        if (!"ASC".equalsIgnoreCase(direction)) {
+            byField = byField.reversed();
+        }
+        return byField.thenComparing(byScore);
+    }
+
+    private void addDocument(Product product) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        addField(termFrequencies, product.getName(), NAME_WEIGHT);
+        addField(termFrequencies, product.getSku(), KEYWORD_WEIGHT);
+        addField(termFrequencies, product.getDescription(), DESCRIPTION_WEIGHT);
+        String categoryId = null;
+        int categoryOrdinal = -1;
+        try {
+            if (product.getCategory() != null) {
+                categoryId = product.getCategory().getId();
+                categoryOrdinal = categoryOrdinal(categoryId, product.getCategory().getName());
+                addField(termFrequencies, product.getCategory().getName(), KEYWORD_WEIGHT);
+            }
+        } catch (jakarta.persistence.EntityNotFoundException e) {
+            log.warn("Product {} has invalid category reference, indexing without category", product.getId());
+        }
+        if (product.getSeller() != null) {
+            addField(termFrequencies, product.getSeller().getShopName(), KEYWORD_WEIGHT);
+        }
+
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(product.getId(), entry.getValue());
+            length += entry.getValue();
+        }
+
+        IndexedProduct doc = new IndexedProduct(
+            product.getId(),
+            categoryId,
+            categoryOrdinal,
+            product.getName() != null ? product.getName() : "",
+            product.getPrice() != null ? product.getPrice().doubleValue() : 0,
+            product.getRating() != null ? product.getRating().doubleValue() : 0,
+            product.getTotalSold() != null ? product.getTotalSold() : 0,
+            product.getCreatedAt() != null
+                ? product.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0,
+            length,
+            termFrequencies.keySet().toArray(new String[0])
+        );
+        documents.put(doc.id, doc);
+        totalLength += length;
+    }
+
+    private int categoryOrdinal(String categoryId, String categoryName) {
+        Integer ordinal = categoryOrdinals.get(categoryId);
+        if (ordinal == null) {
+            ordinal = categoryIds.size();
+            categoryOrdinals.put(categoryId, ordinal);
+            categoryIds.add(categoryId);
+            categoryNames.add(categoryName);
+        } else {
+            categoryNames.set(ordinal, categoryName);
+        }
+        return ordinal;
+    }
+
+    private void removeDocument(String productId) {
+        IndexedProduct doc = documents.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        for (String term : doc.terms) {
+            Map<String, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= doc.length;
+    }
+
+    private static void addField(Map<String, Integer> termFrequencies, String text, int weight) {
+        for (String token : VietnameseTextNormalizer.tokenize(text)) {
+            termFrequencies.merge(token, weight, Integer::sum);
+        }
+    }
+
+    public static class SearchResult {
+        public final List<String> productIds;
+        public final int totalHits;
+        public final ProductFacetsDTO facets;
+
+        public SearchResult(List<String> productIds, int totalHits, ProductFacetsDTO facets) {
+            this.productIds = productIds;
+            this.totalHits = totalHits;
+            this.facets = facets;
+        }
+    }
+
+    /**
+     * Facet counts over the products it is given (caller holds the read lock).
+     * Each facet skips its own filter.
+     */
+    private class FacetCounter {
+        final String categoryId;
+        final Double minPrice;
+        final Double maxPrice;
+        final Double minRating;
+        final int[] categoryCounts = new int[categoryIds.size()];
+        final int[] priceCounts = new int[priceBucketBounds.length + 1];
+        final int[] ratingCounts = new int[6];
+
+        FacetCounter(String categoryId, Double minPrice, Double maxPrice, Double minRating) {
+            this.categoryId = categoryId;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+            this.minRating = minRating;
+        }
+
+        void add(IndexedProduct doc) {
+            boolean categoryOk = categoryId == null || categoryId.equals(doc.categoryId);
+            boolean priceOk = (minPrice == null || doc.price >= minPrice) && (maxPrice == null || doc.price <= maxPrice);
+            boolean ratingOk = minRating == null || doc.rating >= minRating;
+            if (priceOk && ratingOk && doc.categoryOrdinal >= 0) {
+                categoryCounts[doc.categoryOrdinal]++;
+            }
+            if (categoryOk && ratingOk) {
+                priceCounts[priceBucket(doc.price)]++;
+            }
+            if (categoryOk && priceOk) {
+                ratingCounts[Math.max(0, Math.min(5, (int) Math.floor(doc.rating)))]++;
+            }
+        }
+
+        ProductFacetsDTO toDTO() {
+            ProductFacetsDTO facets = new ProductFacetsDTO();
+            facets.categories = new ArrayList<>();
+            for (int ordinal = 0; ordinal < categoryCounts.length; ordinal++) {
+                if (categoryCounts[ordinal] > 0) {
+                    facets.categories.add(new FacetBucketDTO(
+                        categoryIds.get(ordinal), categoryNames.get(ordinal), null, null, categoryCounts[ordinal]));
+                }
+            }
+            facets.categories.sort(Comparator.comparingInt((FacetBucketDTO bucket) -> bucket.count).reversed());
+
+            facets.priceRanges = new ArrayList<>();
+            for (int bucket = 0; bucket < priceCounts.length; bucket++) {
+                Double from = bucket == 0 ? null : priceBucketBounds[bucket - 1];
+                Double to = bucket == priceBucketBounds.length ? null : priceBucketBounds[bucket];
+                String key = (from != null ? String.valueOf(from.longValue()) : "*") + "-"
+                    + (to != null ? String.valueOf(to.longValue()) : "*");
+                facets.priceRanges.add(new FacetBucketDTO(key, key, from, to, priceCounts[bucket]));
+            }
+
+            // Rating buckets are cumulative ("4 stars & up") to match the minRating filter
+            facets.ratings = new ArrayList<>();
+            int atLeast = ratingCounts[5];
+            for (int stars = 4; stars >= 1; stars--) {
+                atLeast += ratingCounts[stars];
+                facets.ratings.add(new FacetBucketDTO(
+                    String.valueOf(stars), stars + "+", (double) stars, null, atLeast));
+            }
+            return facets;
+        }
+    }
+
+    private static class IndexedProduct {
+        final String id;
+        final String categoryId;
+        final int categoryOrdinal;
+        final String name;
+        final double price;
+        final double rating;
+        final int totalSold;
+        final long createdAt;
+        final int length;
+        final String[] terms;
+
+        IndexedProduct(String id, String categoryId, int categoryOrdinal, String name, double price, double rating,
+                       int totalSold, long createdAt, int length, String[] terms) {
+            this.id = id;
+            this.categoryId = categoryId;
+            this.categoryOrdinal = categoryOrdinal;
+            this.name = name;
+            this.price = price;
+            this.rating = rating;
+            this.totalSold = totalSold;
+            this.createdAt = createdAt;
+            this.length = length;
+            this.terms = terms;
+        }
+
+        boolean matches(String categoryId, Double minPrice, Double maxPrice, Double minRating) {
+            if (categoryId != null && !categoryId.equals(this.categoryId)) return false;
+            if (minPrice != null && price < minPrice) return false;
+            if (maxPrice != null && price > maxPrice) return false;
+            if (minRating != null && rating < minRating) return false;
+            return true;
+        }
+    }
+
+    private static class ScoredProduct {
+        final IndexedProduct doc;
+        final double score;
+
+        ScoredProduct(IndexedProduct doc, double score) {
+            this.doc = doc;
+            this.score = score;
+        }
+    }
+}
@@ -11,7 +11,8 @@ public interface ProductService {
     ProductResponseDTO getProductById(String id);
     ProductPageResponseDTO searchProducts(String keyword, int page, int size, 
                                           String categoryId, Double minPrice, Double maxPrice, 
-                                          Double minRating, String sortBy, String direction);
+                                          Double minRating, String sortBy, String direction,
+                                          boolean includeFacets);
     ProductPageResponseDTO getProductsByCategory(String categoryId, int page, int size, String sortBy, String direction);
     ProductPageResponseDTO getProductsByCategorySlug(String slug, int page, int size, 
                                                      Double minPrice, Double maxPrice, 
@@ -20,6 +21,7 @@ public interface ProductService {
     ProductPageResponseDTO getFeaturedProducts(int page, int size);
     ProductPageResponseDTO getFlashSaleProducts(int page, int size);
     ProductPageResponseDTO getAllProducts(int page, int size, String sortBy, String direction);
+    ProductPageResponseDTO getAllProductsAfter(String cursor, int size);
     ProductResponseDTO createProduct(String sellerId, CreateProductRequestDTO request);
     ProductResponseDTO updateProduct(String id, UpdateProductRequestDTO request, String userId);
     void deleteProduct(String id, String userId);
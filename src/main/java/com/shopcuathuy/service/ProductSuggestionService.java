@@ -0,0 +1,256 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.dto.response.SuggestionResponseDTO;
+import com.shopcuathuy.entity.Category;
+import com.shopcuathuy.entity.Product;
+import com.shopcuathuy.event.ProductChangedEvent;
+import com.shopcuathuy.repository.CategoryRepository;
+import com.shopcuathuy.repository.ProductRepository;
+import com.shopcuathuy.util.SuggestionTrie;
+import com.shopcuathuy.util.VietnameseTextNormalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Search-box autocomplete over product names, category names and shop names.
+ * Entries are weighted by sales: a product by its own totalSold, a category or shop
+ * by the sum over its active products. Built at startup, updated per product
+ * from {@link ProductChangedEvent}s, and rebuilt in full every
+ * {@code search.suggest.rebuild-interval-ms} so category changes show up.
+ */
+@Service
+public class ProductSuggestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSuggestionService.class);
+
+    public static final String TYPE_PRODUCT = "PRODUCT";
+    public static final String TYPE_CATEGORY = "CATEGORY";
+    public static final String TYPE_SHOP = "SHOP";
+
+    // Only the first few word positions are indexed; long names rarely get typed from the tail
+    private static final int MAX_SUFFIXES = 6;
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final int topK;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SuggestionTrie trie;
+    private final Map<String, ProductRef> products = new HashMap<>();
+    private final Map<String, Category> categories = new HashMap<>();
+    private final Map<String, String> shopNames = new HashMap<>();
+    private final Map<String, Long> categoryWeights = new HashMap<>();
+    private final Map<String, Long> shopWeights = new HashMap<>();
+    private final Map<String, Integer> shopProductCounts = new HashMap<>();
+    private volatile boolean ready;
+
+    public ProductSuggestionService(ProductRepository productRepository,
+                                    CategoryRepository categoryRepository,
+                                    @Value("${search.suggest.top-k:10}") int topK) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.topK = topK;
+        this.trie = new SuggestionTrie(topK);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${search.suggest.rebuild-interval-ms:600000}",
+               fixedDelayString = "${search.suggest.rebuild-interval-ms:600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<Category> activeCategories = categoryRepository.findByIsActiveTrue();
+        List<Object[]> rows = productRepository.findSuggestionRowsByStatus(Product.ProductStatus.ACTIVE);
+        lock.writeLock().lock();
+        try {
+            trie.clear();
+            products.clear();
+            categories.clear();
+            shopNames.clear();
+            categoryWeights.clear();
+            shopWeights.clear();
+            shopProductCounts.clear();
+            for (Category category : activeCategories) {
+                categories.put(category.getId(), category);
+            }
+            for (Object[] row : rows) {
+                String sellerId = (String) row[4];
+                if (sellerId != null && row[5] != null) {
+                    shopNames.put(sellerId, (String) row[5]);
+                }
+                ProductRef ref = new ProductRef((String) row[0], (String) row[1],
+                    row[2] != null ? ((Number) row[2]).longValue() : 0L, (String) row[3], sellerId);
+                products.put(ref.id, ref);
+                categoryWeights.merge(ref.categoryId, ref.totalSold, Long::sum);
+                shopWeights.merge(ref.sellerId, ref.totalSold, Long::sum);
+                shopProductCounts.merge(ref.sellerId, 1, Integer::sum);
+                putProduct(ref);
+            }
+            categories.keySet().forEach(this::putCategory);
+            shopNames.keySet().forEach(this::putShop);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Suggestion trie built with {} entries in {} ms",
+            trie.size(), System.currentTimeMillis() - start);
+    }
+
+    // No transaction of its own: the read reuses the committed transaction's connection
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // Stock does not affect suggestions
+        if (!ready || event.isStockOnly()) {
+            return;
+        }
+        Product product = event.isRemoved() ? null
+            : productRepository.findByIdWithImages(event.getProductId())
+                .filter(p -> p.getStatus() == Product.ProductStatus.ACTIVE)
+                .orElse(null);
+        lock.writeLock().lock();
+        try {
+            ProductRef previous = products.remove(event.getProductId());
+            if (previous != null) {
+                trie.remove(entryKey(TYPE_PRODUCT, previous.id));
+                categoryWeights.merge(previous.categoryId, -previous.totalSold, Long::sum);
+                shopWeights.merge(previous.sellerId, -previous.totalSold, Long::sum);
+                shopProductCounts.merge(previous.sellerId, -1, Integer::sum);
+            }
+            ProductRef current = null;
+            if (product != null) {
+                String categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+                String sellerId = product.getSeller() != null ? product.getSeller().getId() : null;
+                if (sellerId != null && product.getSeller().getShopName() != null) {
+                    shopNames.put(sellerId, product.getSeller().getShopName());
+                }
+                current = new ProductRef(product.getId(), product.getName(),
+                    product.getTotalSold() != null ? product.getTotalSold() : 0L, categoryId, sellerId);
+                products.put(current.id, current);
+                categoryWeights.merge(current.categoryId, current.totalSold, Long::sum);
+                shopWeights.merge(current.sellerId, current.totalSold, Long::sum);
+                shopProductCounts.merge(current.sellerId, 1, Integer::sum);
+                putProduct(current);
+            }
+            refreshGroups(previous, current);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Top completions for a partially typed query, best first. Matches from the start
+     * of any word, ignoring case and Vietnamese diacritics.
+     */
+    public List<SuggestionResponseDTO> suggest(String query, int limit) {
+        String prefix = String.join(" ", VietnameseTextNormalizer.tokenize(query));
+        if (prefix.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<SuggestionTrie.Entry> entries;
+        lock.readLock().lock();
+        try {
+            entries = trie.complete(prefix, Math.max(1, Math.min(limit, topK)));
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<SuggestionResponseDTO> result = new ArrayList<>(entries.size());
+        for (SuggestionTrie.Entry entry : entries) {
+            result.add(new SuggestionResponseDTO(entry.getText(), entry.getType(), entry.getRefId()));
+        }
+        return result;
+    }
+
+    private void refreshGroups(ProductRef previous, ProductRef current) {
+        if (previous != null) {
+            putCategory(previous.categoryId);
+            putShop(previous.sellerId);
+        }
+        if (current != null) {
+            putCategory(current.categoryId);
+            putShop(current.sellerId);
+        }
+    }
+
+    private void putProduct(ProductRef ref) {
+        if (ref.name == null) {
+            return;
+        }
+        // +1 so new products with no sales still rank among themselves
+        trie.put(new SuggestionTrie.Entry(entryKey(TYPE_PRODUCT, ref.id), ref.name, TYPE_PRODUCT,
+            ref.id, ref.totalSold + 1), keysFor(ref.name));
+    }
+
+    private void putCategory(String categoryId) {
+        Category category = categoryId != null ? categories.get(categoryId) : null;
+        if (category == null || category.getName() == null) {
+            return;
+        }
+        long weight = categoryWeights.getOrDefault(categoryId, 0L) + 1;
+        trie.put(new SuggestionTrie.Entry(entryKey(TYPE_CATEGORY, categoryId), category.getName(),
+            TYPE_CATEGORY, category.getSlug(), weight), keysFor(category.getName()));
+    }
+
+    private void putShop(String sellerId) {
+        String shopName = sellerId != null ? shopNames.get(sellerId) : null;
+        if (shopName == null) {
+            return;
+        }
+        // A shop with no active products left drops out of the suggestions
+        if (shopProductCounts.getOrDefault(sellerId, 0) <= 0) {
+            trie.remove(entryKey(TYPE_SHOP, sellerId));
+            shopWeights.remove(sellerId);
+            shopProductCounts.remove(sellerId);
+            return;
+        }
+        long weight = shopWeights.getOrDefault(sellerId, 0L) + 1;
+        trie.put(new SuggestionTrie.Entry(entryKey(TYPE_SHOP, sellerId), shopName, TYPE_SHOP,
+            sellerId, weight), keysFor(shopName));
+    }
+
+    /**
+     * One trie key per word start: "Điện thoại Samsung" is reachable from
+     * "dien", "thoai" and "samsung"
+     */
+    private static String[] keysFor(String text) {
+        List<String> tokens = VietnameseTextNormalizer.tokenize(text);
+        int count = Math.min(tokens.size(), MAX_SUFFIXES);
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = String.join(" ", tokens.subList(i, tokens.size()));
+        }
+        return keys;
+    }
+
+    private static String entryKey(String type, String id) {
+        return type + ":" + id;
+    }
+
+    private static class ProductRef {
+        final String id;
+        final String name;
+        final long totalSold;
+        final String categoryId;
+        final String sellerId;
+
+        ProductRef(String id, String name, long totalSold, String categoryId, String sellerId) {
+            this.id = id;
+            this.name = name;
+            this.totalSold = totalSold;
+            this.categoryId = categoryId;
+            this.sellerId = sellerId;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.entity.ProductDailyView;
+import com.shopcuathuy.repository.ProductDailyViewRepository;
+import com.shopcuathuy.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Buffers product page views in memory and writes them out in batches, so a
+ * product-detail read never locks or updates the product row. Every flush adds the
+ * buffered counts to {@code products.total_views} and to today's row in
+ * {@code product_daily_views}.
+ */
+@Service
+public class ProductViewCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductViewCounter.class);
+
+    private final ProductRepository productRepository;
+    private final ProductDailyViewRepository productDailyViewRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentHashMap<String, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public ProductViewCounter(ProductRepository productRepository,
+                              ProductDailyViewRepository productDailyViewRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.productDailyViewRepository = productDailyViewRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void record(String productId) {
+        pending.computeIfAbsent(productId, id -> new LongAdder()).increment();
+    }
+
+    @Scheduled(fixedDelayString = "${product.views.flush-interval-ms:30000}")
+    public void flush() {
+        Map<String, Long> batch = new HashMap<>();
+        // Adders stay in the map: removing one could drop an increment racing with the removal
+        pending.forEach((productId, adder) -> {
+            long views = adder.sumThenReset();
+            if (views > 0) {
+                batch.put(productId, views);
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach((productId, views) -> {
+                productRepository.addViews(productId, (int) Math.min(views, Integer.MAX_VALUE));
+                if (productDailyViewRepository.addViews(productId, today, views) == 0) {
+                    ProductDailyView row = new ProductDailyView();
+                    row.setProductId(productId);
+                    row.setViewDate(today);
+                    row.setViews(views);
+                    productDailyViewRepository.save(row);
+                }
+            }));
+        } catch (RuntimeException e) {
+            // Put the counts back so the next flush retries them
+            batch.forEach((productId, views) -> pending.computeIfAbsent(productId, id -> new LongAdder()).add(views));
+            log.warn("Failed to flush {} product view counters: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
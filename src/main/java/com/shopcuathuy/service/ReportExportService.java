@@ -0,0 +1,344 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.dto.ReportExportJobDTO;
+import com.shopcuathuy.dto.SellerReportDTO;
+import com.shopcuathuy.entity.ReportAudit;
+import com.shopcuathuy.entity.Seller;
+import com.shopcuathuy.exception.ResourceNotFoundException;
+import com.shopcuathuy.repository.ReportAuditRepository;
+import com.shopcuathuy.repository.SellerRepository;
+import jakarta.annotation.PreDestroy;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Seller report exports run as jobs instead of on the request thread: {@link #submit}
+ * records a QUEUED job in {@code report_audits} and hands it to a bounded worker pool,
+ * the seller polls {@link #getJob} for its status and progress, and {@link #download}
+ * streams the finished file from MinIO.
+ *
+ * A worker loads the report data in a short read-only transaction, writes the file to a
+ * temporary file with no database connection held, and uploads it under
+ * {@code reports/<sellerId>/}. A seller has at most {@code report.export.max-per-seller}
+ * jobs queued or running at a time: each holds one of that many slots, and a unique key
+ * on (seller, slot) lets the database refuse one more, whichever instance submits it.
+ * Each job records the {@code ids.node-id} of the instance that queued it; when that
+ * instance starts again, its jobs cut off while running are marked FAILED and those still
+ * queued are queued again, so their slots are not held until the timeout. Jobs still
+ * unfinished after {@code report.export.timeout-minutes} are marked FAILED, and files older than {@code report.export.retention-hours} are
+ * removed and their jobs EXPIRED. A job only finishes from RUNNING, so a worker that
+ * outlives the timeout leaves the FAILED status alone.
+ */
+@Service
+public class ReportExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportExportService.class);
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+    public static final String EXPIRED = "EXPIRED";
+    private static final List<String> ACTIVE = List.of(QUEUED, RUNNING);
+
+    // PDF exports are written as Excel for now, so every file is a workbook
+    private static final String EXTENSION = "xlsx";
+    private static final String CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private final SellerRepository sellerRepository;
+    private final ReportAuditRepository reportAuditRepository;
+    private final SellerReportService sellerReportService;
+    private final MinIOService minIOService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ThreadPoolExecutor workers;
+    private final int maxPerSeller;
+    private final long timeoutMinutes;
+    private final long retentionHours;
+    private final int nodeId;
+    // Jobs created before this are left over from an earlier run of this instance
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    public ReportExportService(SellerRepository sellerRepository,
+                               ReportAuditRepository reportAuditRepository,
+                               SellerReportService sellerReportService,
+                               MinIOService minIOService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${report.export.workers:2}") int workerCount,
+                               @Value("${report.export.queue-capacity:20}") int queueCapacity,
+                               @Value("${report.export.max-per-seller:2}") int maxPerSeller,
+                               @Value("${report.export.timeout-minutes:30}") long timeoutMinutes,
+                               @Value("${report.export.retention-hours:24}") long retentionHours,
+                               @Value("${ids.node-id:0}") int nodeId) {
+        Assert.isTrue(maxPerSeller > 0, "report.export.max-per-seller must be positive");
+        this.sellerRepository = sellerRepository;
+        this.reportAuditRepository = reportAuditRepository;
+        this.sellerReportService = sellerReportService;
+        this.minIOService = minIOService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.maxPerSeller = maxPerSeller;
+        this.timeoutMinutes = timeoutMinutes;
+        this.retentionHours = retentionHours;
+        this.nodeId = nodeId;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "report-export-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Queue an export of the seller's report. Throws IllegalStateException when the seller
+     * already has {@code max-per-seller} exports under way or the queue is full.
+     */
+    public ReportExportJobDTO submit(String userId, String type, LocalDate startDate, LocalDate endDate, String reportType) {
+        Seller seller = sellerRepository.findByUserId(userId)
+            .orElseThrow(() -> new ResourceNotFoundException("Seller profile not found"));
+        LocalDate start = startDate != null ? startDate : LocalDate.now().minusDays(30);
+        LocalDate end = endDate != null ? endDate : LocalDate.now();
+        if (end.isBefore(start)) {
+            LocalDate tmp = start;
+            start = end;
+            end = tmp;
+        }
+
+        ReportAudit job = ReportAudit.builder()
+            .userId(userId)
+            .sellerId(seller.getId())
+            .reportType(reportType != null ? reportType : "all")
+            .exportFormat(type != null ? type.toUpperCase(Locale.ROOT) : "EXCEL")
+            .periodStart(start)
+            .periodEnd(end)
+            .status(QUEUED)
+            .progress(0)
+            .nodeId(nodeId)
+            .build();
+        ReportAudit saved = null;
+        // The first free slot wins; a slot taken meanwhile (by any instance) fails on the unique key
+        for (int slot = 1; slot <= maxPerSeller && saved == null; slot++) {
+            job.setId(null);
+            job.setActiveSlot(slot);
+            try {
+                saved = transactionTemplate.execute(status -> reportAuditRepository.saveAndFlush(job));
+            } catch (DataIntegrityViolationException e) {
+                // Slot in use, try the next
+            }
+        }
+        if (saved == null) {
+            throw new IllegalStateException("Bạn đang có " + maxPerSeller
+                + " báo cáo đang được xuất, vui lòng chờ hoàn tất trước khi tạo thêm");
+        }
+
+        String jobId = saved.getId();
+        try {
+            workers.execute(() -> run(jobId));
+        } catch (RejectedExecutionException e) {
+            fail(jobId, "Export queue full", null);
+            throw new IllegalStateException("Hệ thống đang xuất nhiều báo cáo, vui lòng thử lại sau");
+        }
+        return toDTO(saved);
+    }
+
+    public ReportExportJobDTO getJob(String userId, String jobId) {
+        return toDTO(findJob(userId, jobId));
+    }
+
+    /**
+     * The finished file of a job; the caller closes the stream.
+     */
+    public Download download(String userId, String jobId) throws Exception {
+        ReportAudit job = findJob(userId, jobId);
+        if (!SUCCESS.equals(job.getStatus()) || job.getObjectName() == null) {
+            throw new IllegalStateException(EXPIRED.equals(job.getStatus())
+                ? "Báo cáo đã hết hạn, vui lòng xuất lại"
+                : "Báo cáo chưa sẵn sàng");
+        }
+        String filename = String.format("bao-cao-%s-%s.%s", job.getPeriodStart(), job.getPeriodEnd(), EXTENSION);
+        return new Download(minIOService.getFile(job.getObjectName()), filename, CONTENT_TYPE);
+    }
+
+    private ReportAudit findJob(String userId, String jobId) {
+        Seller seller = sellerRepository.findByUserId(userId)
+            .orElseThrow(() -> new ResourceNotFoundException("Seller profile not found"));
+        return reportAuditRepository.findByIdAndSellerId(jobId, seller.getId())
+            .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy yêu cầu xuất báo cáo"));
+    }
+
+    private void run(String jobId) {
+        long startedAt = System.currentTimeMillis();
+        // Claimed, unless the job was failed by the sweep while it waited
+        Integer claimed = transactionTemplate.execute(status -> reportAuditRepository.updateStatus(jobId, QUEUED, RUNNING));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+        Path file = null;
+        try {
+            ReportAudit job = reportAuditRepository.findById(jobId).orElseThrow();
+            SellerReportDTO report = readOnlyTransactionTemplate.execute(status -> sellerReportService.generateReportData(
+                job.getSellerId(), job.getPeriodStart(), job.getPeriodEnd(), job.getReportType()));
+            setProgress(jobId, 40);
+
+            file = Files.createTempFile("report-" + jobId, "." + EXTENSION);
+            try (OutputStream out = Files.newOutputStream(file)) {
+                sellerReportService.writeReport(report, job.getExportFormat(), out);
+            }
+            setProgress(jobId, 80);
+
+            String objectName = "reports/" + job.getSellerId() + "/" + jobId + "." + EXTENSION;
+            try (InputStream in = Files.newInputStream(file)) {
+                minIOService.uploadStream(objectName, in, Files.size(file), CONTENT_TYPE);
+            }
+            long durationMs = System.currentTimeMillis() - startedAt;
+            Integer completed = transactionTemplate.execute(status -> reportAuditRepository.complete(
+                jobId, List.of(RUNNING), SUCCESS, 100, objectName, durationMs));
+            if (completed == null || completed == 0) {
+                // Failed by the sweep while it ran: the job stays FAILED and its file is dropped
+                log.warn("Report export {} finished after it was marked failed", jobId);
+                removeQuietly(objectName);
+            }
+        } catch (Exception | LinkageError e) {
+            log.error("Report export {} failed", jobId, e);
+            try {
+                fail(jobId, e.getMessage(), System.currentTimeMillis() - startedAt);
+            } catch (RuntimeException updateFailure) {
+                // Left RUNNING; the sweep fails it after the timeout
+                log.error("Could not record failure of report export {}: {}", jobId, updateFailure.getMessage());
+            }
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (Exception e) {
+                    log.warn("Could not delete temporary report file {}: {}", file, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Take over the jobs this instance left behind when it stopped: the in-memory queue is
+     * gone, so queued jobs are queued again, and running ones lost their worker and fail.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        Integer interrupted = transactionTemplate.execute(status -> reportAuditRepository.updateStatusByNodeIdBefore(
+            nodeId, List.of(RUNNING), FAILED, "Export interrupted by a restart", startedAt));
+        if (interrupted != null && interrupted > 0) {
+            log.warn("Marked {} report exports interrupted by the restart as failed", interrupted);
+        }
+        List<String> queued = reportAuditRepository.findIdsByNodeIdAndStatusBefore(nodeId, QUEUED, startedAt);
+        for (String jobId : queued) {
+            try {
+                workers.execute(() -> run(jobId));
+            } catch (RejectedExecutionException e) {
+                fail(jobId, "Export queue full", null);
+            }
+        }
+        if (!queued.isEmpty()) {
+            log.info("Queued {} report exports again after the restart", queued.size());
+        }
+    }
+
+    /**
+     * Fail jobs that never finished and remove files past their retention.
+     */
+    @Scheduled(fixedDelayString = "${report.export.sweep-interval-ms:600000}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer stale = transactionTemplate.execute(status -> reportAuditRepository.updateStatusBefore(
+            ACTIVE, FAILED, "Export did not finish in time", now.minusMinutes(timeoutMinutes)));
+        if (stale != null && stale > 0) {
+            log.warn("Marked {} unfinished report exports as failed", stale);
+        }
+        for (ReportAudit job : reportAuditRepository.findByStatusAndObjectNameIsNotNullAndCreatedAtBefore(
+                SUCCESS, now.minusHours(retentionHours))) {
+            try {
+                minIOService.removeObject(job.getObjectName());
+                update(job.getId(), expired -> {
+                    expired.setStatus(EXPIRED);
+                    expired.setObjectName(null);
+                });
+            } catch (Exception e) {
+                log.warn("Could not remove expired report export {}: {}", job.getId(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            // Interrupted jobs stay RUNNING until this instance starts again or the sweep fails them
+            workers.shutdownNow();
+        }
+    }
+
+    private void setProgress(String jobId, int progress) {
+        transactionTemplate.executeWithoutResult(status -> reportAuditRepository.updateProgress(jobId, progress));
+    }
+
+    private void update(String jobId, Consumer<ReportAudit> change) {
+        transactionTemplate.executeWithoutResult(status -> reportAuditRepository.findById(jobId).ifPresent(change));
+    }
+
+    // No-op if the job already finished (e.g. failed by the sweep)
+    private void fail(String jobId, String reason, Long durationMs) {
+        transactionTemplate.executeWithoutResult(status -> reportAuditRepository.fail(jobId, ACTIVE, FAILED, reason, durationMs));
+    }
+
+    private void removeQuietly(String objectName) {
+        try {
+            minIOService.removeObject(objectName);
+        } catch (Exception e) {
+            log.warn("Could not remove report file {}: {}", objectName, e.getMessage());
+        }
+    }
+
+    private ReportExportJobDTO toDTO(ReportAudit job) {
+        ReportExportJobDTO dto = new ReportExportJobDTO();
+        dto.setId(job.getId());
+        dto.setStatus(job.getStatus());
+        dto.setProgress(job.getProgress() != null ? job.getProgress() : 0);
+        dto.setReportType(job.getReportType());
+        dto.setExportFormat(job.getExportFormat());
+        dto.setPeriodStart(job.getPeriodStart());
+        dto.setPeriodEnd(job.getPeriodEnd());
+        dto.setError(FAILED.equals(job.getStatus()) ? job.getNotes() : null);
+        dto.setDownloadUrl(SUCCESS.equals(job.getStatus())
+            ? "/api/seller/reports/exports/" + job.getId() + "/download"
+            : null);
+        dto.setCreatedAt(job.getCreatedAt());
+        return dto;
+    }
+
+    public record Download(InputStream stream, String filename, String contentType) {
+    }
+}
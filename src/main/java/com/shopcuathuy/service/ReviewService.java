@@ -41,18 +41,21 @@ public class ReviewService {
     private final UserRepository userRepository;
     private final OrderItemRepository orderItemRepository;
     private final NotificationService notificationService;
+    private final ProductDetailCache productDetailCache;
 
     @Autowired
     public ReviewService(ProductReviewRepository reviewRepository,
                         ProductRepository productRepository,
                         UserRepository userRepository,
                         OrderItemRepository orderItemRepository,
-                        NotificationService notificationService) {
+                        NotificationService notificationService,
+                        ProductDetailCache productDetailCache) {
         this.reviewRepository = reviewRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
         this.orderItemRepository = orderItemRepository;
         this.notificationService = notificationService;
+        this.productDetailCache = productDetailCache;
     }
 
     public PageResponse<ReviewDTO> getProductReviews(String productId, int page, int size) {
@@ -171,6 +174,7 @@ public class ReviewService {
             product.setTotalReviews(approvedReviews.size());
         }
         productRepository.save(product);
+        productDetailCache.invalidate(product.getId());
     }
 
     @Transactional
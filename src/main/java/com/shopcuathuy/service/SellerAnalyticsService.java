@@ -10,17 +10,15 @@ import com.shopcuathuy.dto.admin.SellerAnalyticsOverviewDTO;
 import com.shopcuathuy.dto.admin.TopProductDTO;
 import com.shopcuathuy.dto.admin.TrafficPointDTO;
 import com.shopcuathuy.dto.admin.TrafficSourceDTO;
-import com.shopcuathuy.entity.Order;
+import com.shopcuathuy.entity.DailySellerStat;
 import com.shopcuathuy.entity.Product;
 import com.shopcuathuy.entity.Seller;
-import com.shopcuathuy.entity.User;
-import com.shopcuathuy.entity.UserAddress;
 import com.shopcuathuy.exception.ResourceNotFoundException;
-import com.shopcuathuy.repository.OrderItemRepository;
+import com.shopcuathuy.repository.DailyProductStatRepository;
+import com.shopcuathuy.repository.DailySellerStatRepository;
 import com.shopcuathuy.repository.OrderRepository;
 import com.shopcuathuy.repository.ProductRepository;
 import com.shopcuathuy.repository.SellerRepository;
-import com.shopcuathuy.repository.UserAddressRepository;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -34,8 +32,9 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -46,20 +45,23 @@ public class SellerAnalyticsService {
 
     private final SellerRepository sellerRepository;
     private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
+    private final DailySellerStatRepository dailySellerStatRepository;
+    private final DailyProductStatRepository dailyProductStatRepository;
     private final ProductRepository productRepository;
-    private final UserAddressRepository userAddressRepository;
+    private final DistinctCustomerCounter distinctCustomerCounter;
 
     public SellerAnalyticsService(SellerRepository sellerRepository,
                                   OrderRepository orderRepository,
-                                  OrderItemRepository orderItemRepository,
+                                  DailySellerStatRepository dailySellerStatRepository,
+                                  DailyProductStatRepository dailyProductStatRepository,
                                   ProductRepository productRepository,
-                                  UserAddressRepository userAddressRepository) {
+                                  DistinctCustomerCounter distinctCustomerCounter) {
         this.sellerRepository = sellerRepository;
         this.orderRepository = orderRepository;
-        this.orderItemRepository = orderItemRepository;
+        this.dailySellerStatRepository = dailySellerStatRepository;
+        this.dailyProductStatRepository = dailyProductStatRepository;
         this.productRepository = productRepository;
-        this.userAddressRepository = userAddressRepository;
+        this.distinctCustomerCounter = distinctCustomerCounter;
     }
 
     @Transactional(readOnly = true)
@@ -68,36 +70,42 @@ public class SellerAnalyticsService {
             .orElseThrow(() -> new ResourceNotFoundException("Seller profile not found"));
 
         PeriodWindow window = resolvePeriod(period);
-        List<Order> currentOrders = orderRepository.findBySellerIdAndCreatedAtBetween(
+        // Orders and revenue come from the daily rollups, the customer panels from grouped order counts
+        List<DailySellerStat> currentDays = dailySellerStatRepository.findBySellerIdAndStatDateBetween(
+            seller.getId(), window.startDate(), window.endDate());
+        List<DailySellerStat> previousDays = dailySellerStatRepository.findBySellerIdAndStatDateBetween(
+            seller.getId(), window.previousStart().toLocalDate(), window.previousEnd().toLocalDate());
+        List<Long> ordersByCustomer = orderRepository.countGroupByCustomerBySellerId(
             seller.getId(), window.start(), window.end());
-        List<Order> previousOrders = orderRepository.findBySellerIdAndCreatedAtBetween(
-            seller.getId(), window.previousStart(), window.previousEnd());
+        long customers = distinctCustomerCounter.count(seller.getId(), window.startDate(), window.endDate());
+        long previousCustomers = distinctCustomerCounter.count(seller.getId(),
+            window.previousStart().toLocalDate(), window.previousEnd().toLocalDate());
 
         SellerAnalyticsDashboardDTO dto = new SellerAnalyticsDashboardDTO();
-        dto.setOverview(buildOverview(currentOrders, previousOrders));
-        dto.setRevenueSeries(buildRevenueSeries(currentOrders, window.startDate(), window.endDate()));
+        dto.setOverview(buildOverview(currentDays, previousDays, customers, previousCustomers));
+        dto.setRevenueSeries(buildRevenueSeries(currentDays, window.startDate(), window.endDate()));
         dto.setCategorySeries(buildCategorySeries(seller.getId(), window));
-        dto.setCustomerTypes(buildCustomerTypes(currentOrders));
-        dto.setCustomerLocations(buildCustomerLocations(currentOrders));
-        dto.setTrafficSeries(buildTrafficSeries(currentOrders, window));
-        dto.setTrafficSources(buildTrafficSources(currentOrders));
+        dto.setCustomerTypes(buildCustomerTypes(ordersByCustomer));
+        dto.setCustomerLocations(buildCustomerLocations(seller.getId(), window, ordersByCustomer.size()));
+        dto.setTrafficSeries(buildTrafficSeries(seller.getId(), window));
+        dto.setTrafficSources(buildTrafficSources(seller.getId(), window));
         dto.setTopProducts(buildTopProducts(seller.getId(), window));
         dto.setLowStockProducts(buildLowStockProducts(seller.getId()));
         return dto;
     }
 
-    private SellerAnalyticsOverviewDTO buildOverview(List<Order> currentOrders, List<Order> previousOrders) {
-        double revenue = sumRevenue(currentOrders);
-        double previousRevenue = sumRevenue(previousOrders);
+    private SellerAnalyticsOverviewDTO buildOverview(List<DailySellerStat> currentDays,
+                                                     List<DailySellerStat> previousDays,
+                                                     long uniqueCustomers,
+                                                     long previousUniqueCustomers) {
+        double revenue = sumRevenue(currentDays);
+        double previousRevenue = sumRevenue(previousDays);
 
-        long orderCount = currentOrders.size();
-        long previousOrderCount = previousOrders.size();
+        long orderCount = sumOrders(currentDays);
+        long previousOrderCount = sumOrders(previousDays);
 
         double avgOrderValue = orderCount > 0 ? revenue / orderCount : 0.0;
-        double previousAvgOrder = previousOrderCount > 0 ? sumRevenue(previousOrders) / previousOrderCount : 0.0;
-
-        long uniqueCustomers = countUniqueCustomers(currentOrders);
-        long previousUniqueCustomers = countUniqueCustomers(previousOrders);
+        double previousAvgOrder = previousOrderCount > 0 ? previousRevenue / previousOrderCount : 0.0;
 
         double conversionRate = uniqueCustomers > 0
             ? (double) orderCount / uniqueCustomers * 100
@@ -118,31 +126,26 @@ public class SellerAnalyticsService {
         return overview;
     }
 
-    private List<RevenuePointDTO> buildRevenueSeries(List<Order> orders,
+    private List<RevenuePointDTO> buildRevenueSeries(List<DailySellerStat> days,
                                                      LocalDate start,
                                                      LocalDate end) {
-        Map<LocalDate, RevenueAggregate> aggregates = new HashMap<>();
-        for (Order order : orders) {
-            LocalDate date = order.getCreatedAt() != null
-                ? order.getCreatedAt().toLocalDate()
-                : start;
-            RevenueAggregate aggregate = aggregates.computeIfAbsent(date, key -> new RevenueAggregate());
-            aggregate.orders++;
-            aggregate.revenue += toDouble(order.getFinalTotal());
-        }
+        Map<LocalDate, DailySellerStat> byDate = days.stream()
+            .collect(Collectors.toMap(DailySellerStat::getStatDate, Function.identity()));
 
         List<RevenuePointDTO> series = new ArrayList<>();
         for (LocalDate cursor = start; !cursor.isAfter(end); cursor = cursor.plusDays(1)) {
-            RevenueAggregate aggregate = aggregates.getOrDefault(cursor, new RevenueAggregate());
-            double profit = aggregate.revenue * 0.22;
-            series.add(new RevenuePointDTO(cursor.toString(), aggregate.revenue, profit, aggregate.orders));
+            DailySellerStat day = byDate.get(cursor);
+            double revenue = day != null ? toDouble(day.getRevenue()) : 0.0;
+            int orders = day != null ? (int) day.getOrders() : 0;
+            double profit = revenue * 0.22;
+            series.add(new RevenuePointDTO(cursor.toString(), revenue, profit, orders));
         }
         return series;
     }
 
     private List<CategoryRevenueDTO> buildCategorySeries(String sellerId, PeriodWindow window) {
-        List<Object[]> rows = orderItemRepository.findCategoryBreakdown(
-            sellerId, window.start(), window.end());
+        List<Object[]> rows = dailyProductStatRepository.sumRevenueByCategoryForSeller(
+            sellerId, window.startDate(), window.endDate());
         if (rows.isEmpty()) {
             return Collections.emptyList();
         }
@@ -155,16 +158,11 @@ public class SellerAnalyticsService {
             .collect(Collectors.toList());
     }
 
-    private List<CustomerTypeDTO> buildCustomerTypes(List<Order> orders) {
-        Map<String, Long> orderCountByCustomer = orders.stream()
-            .map(Order::getCustomer)
-            .filter(Objects::nonNull)
-            .collect(Collectors.groupingBy(User::getId, Collectors.counting()));
-
-        long returning = orderCountByCustomer.values().stream()
+    private List<CustomerTypeDTO> buildCustomerTypes(List<Long> ordersByCustomer) {
+        long returning = ordersByCustomer.stream()
             .filter(count -> count > 1)
             .count();
-        long newCustomers = orderCountByCustomer.size() - returning;
+        long newCustomers = ordersByCustomer.size() - returning;
 
         List<CustomerTypeDTO> types = new ArrayList<>();
         types.add(new CustomerTypeDTO("Khách mới", newCustomers, "#22c55e"));
@@ -172,62 +170,41 @@ public class SellerAnalyticsService {
         return types;
     }
 
-    private List<CustomerLocationDTO> buildCustomerLocations(List<Order> orders) {
-        Set<String> customerIds = orders.stream()
-            .map(Order::getCustomer)
-            .filter(Objects::nonNull)
-            .map(User::getId)
-            .collect(Collectors.toSet());
-        if (customerIds.isEmpty()) {
+    private List<CustomerLocationDTO> buildCustomerLocations(String sellerId, PeriodWindow window, long customers) {
+        if (customers == 0) {
             return Collections.emptyList();
         }
-
-        List<UserAddress> addresses = userAddressRepository.findByUserIdIn(customerIds);
-        Map<String, UserAddress> defaultAddressMap = new HashMap<>();
-        for (UserAddress address : addresses) {
-            if (address.getUser() == null) {
-                continue;
-            }
-            String id = address.getUser().getId();
-            if (Boolean.TRUE.equals(address.getIsDefault())) {
-                defaultAddressMap.put(id, address);
-                continue;
-            }
-            defaultAddressMap.putIfAbsent(id, address);
+        Map<String, Long> counts = new HashMap<>();
+        long located = 0;
+        for (Object[] row : orderRepository.countCustomersGroupByProvinceBySellerId(sellerId, window.start(), window.end())) {
+            long count = ((Number) row[1]).longValue();
+            counts.merge(Objects.toString(row[0], "Khác"), count, Long::sum);
+            located += count;
         }
-
-        Map<String, Integer> counts = new HashMap<>();
-        for (String customerId : customerIds) {
-            UserAddress address = defaultAddressMap.get(customerId);
-            String province = address != null && address.getProvince() != null
-                ? address.getProvince()
-                : "Khác";
-            counts.merge(province, 1, Integer::sum);
+        // Customers without a default address
+        if (customers > located) {
+            counts.merge("Khác", customers - located, Long::sum);
         }
 
         return counts.entrySet().stream()
-            .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
             .limit(5)
-            .map(entry -> new CustomerLocationDTO(entry.getKey(), entry.getValue()))
+            .map(entry -> new CustomerLocationDTO(entry.getKey(), entry.getValue().intValue()))
             .collect(Collectors.toList());
     }
 
-    private List<TrafficPointDTO> buildTrafficSeries(List<Order> orders, PeriodWindow window) {
-        Map<LocalDate, List<Order>> grouped = orders.stream()
-            .collect(Collectors.groupingBy(order -> order.getCreatedAt() != null
-                ? order.getCreatedAt().toLocalDate()
-                : window.startDate()));
+    private List<TrafficPointDTO> buildTrafficSeries(String sellerId, PeriodWindow window) {
+        Map<LocalDate, Object[]> byDate = new HashMap<>();
+        for (Object[] row : orderRepository.countGroupByDayBySellerId(sellerId, window.start(), window.end())) {
+            byDate.put((LocalDate) row[0], row);
+        }
 
         List<TrafficPointDTO> points = new ArrayList<>();
         for (LocalDate cursor = window.startDate(); !cursor.isAfter(window.endDate()); cursor = cursor.plusDays(1)) {
-            List<Order> dayOrders = grouped.getOrDefault(cursor, Collections.emptyList());
-            int visitors = (int) dayOrders.stream()
-                .map(Order::getCustomer)
-                .filter(Objects::nonNull)
-                .map(User::getId)
-                .distinct()
-                .count();
-            int views = dayOrders.size() * 20 + visitors * 5;
+            Object[] day = byDate.get(cursor);
+            int orders = day != null ? ((Number) day[1]).intValue() : 0;
+            int visitors = day != null ? ((Number) day[2]).intValue() : 0;
+            int views = orders * 20 + visitors * 5;
             double bounceRate = visitors == 0
                 ? 60.0
                 : Math.max(5.0, 100.0 - (views / Math.max(1.0, visitors)) * 5.0);
@@ -236,15 +213,12 @@ public class SellerAnalyticsService {
         return points;
     }
 
-    private List<TrafficSourceDTO> buildTrafficSources(List<Order> orders) {
-        if (orders.isEmpty()) {
-            return Collections.emptyList();
+    private List<TrafficSourceDTO> buildTrafficSources(String sellerId, PeriodWindow window) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Object[] row : orderRepository.countGroupByPaymentMethodBySellerId(sellerId, window.start(), window.end())) {
+            String method = row[0] != null ? ((String) row[0]).toUpperCase(VI_LOCALE) : "KHÁC";
+            counts.merge(method, ((Number) row[1]).longValue(), Long::sum);
         }
-        Map<String, Long> counts = orders.stream()
-            .map(order -> order.getPaymentMethod() != null
-                ? order.getPaymentMethod().toUpperCase(VI_LOCALE)
-                : "KHÁC")
-            .collect(Collectors.groupingBy(method -> method, LinkedHashMap::new, Collectors.counting()));
 
         return counts.entrySet().stream()
             .map(entry -> new TrafficSourceDTO(entry.getKey(), entry.getValue().intValue()))
@@ -252,20 +226,23 @@ public class SellerAnalyticsService {
     }
 
     private List<TopProductDTO> buildTopProducts(String sellerId, PeriodWindow window) {
-        List<Object[]> rows = orderItemRepository.findProductPerformance(
-            sellerId, window.start(), window.end());
-        Map<String, Double> previousRevenue = orderItemRepository.findProductPerformance(
-                sellerId, window.previousStart(), window.previousEnd())
-            .stream()
-            .collect(Collectors.toMap(
-                row -> ((Product) row[0]).getId(),
-                row -> toDouble((BigDecimal) row[2]),
-                Double::sum));
+        List<Object[]> rows = dailyProductStatRepository.findTopProductsBySellerId(
+            sellerId, window.startDate(), window.endDate(), PageRequest.of(0, 5));
+        List<String> productIds = rows.stream().map(row -> (String) row[0]).collect(Collectors.toList());
+        Map<String, Double> previousRevenue = new HashMap<>();
+        Map<String, Product> products = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            dailyProductStatRepository.sumRevenueByProductIdIn(productIds,
+                    window.previousStart().toLocalDate(), window.previousEnd().toLocalDate())
+                .forEach(row -> previousRevenue.put((String) row[0], toDouble((BigDecimal) row[1])));
+            productRepository.findByIdInWithImages(productIds)
+                .forEach(product -> products.put(product.getId(), product));
+        }
 
         List<TopProductDTO> result = rows.stream()
-            .limit(5)
+            .filter(row -> products.containsKey((String) row[0]))
             .map(row -> {
-                Product product = (Product) row[0];
+                Product product = products.get((String) row[0]);
                 long sold = ((Number) row[1]).longValue();
                 double revenue = toDouble((BigDecimal) row[2]);
                 double change = calculateChange(revenue, previousRevenue.getOrDefault(product.getId(), 0.0));
@@ -313,19 +290,14 @@ public class SellerAnalyticsService {
             .collect(Collectors.toList());
     }
 
-    private double sumRevenue(Collection<Order> orders) {
-        return orders.stream()
-            .map(order -> toDouble(order.getFinalTotal()))
+    private double sumRevenue(Collection<DailySellerStat> days) {
+        return days.stream()
+            .map(day -> toDouble(day.getRevenue()))
             .reduce(0.0, Double::sum);
     }
 
-    private long countUniqueCustomers(Collection<Order> orders) {
-        return orders.stream()
-            .map(Order::getCustomer)
-            .filter(Objects::nonNull)
-            .map(User::getId)
-            .distinct()
-            .count();
+    private long sumOrders(Collection<DailySellerStat> days) {
+        return days.stream().mapToLong(DailySellerStat::getOrders).sum();
     }
 
     private double calculateChange(double current, double previous) {
@@ -383,11 +355,6 @@ public class SellerAnalyticsService {
             .orElse(null);
     }
 
-    private static class RevenueAggregate {
-        private int orders = 0;
-        private double revenue = 0.0;
-    }
-
     private record PeriodWindow(LocalDateTime start,
                                 LocalDateTime end,
                                 LocalDateTime previousStart,
@@ -3,6 +3,7 @@ package com.shopcuathuy.service;
 import com.shopcuathuy.dto.response.ExportedFileDTO;
 import com.shopcuathuy.dto.response.ImportProductResultDTO;
 import com.shopcuathuy.entity.Category;
+import com.shopcuathuy.entity.InventoryHistory;
 import com.shopcuathuy.entity.Product;
 import com.shopcuathuy.entity.ProductImage;
 import com.shopcuathuy.entity.Seller;
@@ -37,10 +38,13 @@ public class SellerProductImportService {
 
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final InventoryLedger inventoryLedger;
 
-    public SellerProductImportService(ProductRepository productRepository, CategoryRepository categoryRepository) {
+    public SellerProductImportService(ProductRepository productRepository, CategoryRepository categoryRepository,
+                                      InventoryLedger inventoryLedger) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
+        this.inventoryLedger = inventoryLedger;
     }
 
     public ImportProductResultDTO importProducts(Seller seller, MultipartFile file) {
@@ -62,6 +66,8 @@ public class SellerProductImportService {
                 try {
                     Product product = buildProductFromRow(row, seller);
                     productRepository.save(product);
+                    inventoryLedger.record(product.getId(), null, product.getQuantity(),
+                        InventoryHistory.REASON_RESTOCK, null, "Nhập từ file", "seller");
                     success++;
                 } catch (Exception ex) {
                     failed++;
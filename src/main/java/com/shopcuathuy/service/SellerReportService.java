@@ -13,6 +13,7 @@ import com.shopcuathuy.repository.ReportAuditRepository;
 import com.shopcuathuy.repository.SellerRepository;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -33,8 +34,8 @@ import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.IndexedColors;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.ByteArrayResource;
@@ -49,6 +50,8 @@ public class SellerReportService {
 
     private static final Logger log = LoggerFactory.getLogger(SellerReportService.class);
     private static final Locale VI_LOCALE = Locale.forLanguageTag("vi-VN");
+    // Rows of a sheet kept in memory while writing a workbook
+    private static final int EXCEL_ROW_WINDOW = 100;
 
     private final SellerRepository sellerRepository;
     private final OrderRepository orderRepository;
@@ -104,10 +107,14 @@ public class SellerReportService {
         }
     }
 
-    private SellerReportDTO generateReportData(String sellerId,
-                                               LocalDate startDate,
-                                               LocalDate endDate,
-                                               String reportType) {
+    /**
+     * Everything a report file shows, loaded up front so that writing the file needs no
+     * database access.
+     */
+    public SellerReportDTO generateReportData(String sellerId,
+                                              LocalDate startDate,
+                                              LocalDate endDate,
+                                              String reportType) {
         SellerReportDTO report = new SellerReportDTO();
         LocalDate effectiveStart = startDate != null ? startDate : LocalDate.now().minusDays(30);
         LocalDate effectiveEnd = endDate != null ? endDate : LocalDate.now();
@@ -320,9 +327,33 @@ public class SellerReportService {
         return reportType.equalsIgnoreCase(section);
     }
 
+    /**
+     * Write the report file in the given format to {@code out}; PDF is not supported yet
+     * and is written as Excel.
+     */
+    public void writeReport(SellerReportDTO report, String type, OutputStream out) throws IOException {
+        writeExcelReport(report, out);
+    }
+
     private Resource generateExcelReport(SellerReportDTO report) throws IOException {
-        Workbook workbook = new XSSFWorkbook();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeExcelReport(report, outputStream);
+        return new ByteArrayResource(outputStream.toByteArray());
+    }
+
+    // Streamed workbook: only the last rows of each sheet stay in memory, the rest go to a temporary file
+    private void writeExcelReport(SellerReportDTO report, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW);
+        try {
+            writeExcelReport(report, workbook);
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
 
+    private void writeExcelReport(SellerReportDTO report, SXSSFWorkbook workbook) {
         CellStyle headerStyle = workbook.createCellStyle();
         Font headerFont = workbook.createFont();
         headerFont.setBold(true);
@@ -341,7 +372,7 @@ public class SellerReportService {
         titleFont.setFontHeightInPoints((short) 16);
         titleStyle.setFont(titleFont);
 
-        Sheet overviewSheet = workbook.createSheet("Tổng quan");
+        Sheet overviewSheet = createSheet(workbook, "Tổng quan");
         int rowNum = 0;
 
         Row titleRow = overviewSheet.createRow(rowNum++);
@@ -374,7 +405,7 @@ public class SellerReportService {
         }
 
         if (report.getOrders() != null && !report.getOrders().isEmpty()) {
-            Sheet ordersSheet = workbook.createSheet("Đơn hàng");
+            Sheet ordersSheet = createSheet(workbook, "Đơn hàng");
             rowNum = 0;
 
             Row ordersHeaderRow = ordersSheet.createRow(rowNum++);
@@ -401,7 +432,7 @@ public class SellerReportService {
         }
 
         if (report.getProducts() != null && !report.getProducts().isEmpty()) {
-            Sheet productsSheet = workbook.createSheet("Sản phẩm");
+            Sheet productsSheet = createSheet(workbook, "Sản phẩm");
             rowNum = 0;
 
             Row productsHeaderRow = productsSheet.createRow(rowNum++);
@@ -427,7 +458,7 @@ public class SellerReportService {
         }
 
         if (report.getTopCustomers() != null && !report.getTopCustomers().isEmpty()) {
-            Sheet customersSheet = workbook.createSheet("Khách hàng");
+            Sheet customersSheet = createSheet(workbook, "Khách hàng");
             rowNum = 0;
 
             Row customersHeaderRow = customersSheet.createRow(rowNum++);
@@ -455,7 +486,7 @@ public class SellerReportService {
         }
 
         if (report.getRevenueSeries() != null && !report.getRevenueSeries().isEmpty()) {
-            Sheet revenueSheet = workbook.createSheet("Doanh thu ngày");
+            Sheet revenueSheet = createSheet(workbook, "Doanh thu ngày");
             rowNum = 0;
             Row revenueHeader = revenueSheet.createRow(rowNum++);
             String[] revenueHeaders = {"Ngày", "Doanh thu", "Số đơn"};
@@ -476,7 +507,7 @@ public class SellerReportService {
         }
 
         if (report.getStatusBreakdown() != null && !report.getStatusBreakdown().isEmpty()) {
-            Sheet statusSheet = workbook.createSheet("Trạng thái đơn");
+            Sheet statusSheet = createSheet(workbook, "Trạng thái đơn");
             rowNum = 0;
             Row statusHeader = statusSheet.createRow(rowNum++);
             String[] statusHeaders = {"Trạng thái", "Số lượng"};
@@ -497,11 +528,13 @@ public class SellerReportService {
             }
         }
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        workbook.write(outputStream);
-        workbook.close();
+    }
 
-        return new ByteArrayResource(outputStream.toByteArray());
+    // Rows leave memory as they are written, so column widths are measured along the way
+    private Sheet createSheet(SXSSFWorkbook workbook, String name) {
+        SXSSFSheet sheet = workbook.createSheet(name);
+        sheet.trackAllColumnsForAutoSizing();
+        return sheet;
     }
 
     private Resource generatePDFReport(SellerReportDTO report) {
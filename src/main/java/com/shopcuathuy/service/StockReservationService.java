@@ -0,0 +1,285 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.dto.request.CreateOrderItemRequestDTO;
+import com.shopcuathuy.entity.InventoryHistory;
+import com.shopcuathuy.entity.Product;
+import com.shopcuathuy.entity.ProductVariant;
+import com.shopcuathuy.event.ProductChangedEvent;
+import com.shopcuathuy.exception.ResourceNotFoundException;
+import com.shopcuathuy.repository.ProductRepository;
+import com.shopcuathuy.repository.ProductVariantRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Reserves stock for an order in a short transaction of its own. Stock is decremented
+ * with conditional updates ({@code quantity >= n}) in product id order, so the row locks
+ * they take are always acquired in the same order. Only when variants are involved are the
+ * products first locked in one query sorted by id, as a variant row is only touched under
+ * its product's lock. The reservation commits, and its locks are released, before the
+ * caller prices the order, looks up promotions or clears the cart. A caller whose order
+ * then fails hands the reservation back with {@link #release}. Both write their
+ * inventory ledger rows in their own transaction, next to the stock they move.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservationService.class);
+
+    // Products first by id, then their variants: every transaction takes row locks in this order
+    private static final Comparator<Reservation> LOCK_ORDER = Comparator
+        .comparing(Reservation::getProductId)
+        .thenComparing(r -> Objects.toString(r.getVariantId(), ""));
+
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final ProductDetailCache productDetailCache;
+    private final FlashSaleGate flashSaleGate;
+    private final InventoryLedger inventoryLedger;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate requiresNew;
+
+    public StockReservationService(ProductRepository productRepository,
+                                   ProductVariantRepository productVariantRepository,
+                                   ProductDetailCache productDetailCache,
+                                   FlashSaleGate flashSaleGate,
+                                   InventoryLedger inventoryLedger,
+                                   ApplicationEventPublisher eventPublisher,
+                                   PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.productVariantRepository = productVariantRepository;
+        this.productDetailCache = productDetailCache;
+        this.flashSaleGate = flashSaleGate;
+        this.inventoryLedger = inventoryLedger;
+        this.eventPublisher = eventPublisher;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Reserve stock (and flash-sale units where a sale is running) for the given items.
+     * Lines for the same product/variant are merged. Throws without reserving anything
+     * if a product or variant is missing or short. Must be called outside a transaction.
+     * {@code referenceByProduct} gives the ledger reference (the order number) of each product.
+     */
+    public List<Reservation> reserve(List<CreateOrderItemRequestDTO> items, Function<String, String> referenceByProduct) {
+        // Inside an open transaction REQUIRES_NEW would need a second pooled connection per request
+        Assert.state(!TransactionSynchronizationManager.isActualTransactionActive(),
+            "Stock must be reserved before the order transaction begins");
+        List<Reservation> lines = merge(items);
+        for (Reservation line : lines) {
+            line.referenceId = referenceByProduct.apply(line.productId);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        // Flash-sale units are admitted in memory; a sold-out sale never reaches the flash columns
+        for (Reservation line : lines) {
+            line.flashSale = flashSaleGate.tryAcquire(line.productId, line.quantity, now);
+        }
+        try {
+            return requiresNew.execute(status -> lockAndDecrement(lines, now));
+        } catch (RuntimeException e) {
+            lines.stream().filter(Reservation::isFlashSale)
+                .forEach(line -> flashSaleGate.release(line.productId, line.quantity));
+            throw e;
+        }
+    }
+
+    private List<Reservation> lockAndDecrement(List<Reservation> lines, LocalDateTime now) {
+        Set<String> productIds = lines.stream().map(Reservation::getProductId)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        // Without variants each line is one conditional update, which locks its row by itself; a
+        // plain read is enough, so flash-sale winners only queue on the update, not a locking select
+        boolean variants = lines.stream().anyMatch(line -> line.variantId != null);
+        Map<String, Product> products = (variants
+                ? productRepository.findAllByIdForUpdate(productIds)
+                : productRepository.findAllById(productIds)).stream()
+            .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        for (Reservation line : lines) {
+            Product product = products.get(line.productId);
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found: " + line.productId);
+            }
+            if (line.variantId != null) {
+                ProductVariant variant = product.getVariants().stream()
+                    .filter(v -> v.getId().equals(line.variantId))
+                    .findFirst()
+                    .orElseThrow(() -> new ResourceNotFoundException("Variant not found: " + line.variantId));
+                if (productVariantRepository.decrementStock(line.variantId, line.quantity) == 0) {
+                    throw new IllegalArgumentException("Biến thể '" + variant.getVariantName() + "' đã hết hàng hoặc không đủ số lượng.");
+                }
+                // Product-level stock is best effort for variant items, as before
+                line.productDecremented = productRepository.decrementStock(line.productId, line.quantity) > 0;
+            } else {
+                if (productRepository.decrementStock(line.productId, line.quantity) == 0) {
+                    throw new IllegalArgumentException("Sản phẩm '" + product.getName() + "' đã hết hàng hoặc không đủ số lượng.");
+                }
+                line.productDecremented = true;
+            }
+            if (line.flashSale && productRepository.claimFlashSaleStock(line.productId, line.quantity, now) == 0) {
+                // The gate was ahead of the database (another instance sold the units): regular price
+                line.flashSale = false;
+                flashSaleGate.release(line.productId, line.quantity);
+            }
+        }
+        inventoryLedger.recordReservations(lines, -1, InventoryHistory.REASON_PURCHASE, "customer");
+        publishChanged(lines);
+        return lines;
+    }
+
+    /**
+     * Hand back a reservation whose order was never created.
+     */
+    public void release(List<Reservation> reservations) {
+        try {
+            requiresNew.executeWithoutResult(status -> {
+                restock(reservations);
+                inventoryLedger.recordReservations(reservations, 1, InventoryHistory.REASON_RETURN, "system");
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to release stock reservation {}: {}", reservations, e.getMessage());
+        }
+    }
+
+    /**
+     * Put stock back inside the caller's transaction (e.g. an order being cancelled).
+     */
+    public void restock(List<Reservation> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        List<Reservation> sorted = new ArrayList<>(reservations);
+        sorted.sort(LOCK_ORDER);
+        // Same lock order as reserve(): all product rows first, variants only under their product's lock
+        productRepository.findAllByIdForUpdate(sorted.stream().map(Reservation::getProductId)
+            .collect(Collectors.toCollection(LinkedHashSet::new)));
+        for (Reservation line : sorted) {
+            if (line.variantId != null) {
+                productVariantRepository.incrementStock(line.variantId, line.quantity);
+            }
+            if (line.productDecremented) {
+                productRepository.incrementStock(line.productId, line.quantity);
+            }
+            if (line.flashSale) {
+                productRepository.returnFlashSaleStock(line.productId, line.quantity);
+            }
+        }
+        publishChanged(sorted);
+        releaseFlashUnitsAfterCommit(sorted);
+    }
+
+    private void releaseFlashUnitsAfterCommit(List<Reservation> lines) {
+        Runnable release = () -> lines.stream().filter(Reservation::isFlashSale)
+            .forEach(line -> flashSaleGate.release(line.productId, line.quantity));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    release.run();
+                }
+            });
+        } else {
+            release.run();
+        }
+    }
+
+    private void publishChanged(List<Reservation> lines) {
+        lines.stream().map(Reservation::getProductId).distinct().forEach(productId -> {
+            productDetailCache.invalidate(productId);
+            eventPublisher.publishEvent(ProductChangedEvent.stockChanged(productId));
+        });
+    }
+
+    private static List<Reservation> merge(List<CreateOrderItemRequestDTO> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Đơn hàng phải có ít nhất một sản phẩm.");
+        }
+        Map<String, Reservation> merged = new TreeMap<>();
+        for (CreateOrderItemRequestDTO item : items) {
+            if (item.productId == null || item.quantity == null || item.quantity <= 0) {
+                throw new IllegalArgumentException("Số lượng sản phẩm không hợp lệ.");
+            }
+            String variantId = item.variantId == null || item.variantId.isEmpty() ? null : item.variantId;
+            merged.computeIfAbsent(item.productId + "|" + Objects.toString(variantId, ""),
+                key -> new Reservation(item.productId, variantId, 0)).quantity += item.quantity;
+        }
+        List<Reservation> lines = new ArrayList<>(merged.values());
+        lines.sort(LOCK_ORDER);
+        return lines;
+    }
+
+    public static class Reservation {
+        private final String productId;
+        private final String variantId;
+        private int quantity;
+        private boolean productDecremented;
+        private boolean flashSale;
+        private String referenceId;
+
+        public Reservation(String productId, String variantId, int quantity) {
+            this.productId = productId;
+            this.variantId = variantId;
+            this.quantity = quantity;
+        }
+
+        /**
+         * A line for restocking an existing order item (product stock is always returned).
+         */
+        public static Reservation forRestock(String productId, String variantId, int quantity, boolean flashSale,
+                                             String referenceId) {
+            Reservation reservation = new Reservation(productId, variantId, quantity);
+            reservation.productDecremented = true;
+            reservation.flashSale = flashSale;
+            reservation.referenceId = referenceId;
+            return reservation;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public String getVariantId() {
+            return variantId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public boolean isProductDecremented() {
+            return productDecremented;
+        }
+
+        public boolean isFlashSale() {
+            return flashSale;
+        }
+
+        public String getReferenceId() {
+            return referenceId;
+        }
+
+        @Override
+        public String toString() {
+            return productId + (variantId != null ? "/" + variantId : "") + " x" + quantity;
+        }
+    }
+}
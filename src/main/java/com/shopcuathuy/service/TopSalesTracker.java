@@ -0,0 +1,173 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.event.OrderStatsChangedEvent;
+import com.shopcuathuy.repository.DailyProductStatRepository;
+import com.shopcuathuy.repository.DailySellerStatRepository;
+import com.shopcuathuy.util.SpaceSaving;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Best-selling sellers and products by revenue over any range of recent days, without
+ * summing and sorting every seller or product of the range.
+ *
+ * Each of the last {@code analytics.top-k.retention-days} days keeps a {@link SpaceSaving}
+ * summary of seller revenue and one of product revenue, each of at most
+ * {@code analytics.top-k.capacity} counters, fed by the same order events as the
+ * {@link DailyStatsRollup}; a range merges the summaries of its days. The summaries only
+ * pick candidates: callers rank them by their exact totals from the rollup tables, which
+ * also answer the ranges reaching past the retained days.
+ *
+ * The summaries are built from the rollups at startup and rebuilt for the closed days
+ * every night after the rollup reconciliation, which also drops days past the retention.
+ */
+@Service
+public class TopSalesTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(TopSalesTracker.class);
+
+    private final DailySellerStatRepository dailySellerStatRepository;
+    private final DailyProductStatRepository dailyProductStatRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int capacity;
+    private final int retentionDays;
+    private final ConcurrentHashMap<LocalDate, Day> days = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public TopSalesTracker(DailySellerStatRepository dailySellerStatRepository,
+                           DailyProductStatRepository dailyProductStatRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${analytics.top-k.capacity:50}") int capacity,
+                           @Value("${analytics.top-k.retention-days:366}") int retentionDays) {
+        Assert.isTrue(capacity > 0, "analytics.top-k.capacity must be positive");
+        Assert.isTrue(retentionDays > 0, "analytics.top-k.retention-days must be positive");
+        this.dailySellerStatRepository = dailySellerStatRepository;
+        this.dailyProductStatRepository = dailyProductStatRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.capacity = capacity;
+        this.retentionDays = retentionDays;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatsChanged(OrderStatsChangedEvent event) {
+        if (event.getStatDate().isBefore(firstRetainedDay())) {
+            return;
+        }
+        Day day = days.computeIfAbsent(event.getStatDate(), date -> new Day(capacity));
+        // Cancelling or returning an order takes its revenue back off
+        int sign = event.getOrders();
+        day.sellers.add(event.getSellerId(), sign * toDouble(event.getFinalTotal()));
+        for (OrderStatsChangedEvent.Line line : event.getLines()) {
+            day.products.add(line.getProductId(), sign * toDouble(line.getTotalPrice()));
+        }
+    }
+
+    /**
+     * Up to {@code n} ids of the sellers most likely to have the most revenue from
+     * {@code from} to {@code to}, best first, or null when the range starts before the
+     * retained days.
+     */
+    public List<String> topSellers(LocalDate from, LocalDate to, int n) {
+        return top(from, to, n, day -> day.sellers);
+    }
+
+    /**
+     * Same as {@link #topSellers} for products.
+     */
+    public List<String> topProducts(LocalDate from, LocalDate to, int n) {
+        return top(from, to, n, day -> day.products);
+    }
+
+    private List<String> top(LocalDate from, LocalDate to, int n, Function<Day, SpaceSaving> summary) {
+        if (!loaded || from.isBefore(firstRetainedDay())) {
+            return null;
+        }
+        List<SpaceSaving> summaries = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            Day day = days.get(date);
+            if (day != null) {
+                summaries.add(summary.apply(day));
+            }
+        }
+        return SpaceSaving.merge(summaries, capacity).top(n);
+    }
+
+    // Runs after the rollup backfill, which may be filling the tables this reads
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        rebuild(LocalDate.now());
+        loaded = true;
+        log.info("Top sellers and products loaded: {} days in {} ms", days.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Rebuild the summaries of the closed days from the rollups. Today keeps its live
+     * summary: its orders are still coming in.
+     */
+    @Scheduled(cron = "${analytics.top-k.rebuild-cron:0 45 2 * * *}")
+    public void rebuildClosedDays() {
+        rebuild(LocalDate.now().minusDays(1));
+    }
+
+    private void rebuild(LocalDate to) {
+        LocalDate from = firstRetainedDay();
+        Map<LocalDate, Day> rebuilt = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = dailySellerStatRepository.streamRevenueByDay(from, to)) {
+                rows.forEach(row -> rebuilt.computeIfAbsent((LocalDate) row[0], date -> new Day(capacity))
+                    .sellers.add((String) row[1], toDouble((BigDecimal) row[2])));
+            }
+            try (Stream<Object[]> rows = dailyProductStatRepository.streamRevenueByDay(from, to)) {
+                rows.forEach(row -> rebuilt.computeIfAbsent((LocalDate) row[0], date -> new Day(capacity))
+                    .products.add((String) row[1], toDouble((BigDecimal) row[2])));
+            }
+        });
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            Day day = rebuilt.get(date);
+            if (day != null) {
+                days.put(date, day);
+            } else {
+                days.remove(date);
+            }
+        }
+        days.keySet().removeIf(date -> date.isBefore(from));
+    }
+
+    private LocalDate firstRetainedDay() {
+        return LocalDate.now().minusDays(retentionDays - 1);
+    }
+
+    private static double toDouble(BigDecimal value) {
+        return value != null ? value.doubleValue() : 0.0;
+    }
+
+    private static final class Day {
+        private final SpaceSaving sellers;
+        private final SpaceSaving products;
+
+        private Day(int capacity) {
+            this.sellers = new SpaceSaving(capacity);
+            this.products = new SpaceSaving(capacity);
+        }
+    }
+}
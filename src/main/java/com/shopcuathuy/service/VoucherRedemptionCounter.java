@@ -0,0 +1,202 @@
+package com.shopcuathuy.service;
+
+import com.shopcuathuy.entity.Voucher;
+import com.shopcuathuy.repository.VoucherRepository;
+import jakarta.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Counts voucher redemptions without making every order update the voucher row.
+ *
+ * A voucher with a {@code totalUsesLimit} hands out uses from a block leased from its row:
+ * one conditional UPDATE moves {@code totalUses} forward by up to {@code lease-size} uses
+ * and never past the limit, and orders then take single uses from the in-memory block with
+ * a CAS. The row therefore never allows more uses than its limit, whatever the number of
+ * orders or app instances. Each flush hands the unused rest of every block, and the uses of
+ * orders that failed, back to the row, so {@code totalUses} runs at most one block per
+ * instance ahead of the real count between flushes.
+ *
+ * A voucher without a limit cannot run out: its redemptions are only counted in memory
+ * and added to {@code totalUses} on the next flush.
+ */
+@Service
+public class VoucherRedemptionCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(VoucherRedemptionCounter.class);
+
+    // Attempts at leasing the uses left when several instances race for the last ones
+    private static final int MAX_LEASE_ATTEMPTS = 3;
+
+    private final VoucherRepository voucherRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int leaseSize;
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public VoucherRedemptionCounter(VoucherRepository voucherRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${voucher.counter.lease-size:20}") int leaseSize) {
+        Assert.isTrue(leaseSize > 0, "voucher.counter.lease-size must be positive");
+        this.voucherRepository = voucherRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.leaseSize = leaseSize;
+    }
+
+    /**
+     * Take one use of a voucher, or return null when its limit is used up. The claim
+     * must be settled with {@link #confirm} once the order has committed with the voucher,
+     * or {@link #release} otherwise. Must be called outside a transaction, so that a
+     * leased block commits even if the caller's order later rolls back.
+     */
+    public Claim claim(Voucher voucher) {
+        Assert.state(!TransactionSynchronizationManager.isActualTransactionActive(),
+            "Voucher uses must be claimed before the order transaction begins");
+        Counter counter = counters.computeIfAbsent(voucher.getId(), id -> new Counter());
+        if (voucher.getTotalUsesLimit() == null) {
+            return new Claim(voucher.getId(), counter, false);
+        }
+        while (true) {
+            int left = counter.leased.get();
+            if (left > 0) {
+                if (counter.leased.compareAndSet(left, left - 1)) {
+                    return new Claim(voucher.getId(), counter, true);
+                }
+                continue;
+            }
+            synchronized (counter) {
+                // Another thread may have leased a block while this one waited
+                if (counter.leased.get() > 0) {
+                    continue;
+                }
+                int granted = lease(voucher.getId());
+                if (granted == 0) {
+                    return null;
+                }
+                counter.leased.addAndGet(granted - 1);
+                return new Claim(voucher.getId(), counter, true);
+            }
+        }
+    }
+
+    /**
+     * Whether a limited voucher can still be redeemed, for listings and previews. Its row's
+     * {@code totalUses} already counts every leased use, so a voucher whose limit is reached on
+     * the row is still available while this instance holds leased uses not handed out yet.
+     * Uses leased by other instances, and released uses not flushed yet, are not seen here:
+     * for up to one flush interval such a voucher may show as used up.
+     */
+    public boolean hasUsesLeft(Voucher voucher) {
+        if (voucher.getTotalUsesLimit() == null) {
+            return true;
+        }
+        Counter counter = counters.get(voucher.getId());
+        if (counter != null && counter.leased.get() > 0) {
+            return true;
+        }
+        return (voucher.getTotalUses() != null ? voucher.getTotalUses() : 0) < voucher.getTotalUsesLimit();
+    }
+
+    private int lease(String voucherId) {
+        Integer granted = transactionTemplate.execute(status -> {
+            int wanted = leaseSize;
+            for (int attempt = 0; attempt < MAX_LEASE_ATTEMPTS; attempt++) {
+                if (voucherRepository.leaseUses(voucherId, wanted) > 0) {
+                    return wanted;
+                }
+                Integer remaining = voucherRepository.findRemainingUses(voucherId);
+                if (remaining == null || remaining <= 0) {
+                    return 0;
+                }
+                wanted = Math.min(leaseSize, remaining);
+            }
+            return 0;
+        });
+        return granted != null ? granted : 0;
+    }
+
+    /**
+     * The order using the claim has committed.
+     */
+    public void confirm(Claim claim) {
+        if (claim.settled.compareAndSet(false, true) && !claim.leased) {
+            claim.counter.pending.incrementAndGet();
+        }
+    }
+
+    /**
+     * The claim was not used: the order failed or the voucher did not apply to it.
+     */
+    public void release(Claim claim) {
+        if (claim.settled.compareAndSet(false, true) && claim.leased) {
+            // The use was already counted on the row when its block was leased
+            claim.counter.pending.decrementAndGet();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${voucher.counter.flush-interval-ms:1000}")
+    public void flush() {
+        Map<String, Integer> batch = new HashMap<>();
+        // Counters stay in the map: removing one could drop a claim racing with the removal
+        counters.forEach((voucherId, counter) -> {
+            int delta;
+            synchronized (counter) {
+                delta = counter.pending.getAndSet(0) - counter.leased.getAndSet(0);
+            }
+            if (delta != 0) {
+                batch.put(voucherId, delta);
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                batch.forEach((voucherId, delta) -> voucherRepository.addUses(voucherId, delta)));
+        } catch (RuntimeException e) {
+            // Keep the deltas for the next flush; handed-back blocks stay counted on the row until then
+            batch.forEach((voucherId, delta) -> counters.get(voucherId).pending.addAndGet(delta));
+            log.warn("Failed to flush {} voucher redemption counters: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private static final class Counter {
+        // Uses of the current block not handed out yet (limited vouchers)
+        private final AtomicInteger leased = new AtomicInteger();
+        // Change to add to totalUses on the next flush
+        private final AtomicInteger pending = new AtomicInteger();
+    }
+
+    public static final class Claim {
+        private final String voucherId;
+        private final Counter counter;
+        private final boolean leased;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Claim(String voucherId, Counter counter, boolean leased) {
+            this.voucherId = voucherId;
+            this.counter = counter;
+            this.leased = leased;
+        }
+
+        public String getVoucherId() {
+            return voucherId;
+        }
+    }
+}
@@ -11,6 +11,7 @@ import com.shopcuathuy.repository.CartItemRepository;
 import com.shopcuathuy.repository.ProductRepository;
 import com.shopcuathuy.repository.ProductVariantRepository;
 import com.shopcuathuy.repository.UserRepository;
+import com.shopcuathuy.service.CartReadModel;
 import com.shopcuathuy.service.CartService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -28,22 +29,24 @@ public class CartServiceImpl implements CartService {
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final ProductVariantRepository productVariantRepository;
+    private final CartReadModel cartReadModel;
 
     @Autowired
     public CartServiceImpl(CartItemRepository cartItemRepository, 
                           ProductRepository productRepository,
                           UserRepository userRepository,
-                          ProductVariantRepository productVariantRepository) {
+                          ProductVariantRepository productVariantRepository,
+                          CartReadModel cartReadModel) {
         this.cartItemRepository = cartItemRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
         this.productVariantRepository = productVariantRepository;
+        this.cartReadModel = cartReadModel;
     }
 
     @Override
     public List<CartItemResponseDTO> getCart(String userId) {
-        List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
-        return cartItems.stream()
+        return cartReadModel.forUser(userId).stream()
             .map(this::convertToDTO)
             .collect(Collectors.toList());
     }
@@ -153,6 +156,26 @@ public class CartServiceImpl implements CartService {
         cartItemRepository.deleteByUserId(userId);
     }
 
+    private CartItemResponseDTO convertToDTO(CartReadModel.Line line) {
+        Product product = line.getProduct();
+        CartItemResponseDTO dto = new CartItemResponseDTO();
+        dto.id = line.getCartItemId();
+        dto.productId = line.getProductId();
+        dto.productName = product.getName();
+        dto.productPrice = product.getPrice() != null ? product.getPrice().doubleValue() : null;
+        dto.productImage = line.getImageUrl();
+        dto.variantId = line.getVariant() != null ? line.getVariant().getId() : null;
+        dto.variantName = line.getVariant() != null ? line.getVariant().getVariantName() : null;
+        dto.variantPrice = line.getVariant() != null && line.getVariant().getVariantPrice() != null
+            ? line.getVariant().getVariantPrice().doubleValue() : null;
+        dto.quantity = line.getQuantity();
+        dto.availableQuantity = line.getAvailableQuantity();
+        dto.unitPrice = line.getUnitPrice() != null ? line.getUnitPrice().doubleValue() : null;
+        dto.priceSource = line.getPriceSource() != null ? line.getPriceSource().name() : null;
+        dto.error = line.getError();
+        return dto;
+    }
+
     public CartItemResponseDTO convertToDTO(CartItem cartItem) {
         CartItemResponseDTO dto = new CartItemResponseDTO();
         dto.id = cartItem.getId();
@@ -11,18 +11,36 @@ import com.shopcuathuy.exception.ResourceNotFoundException;
 import com.shopcuathuy.exception.ForbiddenException;
 import com.shopcuathuy.repository.*;
 import com.shopcuathuy.service.OrderService;
-import com.shopcuathuy.service.OrderDispatchService;
 import com.shopcuathuy.service.NotificationService;
+import com.shopcuathuy.service.InventoryLedger;
+import com.shopcuathuy.service.DailyStatsRollup;
+import com.shopcuathuy.service.OrderPlacedHandler;
+import com.shopcuathuy.service.OrderPlacedNotificationHandler;
+import com.shopcuathuy.service.OutboxService;
+import com.shopcuathuy.service.PriceIndex;
+import com.shopcuathuy.service.StockReservationService;
+import com.shopcuathuy.service.VoucherRedemptionCounter;
+import com.shopcuathuy.util.KeysetCursor;
+import com.shopcuathuy.util.SnowflakeIdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -35,14 +53,20 @@ public class OrderServiceImpl implements OrderService {
     private final UserRepository userRepository;
     private final SellerRepository sellerRepository;
     private final VoucherRepository voucherRepository;
-    private final OrderDispatchService orderDispatchService;
     private final UserAddressRepository userAddressRepository;
     private final NotificationRepository notificationRepository;
-    private final CartItemRepository cartItemRepository;
     private final OrderTimelineRepository orderTimelineRepository;
-    private final PromotionItemRepository promotionItemRepository;
-    private final VoucherUsageRepository voucherUsageRepository;
     private final NotificationService notificationService;
+    private final StockReservationService stockReservationService;
+    private final InventoryLedger inventoryLedger;
+    private final OutboxService outboxService;
+    private final PriceIndex priceIndex;
+    private final VoucherRedemptionCounter voucherRedemptionCounter;
+    private final VoucherUsageRepository voucherUsageRepository;
+    private final DailyStatsRollup dailyStatsRollup;
+    private final SnowflakeIdGenerator idGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
 
     @Autowired
     public OrderServiceImpl(OrderRepository orderRepository,
@@ -50,27 +74,39 @@ public class OrderServiceImpl implements OrderService {
                            UserRepository userRepository,
                            SellerRepository sellerRepository,
                            VoucherRepository voucherRepository,
-                           OrderDispatchService orderDispatchService,
                            UserAddressRepository userAddressRepository,
                            NotificationRepository notificationRepository,
-                           CartItemRepository cartItemRepository,
                            OrderTimelineRepository orderTimelineRepository,
-                           PromotionItemRepository promotionItemRepository,
+                           NotificationService notificationService,
+                           StockReservationService stockReservationService,
+                           InventoryLedger inventoryLedger,
+                           OutboxService outboxService,
+                           PriceIndex priceIndex,
+                           VoucherRedemptionCounter voucherRedemptionCounter,
                            VoucherUsageRepository voucherUsageRepository,
-                           NotificationService notificationService) {
+                           DailyStatsRollup dailyStatsRollup,
+                           SnowflakeIdGenerator idGenerator,
+                           PlatformTransactionManager transactionManager) {
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
         this.sellerRepository = sellerRepository;
         this.voucherRepository = voucherRepository;
-        this.orderDispatchService = orderDispatchService;
         this.userAddressRepository = userAddressRepository;
         this.notificationRepository = notificationRepository;
-        this.cartItemRepository = cartItemRepository;
         this.orderTimelineRepository = orderTimelineRepository;
-        this.promotionItemRepository = promotionItemRepository;
-        this.voucherUsageRepository = voucherUsageRepository;
         this.notificationService = notificationService;
+        this.stockReservationService = stockReservationService;
+        this.inventoryLedger = inventoryLedger;
+        this.outboxService = outboxService;
+        this.priceIndex = priceIndex;
+        this.voucherRedemptionCounter = voucherRedemptionCounter;
+        this.voucherUsageRepository = voucherUsageRepository;
+        this.dailyStatsRollup = dailyStatsRollup;
+        this.idGenerator = idGenerator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     @Override
@@ -118,6 +154,48 @@ public class OrderServiceImpl implements OrderService {
         return result;
     }
 
+    @Override
+    public OrderPageResponseDTO getOrdersAfter(String userId, String userRole, String status, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        LocalDateTime createdAt = after != null ? after.getCreatedAt() : null;
+        String afterId = after != null ? after.getId() : null;
+        Order.OrderStatus orderStatus = null;
+        if (status != null && !status.isEmpty() && !"all".equalsIgnoreCase(status)) {
+            try {
+                orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                // Unknown status: list all, same as the offset endpoint
+            }
+        }
+
+        // Fetch one extra row to learn whether another page exists
+        Pageable limit = org.springframework.data.domain.PageRequest.of(0, size + 1);
+        List<Order> orders;
+        if ("SELLER".equalsIgnoreCase(userRole)) {
+            Seller seller = sellerRepository.findByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Seller not found"));
+            orders = orderRepository.findBySellerIdAfterCursor(seller.getId(), orderStatus, createdAt, afterId, limit);
+        } else {
+            orders = orderRepository.findByCustomerIdAfterCursor(userId, orderStatus, createdAt, afterId, limit);
+        }
+
+        boolean hasNext = orders.size() > size;
+        if (hasNext) {
+            orders = orders.subList(0, size);
+        }
+
+        OrderPageResponseDTO result = new OrderPageResponseDTO();
+        result.content = orders.stream()
+            .map(this::convertToDTO)
+            .collect(Collectors.toList());
+        result.size = size;
+        if (hasNext) {
+            Order last = orders.get(orders.size() - 1);
+            result.nextCursor = KeysetCursor.encode(last.getCreatedAt(), last.getId());
+        }
+        return result;
+    }
+
     @Override
     public OrderResponseDTO getOrderById(String id, String userId) {
         Order order = orderRepository.findById(id)
@@ -161,210 +239,289 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
-    @Transactional
     public OrderResponseDTO createOrder(String userId, CreateOrderRequestDTO request) {
-        User customer = userRepository.findById(userId)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        // Use a more robust order number generation
-        String orderNumber = "ORD-" + System.currentTimeMillis() + "-" + (int)(Math.random() * 900 + 100);
+        return placeOrders(userId, request, false).get(0);
+    }
 
-        Order order = new Order();
-        order.setId(UUID.randomUUID().toString());
-        order.setOrderNumber(orderNumber);
-        order.setCustomer(customer);
-        order.setStatus(Order.OrderStatus.PENDING);
-        order.setPaymentStatus(Order.PaymentStatus.PENDING);
-        order.setShippingStatus(Order.ShippingStatus.PENDING);
-        order.setPaymentMethod(request.paymentMethod);
-        order.setNotes(request.notes);
+    @Override
+    public List<OrderResponseDTO> checkout(String userId, CreateOrderRequestDTO request) {
+        return placeOrders(userId, request, true);
+    }
 
-        // Snapshot recipient info
-        if (request.shippingAddressId != null && !request.shippingAddressId.isEmpty()) {
-            UserAddress address = userAddressRepository.findById(request.shippingAddressId).orElse(null);
-            if (address != null) {
-                order.setRecipientName(address.getFullName());
-                order.setRecipientPhone(address.getPhone());
-                // UserAddress does not have email, using customer email as fallback or null
-                order.setRecipientEmail(customer.getEmail());
-                order.setRecipientAddress(address.getStreet());
-                order.setRecipientProvince(address.getProvince());
-                order.setRecipientDistrict(address.getDistrict());
-                order.setRecipientWard(address.getWard());
+    /**
+     * Runs without a surrounding transaction: stock of all items is reserved and committed first,
+     * so no row locks are held while the orders are priced and saved, and no second connection is
+     * needed. A use of the voucher is claimed the same way. If placing the orders fails, the
+     * reservation and the voucher use are handed back. Order numbers are drawn up front, one per
+     * seller, so the reservation's ledger rows carry the number of the order they belong to.
+     */
+    private List<OrderResponseDTO> placeOrders(String userId, CreateOrderRequestDTO request, boolean splitBySeller) {
+        Map<String, String> sellerByProduct = readOnlyTransaction.execute(status -> validateItems(request, splitBySeller));
+        Map<String, String> orderNumbers = new HashMap<>();
+        List<StockReservationService.Reservation> reserved = stockReservationService.reserve(request.items,
+            productId -> orderNumbers.computeIfAbsent(sellerByProduct.get(productId), sellerId -> idGenerator.nextOrderNumber()));
+        VoucherRedemptionCounter.Claim claim = null;
+        List<OrderResponseDTO> placed;
+        try {
+            claim = claimVoucher(request.voucherCode, userId);
+            VoucherRedemptionCounter.Claim voucherClaim = claim;
+            placed = transactionTemplate.execute(status -> saveOrders(userId, request, reserved, orderNumbers, voucherClaim));
+        } catch (RuntimeException e) {
+            stockReservationService.release(reserved);
+            if (claim != null) {
+                voucherRedemptionCounter.release(claim);
             }
+            throw e;
         }
+        if (claim != null) {
+            // No-op if the voucher turned out not to apply (the claim was released already)
+            voucherRedemptionCounter.confirm(claim);
+        }
+        return placed;
+    }
 
-        BigDecimal subtotal = BigDecimal.ZERO;
+    /**
+     * Claim a use of the voucher unless it is already known not to apply: outside its window,
+     * or used up by this customer. Checks that need the priced orders (minimum purchase) or the
+     * customer's lock run in applyVoucher, which hands the use back when one fails.
+     */
+    private VoucherRedemptionCounter.Claim claimVoucher(String voucherCode, String userId) {
+        if (voucherCode == null || voucherCode.isEmpty()) {
+            return null;
+        }
+        Voucher voucher = voucherRepository.findByCodeAndStatus(voucherCode, Voucher.VoucherStatus.ACTIVE).orElse(null);
+        LocalDateTime now = LocalDateTime.now();
+        if (voucher == null || voucher.getStartDate().isAfter(now) || voucher.getEndDate().isBefore(now)) {
+            return null;
+        }
+        if (voucher.getMaxUsesPerCustomer() != null
+                && voucherUsageRepository.countByVoucherIdAndCustomerId(voucher.getId(), userId) >= voucher.getMaxUsesPerCustomer()) {
+            return null;
+        }
+        return voucherRedemptionCounter.claim(voucher);
+    }
+
+    // Returns the seller of each product
+    private Map<String, String> validateItems(CreateOrderRequestDTO request, boolean splitBySeller) {
+        if (request.items == null || request.items.isEmpty()) {
+            throw new IllegalArgumentException("Đơn hàng phải có ít nhất một sản phẩm.");
+        }
+        Map<String, Product> products = productRepository.findAllById(
+                request.items.stream().map(itemReq -> itemReq.productId).filter(Objects::nonNull).collect(Collectors.toSet()))
+            .stream().collect(Collectors.toMap(Product::getId, p -> p));
         Seller seller = null;
-        
         for (com.shopcuathuy.dto.request.CreateOrderItemRequestDTO itemReq : request.items) {
-            Product product = productRepository.findByIdWithLock(itemReq.productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + itemReq.productId));
-            
-            // Fix Multi-seller Bug: Throw error if multiple sellers are present in one order
+            Product product = products.get(itemReq.productId);
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found: " + itemReq.productId);
+            }
+            if (product.getSeller() == null) {
+                throw new ResourceNotFoundException("Không có sản phẩm hợp lệ trong đơn hàng.");
+            }
+            // A single order belongs to one shop; checkout() splits the cart instead
             if (seller == null) {
                 seller = product.getSeller();
-            } else if (!seller.getId().equals(product.getSeller().getId())) {
+            } else if (!splitBySeller && !seller.getId().equals(product.getSeller().getId())) {
                 throw new IllegalArgumentException("Đơn hàng không thể chứa sản phẩm từ nhiều người bán khác nhau. Vui lòng tách đơn hàng theo từng shop.");
             }
+        }
+        return products.values().stream().collect(Collectors.toMap(Product::getId, p -> p.getSeller().getId()));
+    }
 
-            ProductVariant variant = null;
-            if (itemReq.variantId != null && !itemReq.variantId.isEmpty()) {
-                variant = product.getVariants().stream()
-                    .filter(v -> v.getId().equals(itemReq.variantId))
-                    .findFirst()
-                    .orElseThrow(() -> new ResourceNotFoundException("Variant not found: " + itemReq.variantId));
-                
-                if (variant.getVariantQuantity() < itemReq.quantity) {
-                    throw new IllegalArgumentException("Biến thể '" + variant.getVariantName() + "' đã hết hàng hoặc không đủ số lượng.");
-                }
-                variant.setVariantQuantity(variant.getVariantQuantity() - itemReq.quantity);
-                if (product.getQuantity() >= itemReq.quantity) {
-                    product.setQuantity(product.getQuantity() - itemReq.quantity);
-                }
-            } else {
-                if (product.getQuantity() < itemReq.quantity) {
-                    throw new IllegalArgumentException("Sản phẩm '" + product.getName() + "' đã hết hàng hoặc không đủ số lượng.");
-                }
-                product.setQuantity(product.getQuantity() - itemReq.quantity);
-            }
-            
-            productRepository.save(product);
-            
-            OrderItem item = new OrderItem();
-            item.setId(UUID.randomUUID().toString());
-            item.setOrder(order);
-            item.setProduct(product);
-            item.setVariant(variant);
-            item.setQuantity(itemReq.quantity);
-            
-            BigDecimal unitPrice = (variant != null && variant.getVariantPrice() != null) 
-                ? variant.getVariantPrice() 
-                : product.getPrice();
-            
-            // 1. Priority: Flash Sale Price
-            LocalDateTime now = LocalDateTime.now();
-            if (Boolean.TRUE.equals(product.getFlashSaleEnabled()) && 
-                product.getFlashSalePrice() != null &&
-                product.getFlashSaleStart() != null && product.getFlashSaleEnd() != null &&
-                now.isAfter(product.getFlashSaleStart()) && now.isBefore(product.getFlashSaleEnd()) &&
-                (product.getFlashSaleStock() == null || product.getFlashSaleStock() >= itemReq.quantity)) {
-                
-                unitPrice = product.getFlashSalePrice();
-                
-                // Decrement Flash Sale Stock
-                if (product.getFlashSaleStock() != null) {
-                    product.setFlashSaleStock(product.getFlashSaleStock() - itemReq.quantity);
-                }
-                product.setFlashSaleSold(product.getFlashSaleSold() + itemReq.quantity);
-            } 
-            // 2. Fallback: Standard Promotions
-            else {
-                List<com.shopcuathuy.entity.PromotionItem> activePromotions = promotionItemRepository.findActivePromotionsForProduct(itemReq.productId, itemReq.variantId);
-                if (!activePromotions.isEmpty()) {
-                    com.shopcuathuy.entity.Promotion bestPromo = activePromotions.get(0).getPromotion();
-                    if (bestPromo.getPromotionType() == com.shopcuathuy.entity.Promotion.PromotionType.PERCENTAGE) {
-                        unitPrice = unitPrice.multiply(BigDecimal.ONE.subtract(bestPromo.getDiscountValue().divide(BigDecimal.valueOf(100))));
-                    } else if (bestPromo.getPromotionType() == com.shopcuathuy.entity.Promotion.PromotionType.FIXED_AMOUNT) {
-                        unitPrice = unitPrice.subtract(bestPromo.getDiscountValue());
-                    }
-                    if (unitPrice.compareTo(BigDecimal.ZERO) < 0) unitPrice = BigDecimal.ZERO;
-                }
-            }
-                
-            item.setUnitPrice(unitPrice);
-            item.setTotalPrice(unitPrice.multiply(BigDecimal.valueOf(itemReq.quantity)));
-            
-            // Cart cleanup
-            cartItemRepository.findByUserIdAndProductIdAndVariantId(userId, itemReq.productId, itemReq.variantId)
-                .ifPresent(cartItemRepository::delete);
-            
-            order.getOrderItems().add(item);
-            subtotal = subtotal.add(item.getTotalPrice());
+    private List<OrderResponseDTO> saveOrders(String userId, CreateOrderRequestDTO request,
+                                              List<StockReservationService.Reservation> reserved,
+                                              Map<String, String> orderNumbers,
+                                              VoucherRedemptionCounter.Claim voucherClaim) {
+        User customer = userRepository.findById(userId)
+            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        UserAddress address = request.shippingAddressId != null && !request.shippingAddressId.isEmpty()
+            ? userAddressRepository.findById(request.shippingAddressId).orElse(null)
+            : null;
+
+        // Products were validated before the stock was reserved
+        Map<String, Product> products = productRepository.findAllById(
+                request.items.stream().map(itemReq -> itemReq.productId).collect(Collectors.toSet()))
+            .stream().collect(Collectors.toMap(Product::getId, p -> p));
+        Map<String, StockReservationService.Reservation> reservations = reserved.stream()
+            .collect(Collectors.toMap(r -> r.getProductId() + "|" + Objects.toString(r.getVariantId(), ""), r -> r));
+
+        // One order per seller, in the order the sellers first appear in the cart
+        Map<String, Order> orders = new LinkedHashMap<>();
+        for (com.shopcuathuy.dto.request.CreateOrderItemRequestDTO itemReq : request.items) {
+            Product product = products.get(itemReq.productId);
+            String variantId = itemReq.variantId == null || itemReq.variantId.isEmpty() ? null : itemReq.variantId;
+            Order order = orders.computeIfAbsent(product.getSeller().getId(),
+                sellerId -> newOrder(orderNumbers.get(sellerId), customer, product.getSeller(), address, request));
+            order.getOrderItems().add(buildItem(order, product, variantId, itemReq.quantity,
+                reservations.get(itemReq.productId + "|" + Objects.toString(variantId, ""))));
         }
 
-        if (seller == null) {
-            throw new ResourceNotFoundException("Không có sản phẩm hợp lệ trong đơn hàng.");
+        for (Order order : orders.values()) {
+            order.setSubtotal(order.getOrderItems().stream()
+                .map(OrderItem::getTotalPrice)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+            order.setDiscountAmount(BigDecimal.ZERO);
+        }
+        Voucher appliedVoucher = applyVoucher(voucherClaim, orders.values(), customer);
+        if (voucherClaim != null && appliedVoucher == null) {
+            voucherRedemptionCounter.release(voucherClaim);
         }
-        order.setSeller(seller);
 
-        // 2. Apply voucher: compute discount first; persist VoucherUsage AFTER order is saved
-        BigDecimal discountAmount = BigDecimal.ZERO;
-        Voucher appliedVoucher = null;
-        if (request.voucherCode != null && !request.voucherCode.isEmpty()) {
-            Voucher voucher = voucherRepository.findByCodeAndStatus(request.voucherCode, Voucher.VoucherStatus.ACTIVE).orElse(null);
-            if (voucher != null && isVoucherValid(voucher, subtotal)) {
-                if (voucher.getDiscountType() == Voucher.DiscountType.PERCENTAGE) {
-                    discountAmount = subtotal.multiply(voucher.getDiscountValue()).divide(BigDecimal.valueOf(100));
-                    if (voucher.getMaxDiscount() != null && discountAmount.compareTo(voucher.getMaxDiscount()) > 0) {
-                        discountAmount = voucher.getMaxDiscount();
-                    }
-                } else if (voucher.getDiscountType() == Voucher.DiscountType.FIXED_AMOUNT) {
-                    discountAmount = voucher.getDiscountValue();
-                }
-                if (discountAmount.compareTo(subtotal) > 0) {
-                    discountAmount = subtotal;
-                }
-                appliedVoucher = voucher;
+        for (Map.Entry<String, Order> entry : orders.entrySet()) {
+            Order order = entry.getValue();
+            BigDecimal shippingFee = request.shippingFees != null && request.shippingFees.get(entry.getKey()) != null
+                ? request.shippingFees.get(entry.getKey())
+                : request.shippingFee != null ? request.shippingFee : BigDecimal.valueOf(30000); // Fallback
+            order.setShippingFee(shippingFee);
+            order.setTax(order.getSubtotal().subtract(order.getDiscountAmount()).multiply(BigDecimal.valueOf(0.1)));
+            order.setFinalTotal(order.getSubtotal().subtract(order.getDiscountAmount())
+                .add(order.getShippingFee())
+                .add(order.getTax()));
+        }
+
+        // New entities are persisted, not merged, so orders and items go out as JDBC batches
+        List<Order> saved = orderRepository.saveAll(orders.values());
+
+        // One use per checkout, however many shops' orders share the discount. Written with the
+        // orders while the customer's row is locked, so the next checkout's limit check sees it
+        if (appliedVoucher != null) {
+            List<Order> discounted = saved.stream()
+                .filter(order -> order.getDiscountAmount().signum() > 0)
+                .collect(Collectors.toList());
+            if (!discounted.isEmpty()) {
+                VoucherUsage usage = new VoucherUsage();
+                usage.setVoucher(appliedVoucher);
+                usage.setCustomer(customer);
+                usage.setOrder(discounted.get(0));
+                usage.setDiscountAmount(discounted.stream().map(Order::getDiscountAmount).reduce(BigDecimal.ZERO, BigDecimal::add));
+                usage.setUsedAt(LocalDateTime.now());
+                voucherUsageRepository.save(usage);
             }
         }
 
-        order.setSubtotal(subtotal);
-        order.setDiscountAmount(discountAmount);
-        // Shipping Fee
-        BigDecimal shippingFee = request.shippingFee != null
-            ? request.shippingFee
-            : BigDecimal.valueOf(30000); // Fallback
-        order.setShippingFee(shippingFee);
-        order.setTax(subtotal.subtract(discountAmount).multiply(BigDecimal.valueOf(0.1)));
-        order.setFinalTotal(subtotal.subtract(discountAmount)
-            .add(order.getShippingFee())
-            .add(order.getTax()));
+        // The stock's ledger rows were written with the reservation
+        for (Order order : saved) {
+            dailyStatsRollup.recordPlaced(order);
 
-        order = orderRepository.save(order);
+            // Cart cleanup, timeline, dispatch and notifications run after commit
+            outboxService.enqueue(OrderPlacedHandler.EVENT_TYPE, order.getId(), null);
+            outboxService.enqueue(OrderPlacedNotificationHandler.EVENT_TYPE, order.getId(), null);
+        }
 
-        // Persist voucher usage AFTER order has an id, so FK to orders is satisfied
-        if (appliedVoucher != null) {
-            appliedVoucher.setTotalUses(appliedVoucher.getTotalUses() + 1);
-            voucherRepository.save(appliedVoucher);
+        return saved.stream().map(this::convertToDTO).collect(Collectors.toList());
+    }
+
+    private Order newOrder(String orderNumber, User customer, Seller seller, UserAddress address,
+                           CreateOrderRequestDTO request) {
+        Order order = new Order();
+        order.setOrderNumber(orderNumber);
+        order.setCustomer(customer);
+        order.setSeller(seller);
+        order.setStatus(Order.OrderStatus.PENDING);
+        order.setPaymentStatus(Order.PaymentStatus.PENDING);
+        order.setShippingStatus(Order.ShippingStatus.PENDING);
+        order.setPaymentMethod(request.paymentMethod);
+        order.setNotes(request.notes);
 
-            com.shopcuathuy.entity.VoucherUsage usage = new com.shopcuathuy.entity.VoucherUsage();
-            usage.setId(UUID.randomUUID().toString());
-            usage.setVoucher(appliedVoucher);
-            usage.setCustomer(customer);
-            usage.setOrder(order);
-            usage.setDiscountAmount(discountAmount);
-            usage.setUsedAt(java.time.LocalDateTime.now());
-            voucherUsageRepository.save(usage);
+        // Snapshot recipient info
+        if (address != null) {
+            order.setRecipientName(address.getFullName());
+            order.setRecipientPhone(address.getPhone());
+            // UserAddress does not have email, using customer email as fallback or null
+            order.setRecipientEmail(customer.getEmail());
+            order.setRecipientAddress(address.getStreet());
+            order.setRecipientProvince(address.getProvince());
+            order.setRecipientDistrict(address.getDistrict());
+            order.setRecipientWard(address.getWard());
         }
+        return order;
+    }
 
-        // Add to timeline
-        addTimelineEntry(order, "CONFIRMED", "Đơn hàng được đặt thành công.", "customer");
-        
-        // Send notifications
-        notificationService.createAndDispatch(customer, Notification.NotificationType.ORDER_STATUS, "Đặt hàng thành công", 
-            "Đơn hàng #" + order.getOrderNumber() + " của bạn đã được tiếp nhận.", "/orders/" + order.getId(), order.getId(), null);
+    private OrderItem buildItem(Order order, Product product, String variantId, int quantity,
+                                StockReservationService.Reservation reservation) {
+        ProductVariant variant = null;
+        if (variantId != null) {
+            variant = product.getVariants().stream()
+                .filter(v -> v.getId().equals(variantId))
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Variant not found: " + variantId));
+        }
+
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setProduct(product);
+        item.setVariant(variant);
+        item.setQuantity(quantity);
+
+        // Flash-sale price if the units were claimed together with the stock, else the best promotion
+        BigDecimal unitPrice = priceIndex.quote(product, variant, LocalDateTime.now(), reservation.isFlashSale()).getPrice();
 
-        if (seller != null && seller.getUser() != null) {
-            notificationService.createAndDispatch(seller.getUser(), Notification.NotificationType.ORDER_NEW, "Đơn hàng mới", 
-                "Bạn có đơn hàng mới #" + order.getOrderNumber() + " từ " + customer.getFullName(), "/seller/orders/" + order.getId(), order.getId(), null);
+        item.setUnitPrice(unitPrice);
+        item.setTotalPrice(unitPrice.multiply(BigDecimal.valueOf(quantity)));
+        item.setFlashSale(reservation.isFlashSale());
+        return item;
+    }
+
+    /**
+     * Apply the claimed voucher to the orders of one checkout and return it, or null if it does not apply.
+     * A shop voucher only discounts that shop's order. A platform voucher (no seller) is checked
+     * against the combined subtotal and its discount is split across the orders in proportion to
+     * their subtotals; the last order takes the rounding remainder.
+     */
+    private Voucher applyVoucher(VoucherRedemptionCounter.Claim claim, Collection<Order> orders, User customer) {
+        if (claim == null) {
+            return null;
+        }
+        Voucher voucher = voucherRepository.findById(claim.getVoucherId()).orElse(null);
+        if (voucher == null) {
+            return null;
+        }
+        List<Order> eligible = orders.stream()
+            .filter(order -> voucher.getSeller() == null || voucher.getSeller().getId().equals(order.getSeller().getId()))
+            .collect(Collectors.toList());
+        BigDecimal subtotal = eligible.stream().map(Order::getSubtotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (eligible.isEmpty() || !isVoucherValid(voucher, subtotal)) {
+            return null;
+        }
+        if (voucher.getMaxUsesPerCustomer() != null) {
+            // Held until the order transaction commits: a concurrent checkout of the same customer
+            // waits here and then counts this one's use
+            userRepository.findByIdForUpdate(customer.getId());
+            if (voucherUsageRepository.countByVoucherIdAndCustomerId(voucher.getId(), customer.getId()) >= voucher.getMaxUsesPerCustomer()) {
+                return null;
+            }
         }
 
-        try {
-            orderDispatchService.dispatchOrder(order.getId());
-        } catch (Exception e) {
-            org.slf4j.LoggerFactory.getLogger(OrderServiceImpl.class)
-                .error("Failed to dispatch order {}: {}", order.getId(), e.getMessage());
+        BigDecimal discountAmount = BigDecimal.ZERO;
+        if (voucher.getDiscountType() == Voucher.DiscountType.PERCENTAGE) {
+            discountAmount = subtotal.multiply(voucher.getDiscountValue()).divide(BigDecimal.valueOf(100));
+            if (voucher.getMaxDiscount() != null && discountAmount.compareTo(voucher.getMaxDiscount()) > 0) {
+                discountAmount = voucher.getMaxDiscount();
+            }
+        } else if (voucher.getDiscountType() == Voucher.DiscountType.FIXED_AMOUNT) {
+            discountAmount = voucher.getDiscountValue();
         }
-        
-        return convertToDTO(order);
+        if (discountAmount.compareTo(subtotal) > 0) {
+            discountAmount = subtotal;
+        }
+
+        BigDecimal remaining = discountAmount;
+        for (int i = 0; i < eligible.size(); i++) {
+            Order order = eligible.get(i);
+            BigDecimal share = i == eligible.size() - 1 || subtotal.signum() == 0
+                ? remaining
+                : discountAmount.multiply(order.getSubtotal()).divide(subtotal, 2, RoundingMode.DOWN);
+            order.setDiscountAmount(share);
+            remaining = remaining.subtract(share);
+        }
+        return voucher;
     }
 
     private boolean isVoucherValid(Voucher voucher, BigDecimal subtotal) {
         LocalDateTime now = LocalDateTime.now();
         if (voucher.getStartDate().isAfter(now) || voucher.getEndDate().isBefore(now)) return false;
         if (voucher.getMinPurchaseAmount() != null && subtotal.compareTo(voucher.getMinPurchaseAmount()) < 0) return false;
-        if (voucher.getTotalUsesLimit() != null && voucher.getTotalUses() >= voucher.getTotalUsesLimit()) return false;
+        // The total uses limit is enforced when the use is claimed (VoucherRedemptionCounter)
         return true;
     }
 
@@ -384,23 +541,28 @@ public class OrderServiceImpl implements OrderService {
         }
 
         // Return inventory
+        List<StockReservationService.Reservation> restock = new ArrayList<>();
         for (OrderItem item : order.getOrderItems()) {
             Product product = item.getProduct();
             if (product != null) {
-                if (item.getVariant() != null) {
-                    ProductVariant variant = item.getVariant();
-                    variant.setVariantQuantity(variant.getVariantQuantity() + item.getQuantity());
-                }
-                product.setQuantity(product.getQuantity() + item.getQuantity());
-                productRepository.save(product);
+                // Units claimed from a flash sale go back to it, whatever its price or window is now
+                restock.add(StockReservationService.Reservation.forRestock(product.getId(),
+                    item.getVariant() != null ? item.getVariant().getId() : null, item.getQuantity(),
+                    Boolean.TRUE.equals(item.getFlashSale()), order.getOrderNumber()));
             }
         }
+        stockReservationService.restock(restock);
 
+        Order.OrderStatus oldStatus = order.getStatus();
         order.setStatus(Order.OrderStatus.CANCELLED);
         order = orderRepository.save(order);
+        dailyStatsRollup.recordStatusChange(order, oldStatus);
+
+        String actor = userId != null && userId.equals(order.getCustomer().getId()) ? "customer" : "seller";
+        inventoryLedger.recordReservations(restock, 1, InventoryHistory.REASON_RETURN, actor);
 
         // Add to timeline
-        addTimelineEntry(order, "CANCELLED", "Đơn hàng đã bị hủy.", userId != null && userId.equals(order.getCustomer().getId()) ? "customer" : "seller");
+        addTimelineEntry(order, "CANCELLED", "Đơn hàng đã bị hủy.", actor);
 
         // Notification for customer
         notificationService.createAndDispatch(order.getCustomer(), Notification.NotificationType.ORDER_STATUS, "Đơn hàng đã hủy", 
@@ -448,6 +610,7 @@ public class OrderServiceImpl implements OrderService {
         }
         
         order = orderRepository.save(order);
+        dailyStatsRollup.recordStatusChange(order, oldStatus);
 
         // Add to timeline and send notifications for changes
         if (request.status != null && !oldStatus.equals(order.getStatus())) {
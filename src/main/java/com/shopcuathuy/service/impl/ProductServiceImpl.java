@@ -1,17 +1,25 @@
 package com.shopcuathuy.service.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shopcuathuy.dto.request.UpdateProductRequestDTO;
 import com.shopcuathuy.dto.response.ProductPageResponseDTO;
 import com.shopcuathuy.dto.response.ProductResponseDTO;
+import com.shopcuathuy.entity.InventoryHistory;
 import com.shopcuathuy.entity.Product;
+import com.shopcuathuy.entity.ProductDailyView;
 import com.shopcuathuy.entity.ProductVariant;
 import com.shopcuathuy.entity.ProductImage;
 import com.shopcuathuy.entity.Seller;
 import com.shopcuathuy.exception.ResourceNotFoundException;
 import com.shopcuathuy.exception.ForbiddenException;
 import com.shopcuathuy.repository.*;
+import com.shopcuathuy.service.InventoryLedger;
+import com.shopcuathuy.service.ProductDetailCache;
+import com.shopcuathuy.service.ProductSearchIndex;
 import com.shopcuathuy.service.ProductService;
+import com.shopcuathuy.service.ProductViewCounter;
+import com.shopcuathuy.util.ImageUrls;
+import com.shopcuathuy.util.KeysetCursor;
+import com.shopcuathuy.util.VariantOptionParser;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -38,6 +46,11 @@ public class ProductServiceImpl implements ProductService {
     private final SellerRepository sellerRepository; // Added
     private final ProductImageRepository productImageRepository; // Added
     private final ProductVariantRepository productVariantRepository; // Added
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductDetailCache productDetailCache;
+    private final ProductViewCounter productViewCounter;
+    private final ProductDailyViewRepository productDailyViewRepository;
+    private final InventoryLedger inventoryLedger;
 
     @Autowired
     public ProductServiceImpl(ProductRepository productRepository,
@@ -45,43 +58,93 @@ public class ProductServiceImpl implements ProductService {
                               CategoryRepository categoryRepository, // Added
                               SellerRepository sellerRepository, // Added
                               ProductImageRepository productImageRepository, // Added
-                              ProductVariantRepository productVariantRepository) { // Added
+                              ProductVariantRepository productVariantRepository, // Added
+                              ProductSearchIndex productSearchIndex,
+                              ProductDetailCache productDetailCache,
+                              ProductViewCounter productViewCounter,
+                              ProductDailyViewRepository productDailyViewRepository,
+                              InventoryLedger inventoryLedger) {
         this.productRepository = productRepository;
         this.orderItemRepository = orderItemRepository;
         this.categoryRepository = categoryRepository; // Added
         this.sellerRepository = sellerRepository; // Added
         this.productImageRepository = productImageRepository; // Added
         this.productVariantRepository = productVariantRepository; // Added
+        this.productSearchIndex = productSearchIndex;
+        this.productDetailCache = productDetailCache;
+        this.productViewCounter = productViewCounter;
+        this.productDailyViewRepository = productDailyViewRepository;
+        this.inventoryLedger = inventoryLedger;
     }
 
     @Override
     public ProductResponseDTO getProductById(String id) {
-        Product product = productRepository.findById(id)
-            .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
-        return convertToDTO(product);
+        ProductResponseDTO dto = productDetailCache.get(id, key -> {
+            Product product = productRepository.findById(key)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + key));
+            return convertToDTO(product);
+        });
+        productViewCounter.record(id);
+        return dto;
     }
 
     @Override
     @Transactional(readOnly = true)
     @Cacheable(
         value = "products:search",
-        key = "'k=' + #keyword + ':p=' + #page + ':s=' + #size + ':c=' + #categoryId + ':min=' + #minPrice + ':max=' + #maxPrice + ':r=' + #minRating + ':sb=' + #sortBy + ':d=' + #direction",
-        unless = "#result == null || #result.content == null"
+        key = "'k=' + #keyword + ':p=' + #page + ':s=' + #size + ':c=' + #categoryId + ':min=' + #minPrice + ':max=' + #maxPrice + ':r=' + #minRating + ':sb=' + #sortBy + ':d=' + #direction + ':f=' + #includeFacets",
+        unless = "#result == null || #result.content == null || (#includeFacets && #result.facets == null)"
     )
     public ProductPageResponseDTO searchProducts(String keyword, int page, int size, 
                                                 String categoryId, Double minPrice, Double maxPrice, 
-                                                Double minRating, String sortBy, String direction) {
+                                                Double minRating, String sortBy, String direction,
+                                                boolean includeFacets) {
+        String searchKeyword = (keyword == null || keyword.trim().isEmpty()) ? null : keyword.trim();
+
+        // Keyword searches are ranked by the in-memory index, facets counted in the same pass;
+        // the DB only hydrates the page
+        if (searchKeyword != null && productSearchIndex.isReady()) {
+            ProductSearchIndex.SearchResult hits = productSearchIndex.search(
+                searchKeyword, categoryId, minPrice, maxPrice, minRating, sortBy, direction, page, size, includeFacets);
+            List<ProductResponseDTO> content = loadInOrder(hits.productIds).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+            ProductPageResponseDTO result = new ProductPageResponseDTO(
+                content,
+                hits.totalHits,
+                size > 0 ? (hits.totalHits + size - 1) / size : 0,
+                size,
+                page
+            );
+            result.facets = hits.facets;
+            return result;
+        }
+
+        ProductPageResponseDTO result = searchProductPage(searchKeyword, page, size, categoryId, minPrice, maxPrice,
+            minRating, sortBy, direction);
+        if (includeFacets && searchKeyword == null && productSearchIndex.isReady()) {
+            result.facets = productSearchIndex.facets(categoryId, minPrice, maxPrice, minRating);
+        }
+        return result;
+    }
+
+    private ProductPageResponseDTO searchProductPage(String searchKeyword, int page, int size,
+                                                     String categoryId, Double minPrice, Double maxPrice,
+                                                     Double minRating, String sortBy, String direction) {
+
+        if ("relevance".equalsIgnoreCase(sortBy)) {
+            sortBy = "createdAt";
+        }
         Sort sort = Sort.by("ASC".equalsIgnoreCase(direction) ? Sort.Direction.ASC : Sort.Direction.DESC, sortBy);
         Pageable pageable = PageRequest.of(page, size, sort);
         
         BigDecimal min = minPrice != null ? BigDecimal.valueOf(minPrice) : null;
         BigDecimal max = maxPrice != null ? BigDecimal.valueOf(maxPrice) : null;
         BigDecimal rating = minRating != null ? BigDecimal.valueOf(minRating) : null;
-        String searchKeyword = (keyword == null || keyword.trim().isEmpty()) ? null : keyword.trim();
 
-        Page<Product> products = productRepository.searchProductsWithFilters(
+        Page<Product> products = hydrate(productRepository.searchProductIdsWithFilters(
             Product.ProductStatus.ACTIVE, searchKeyword, categoryId, min, max, rating, pageable
-        );
+        ));
         
         return convertToPageResponseDTO(products.map(this::convertToDTO));
     }
@@ -109,9 +172,9 @@ public class ProductServiceImpl implements ProductService {
         BigDecimal max = maxPrice != null ? BigDecimal.valueOf(maxPrice) : null;
         BigDecimal rating = minRating != null ? BigDecimal.valueOf(minRating) : null;
 
-        Page<Product> products = productRepository.findByCategorySlugWithFilters(
+        Page<Product> products = hydrate(productRepository.findIdsByCategorySlugWithFilters(
             slug, Product.ProductStatus.ACTIVE, min, max, rating, pageable
-        );
+        ));
         
         // Final subcategory text filter if needed (rarely used, most filtering is via slug)
         if (subcategory != null && !subcategory.isEmpty()) {
@@ -141,7 +204,7 @@ public class ProductServiceImpl implements ProductService {
     )
     public ProductPageResponseDTO getFeaturedProducts(int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<Product> products = productRepository.findFeaturedProducts(Product.ProductStatus.ACTIVE, pageable);
+        Page<Product> products = hydrate(productRepository.findFeaturedProductIds(Product.ProductStatus.ACTIVE, pageable));
         return convertToPageResponseDTO(products.map(this::convertToDTO));
     }
 
@@ -154,7 +217,7 @@ public class ProductServiceImpl implements ProductService {
     )
     public ProductPageResponseDTO getFlashSaleProducts(int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<Product> products = productRepository.findFlashSaleProducts(Product.ProductStatus.ACTIVE, pageable);
+        Page<Product> products = hydrate(productRepository.findFlashSaleProductIds(Product.ProductStatus.ACTIVE, pageable));
         return convertToPageResponseDTO(products.map(this::convertToDTO));
     }
 
@@ -168,6 +231,32 @@ public class ProductServiceImpl implements ProductService {
         return convertToPageResponseDTO(productPage);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ProductPageResponseDTO getAllProductsAfter(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        // Fetch one extra key to learn whether another page exists
+        List<Object[]> keys = productRepository.findKeysByStatusAfterCursor(
+            Product.ProductStatus.ACTIVE,
+            after != null ? after.getCreatedAt() : null,
+            after != null ? after.getId() : null,
+            PageRequest.of(0, size + 1));
+        boolean hasNext = keys.size() > size;
+        List<Object[]> pageKeys = hasNext ? keys.subList(0, size) : keys;
+        List<String> ids = pageKeys.stream().map(key -> (String) key[0]).collect(Collectors.toList());
+        List<Product> products = loadInOrder(ids);
+
+        ProductPageResponseDTO result = new ProductPageResponseDTO();
+        result.content = products.stream().map(this::convertToDTO).collect(Collectors.toList());
+        result.size = size;
+        if (hasNext && !pageKeys.isEmpty()) {
+            // From the id page, not the hydrated products: one gone since the seek must not move the cursor back
+            Object[] last = pageKeys.get(pageKeys.size() - 1);
+            result.nextCursor = KeysetCursor.encode((LocalDateTime) last[1], (String) last[0]);
+        }
+        return result;
+    }
+
     @Override
     @Transactional
     public ProductResponseDTO createProduct(String sellerId, com.shopcuathuy.dto.request.CreateProductRequestDTO request) {
@@ -195,6 +284,7 @@ public class ProductServiceImpl implements ProductService {
         product.setTotalViews(0);
         
         product = productRepository.save(product);
+        inventoryLedger.recordAdjustment(product.getId(), null, 0, product.getQuantity(), "Tạo sản phẩm", "seller");
         
         // Handle images if provided
         if (request.images != null && !request.images.isEmpty()) {
@@ -211,6 +301,33 @@ public class ProductServiceImpl implements ProductService {
         return convertToDTO(product);
     }
 
+    /**
+     * Second phase of a listing: batch-load the products of an id page,
+     * keeping the page order and totals
+     */
+    private Page<Product> hydrate(Page<String> idPage) {
+        return new PageImpl<>(loadInOrder(idPage.getContent()), idPage.getPageable(), idPage.getTotalElements());
+    }
+
+    /**
+     * Load products by id, keeping the order of the given ids
+     */
+    private List<Product> loadInOrder(List<String> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<String, Product> byId = productRepository.findByIdInWithImages(ids).stream()
+            .collect(Collectors.toMap(Product::getId, p -> p));
+        List<Product> ordered = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Product product = byId.get(id);
+            if (product != null) {
+                ordered.add(product);
+            }
+        }
+        return ordered;
+    }
+
     /**
      * Convert Page to ProductPageResponseDTO
      */
@@ -241,7 +358,10 @@ public class ProductServiceImpl implements ProductService {
         if (request.name != null) existing.setName(request.name);
         if (request.description != null) existing.setDescription(request.description);
         if (request.price != null) existing.setPrice(java.math.BigDecimal.valueOf(request.price));
-        if (request.quantity != null) existing.setQuantity(request.quantity);
+        if (request.quantity != null) {
+            inventoryLedger.recordAdjustment(id, null, existing.getQuantity(), request.quantity, "Cập nhật tồn kho", "seller");
+            existing.setQuantity(request.quantity);
+        }
         if (request.status != null) {
             try {
                 existing.setStatus(Product.ProductStatus.valueOf(request.status));
@@ -251,6 +371,7 @@ public class ProductServiceImpl implements ProductService {
         }
         
         existing = productRepository.save(existing);
+        productDetailCache.invalidate(id);
         return convertToDTO(existing);
     }
 
@@ -269,6 +390,7 @@ public class ProductServiceImpl implements ProductService {
         }
         
         productRepository.delete(existing);
+        productDetailCache.invalidate(id);
     }
 
     // Make this method public so it can be used by other controllers
@@ -318,7 +440,7 @@ public class ProductServiceImpl implements ProductService {
         dto.sellerName = product.getSeller() != null ? product.getSeller().getShopName() : null;
         dto.images = product.getImages() != null ? 
             product.getImages().stream()
-                .map(img -> convertImageUrlToProxy(img.getImageUrl()))
+                .map(img -> ImageUrls.toPublicUrl(img.getImageUrl()))
                 .collect(Collectors.toList()) : 
             java.util.Collections.emptyList();
         dto.primaryImage = dto.images.isEmpty() ? null : dto.images.get(0);
@@ -337,72 +459,9 @@ public class ProductServiceImpl implements ProductService {
         return dto;
     }
 
-    /**
-     * Convert MinIO URL to proxy URL for frontend
-     * Example: http://localhost:9000/shopcuathuy/images/xxx.webp -> /api/upload/image/images/xxx.webp
-     */
-    private String convertImageUrlToProxy(String imageUrl) {
-        if (imageUrl == null || imageUrl.isEmpty()) {
-            return null;
-        }
-        
-        // If it's an absolute URL that is not from MinIO, return as-is
-        if ((imageUrl.startsWith("http://") || imageUrl.startsWith("https://"))
-                && !imageUrl.contains("localhost:9000")
-                && !imageUrl.contains("minio")) {
-            return imageUrl;
-        }
-        
-        // If already a proxy URL, return as is
-        if (imageUrl.startsWith("/api/upload/image/")) {
-            return imageUrl;
-        }
-        
-        // If it's a MinIO URL, extract object path and convert to proxy URL
-        if (imageUrl.contains("localhost:9000") || imageUrl.contains("minio")) {
-            try {
-                java.net.URL url = java.net.URI.create(imageUrl).toURL();
-                String path = url.getPath();
-                // Remove leading slash and bucket name
-                // Example: /shopcuathuy/images/xxx.webp -> images/xxx.webp
-                String[] parts = path.split("/");
-                if (parts.length > 2) {
-                    // Skip empty first part and bucket name, join the rest
-                    StringBuilder objectPath = new StringBuilder();
-                    for (int i = 2; i < parts.length; i++) {
-                        if (objectPath.length() > 0) {
-                            objectPath.append("/");
-                        }
-                        objectPath.append(parts[i]);
-                    }
-                    return "/api/upload/image/" + objectPath.toString();
-                }
-            } catch (Exception e) {
-                // If URL parsing fails, try simple string replacement
-                if (imageUrl.contains("/shopcuathuy/")) {
-                    String objectPath = imageUrl.substring(imageUrl.indexOf("/shopcuathuy/") + "/shopcuathuy/".length());
-                    return "/api/upload/image/" + objectPath;
-                }
-            }
-        }
-        
-        // If it's already a relative path, ensure it has the proxy prefix
-        if (imageUrl.startsWith("/") && !imageUrl.startsWith("/api/")) {
-            // If it starts with / but not /api/, it might be a direct path
-            // Check if it looks like an image path
-            if (imageUrl.contains("images/") || imageUrl.contains("products/") || imageUrl.contains("videos/")) {
-                // Remove leading slash and add proxy prefix
-                return "/api/upload/image" + imageUrl;
-            }
-        }
-        
-        // Default: assume it's an object name and add proxy prefix
-        return "/api/upload/image/" + imageUrl;
-    }
-
     /**
      * Convert ProductVariant list to Map format for frontend
-     * Extract unique sizes and colors from variants
+     * Collect unique sizes and colors from the options parsed when each variant was saved
      */
     private Map<String, Object> convertVariantsToMap(List<ProductVariant> variants) {
         if (variants == null || variants.isEmpty()) {
@@ -411,57 +470,9 @@ public class ProductServiceImpl implements ProductService {
 
         Set<String> sizes = new LinkedHashSet<>();
         Set<String> colors = new LinkedHashSet<>();
-        ObjectMapper objectMapper = new ObjectMapper();
-
         for (ProductVariant variant : variants) {
-            // Parse attributes JSON to extract size and color
-            if (variant.getAttributes() != null && !variant.getAttributes().isEmpty()) {
-                try {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> attrs = objectMapper.readValue(variant.getAttributes(), Map.class);
-                    if (attrs.containsKey("size")) {
-                        String size = String.valueOf(attrs.get("size"));
-                        if (size != null && !size.isEmpty() && !"null".equals(size)) {
-                            sizes.add(size);
-                        }
-                    }
-                    if (attrs.containsKey("color")) {
-                        String color = String.valueOf(attrs.get("color"));
-                        if (color != null && !color.isEmpty() && !"null".equals(color)) {
-                            colors.add(color);
-                        }
-                    }
-                } catch (Exception e) {
-                    // If JSON parsing fails, try to extract from variant name
-                    String variantName = variant.getVariantName();
-                    if (variantName != null) {
-                        // Try to parse "Color - Size" format
-                        String[] parts = variantName.split("\\s*-\\s*");
-                        for (String part : parts) {
-                            part = part.trim();
-                            // Common size patterns
-                            if (part.matches("(?i)^(XS|S|M|L|XL|XXL|XXXL|\\d+)$")) {
-                                sizes.add(part);
-                            } else if (part.length() > 0) {
-                                // Assume it's a color
-                                colors.add(part);
-                            }
-                        }
-                    }
-                }
-            } else if (variant.getVariantName() != null) {
-                // Fallback: parse variant name
-                String variantName = variant.getVariantName();
-                String[] parts = variantName.split("\\s*-\\s*");
-                for (String part : parts) {
-                    part = part.trim();
-                    if (part.matches("(?i)^(XS|S|M|L|XL|XXL|XXXL|\\d+)$")) {
-                        sizes.add(part);
-                    } else if (part.length() > 0) {
-                        colors.add(part);
-                    }
-                }
-            }
+            sizes.addAll(VariantOptionParser.values(variant.getOptionSize()));
+            colors.addAll(VariantOptionParser.values(variant.getOptionColor()));
         }
 
         Map<String, Object> result = new HashMap<>();
@@ -482,15 +493,16 @@ public class ProductServiceImpl implements ProductService {
         dto.variantSku = variant.getVariantSku();
         dto.variantPrice = variant.getVariantPrice() != null ? variant.getVariantPrice().doubleValue() : null;
         dto.variantQuantity = variant.getVariantQuantity();
-        dto.variantImage = convertImageUrlToProxy(variant.getVariantImage());
+        dto.variantImage = ImageUrls.toPublicUrl(variant.getVariantImage());
         dto.attributes = variant.getAttributes();
         return dto;
     }
 
     @Override
     public Map<String, Object> getProductStats(String productId, int days) {
-        Product product = productRepository.findById(productId)
-            .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product not found");
+        }
 
         LocalDateTime endDate = LocalDateTime.now();
         LocalDateTime startDate = endDate.minusDays(days);
@@ -499,9 +511,6 @@ public class ProductServiceImpl implements ProductService {
         List<Object[]> salesData = orderItemRepository.findSalesByProductIdAndDateRange(
             productId, startDate, endDate);
 
-        // Get views data (if stored in product entity or separate table)
-        // For now, use totalViews from product entity
-        
         List<Map<String, Object>> salesDataList = new ArrayList<>();
         List<Map<String, Object>> viewsDataList = new ArrayList<>();
 
@@ -528,11 +537,14 @@ public class ProductServiceImpl implements ProductService {
             salesDataList.add(salesPoint);
         }
 
-        // Views data - simplified (would need view tracking table in production)
-        Map<String, Object> viewsPoint = new HashMap<>();
-        viewsPoint.put("date", endDate.toLocalDate().toString());
-        viewsPoint.put("views", product.getTotalViews() != null ? product.getTotalViews() : 0);
-        viewsDataList.add(viewsPoint);
+        // Views per day, as flushed by ProductViewCounter
+        for (ProductDailyView day : productDailyViewRepository.findByProductIdAndViewDateBetweenOrderByViewDateAsc(
+                productId, startDate.toLocalDate(), endDate.toLocalDate())) {
+            Map<String, Object> viewsPoint = new HashMap<>();
+            viewsPoint.put("date", day.getViewDate().toString());
+            viewsPoint.put("views", day.getViews());
+            viewsDataList.add(viewsPoint);
+        }
 
         Map<String, Object> result = new HashMap<>();
         result.put("salesData", salesDataList);
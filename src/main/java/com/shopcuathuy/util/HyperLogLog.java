@@ -0,0 +1,134 @@
+package com.shopcuathuy.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog sketch of a set of strings: estimates how many distinct values were added
+ * in a fixed 4 KB, and two sketches merge into the sketch of the union of their sets
+ * with no loss, so one sketch per seller and day answers any range of days.
+ *
+ * Error bound: with 2^12 registers the standard error is 1.04 / sqrt(4096) ≈ 1.6%, so
+ * about two estimates in three fall within ±1.6% of the true count and 95% within
+ * ±3.3%. Between roughly 8 000 and 16 000 values, where the estimate hands over from
+ * linear counting to the harmonic mean, the standard error rises to about 2% (95%
+ * within ±4%). Up to a few dozen values the count is exact or off by one.
+ *
+ * Sketches are stored sparse (index and value of each set register) while few registers
+ * are set, so the sketch of a quiet day takes a few bytes.
+ */
+public final class HyperLogLog {
+
+    public static final int PRECISION = 12;
+    public static final int REGISTERS = 1 << PRECISION;
+    // Serialized size of a dense sketch: format byte and one byte per register
+    public static final int MAX_BYTES = 1 + REGISTERS;
+
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+
+    private final byte[] registers = new byte[REGISTERS];
+
+    public void add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        long rest = hash << PRECISION;
+        // Position of the first 1-bit after the index bits
+        int rank = rest == 0 ? Long.SIZE - PRECISION + 1 : Long.numberOfLeadingZeros(rest) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int empty = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                empty++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (empty > 0) {
+            // Linear counting over the empty registers is the better estimate for small sets
+            double linear = REGISTERS * Math.log((double) REGISTERS / empty);
+            if (linear <= 3 * REGISTERS) {
+                estimate = linear;
+            }
+        }
+        // 64-bit hashes: no correction needed for large counts
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        int used = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                used++;
+            }
+        }
+        if (used * 3 < REGISTERS) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 + used * 3).put(SPARSE);
+            for (int i = 0; i < REGISTERS; i++) {
+                if (registers[i] != 0) {
+                    buffer.putShort((short) i).put(registers[i]);
+                }
+            }
+            return buffer.array();
+        }
+        return ByteBuffer.allocate(MAX_BYTES).put(DENSE).put(registers).array();
+    }
+
+    /**
+     * Read a sketch written by {@link #toBytes}; null or empty input gives an empty sketch.
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        HyperLogLog sketch = new HyperLogLog();
+        if (bytes == null || bytes.length == 0) {
+            return sketch;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte format = buffer.get();
+        if (format == DENSE && bytes.length == MAX_BYTES) {
+            buffer.get(sketch.registers);
+        } else if (format == SPARSE && (bytes.length - 1) % 3 == 0) {
+            while (buffer.hasRemaining()) {
+                int index = Short.toUnsignedInt(buffer.getShort());
+                byte register = buffer.get();
+                if (index >= REGISTERS) {
+                    throw new IllegalArgumentException("Malformed HyperLogLog sketch");
+                }
+                sketch.registers[index] = register;
+            }
+        } else {
+            throw new IllegalArgumentException("Malformed HyperLogLog sketch");
+        }
+        return sketch;
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer so every
+    // input bit reaches the index bits
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe1a85ec3L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
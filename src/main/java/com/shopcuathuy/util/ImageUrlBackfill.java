@@ -0,0 +1,57 @@
+package com.shopcuathuy.util;
+
+import com.shopcuathuy.entity.ProductImage;
+import com.shopcuathuy.entity.ProductVariant;
+import com.shopcuathuy.repository.ProductImageRepository;
+import com.shopcuathuy.repository.ProductVariantRepository;
+import java.util.List;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * One-off rewrite of product and variant image URLs stored before they were
+ * canonicalized on save (see {@link ImageUrls}). Finds nothing once all rows are migrated.
+ */
+@Component
+public class ImageUrlBackfill implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageUrlBackfill.class);
+
+    private final ProductImageRepository productImageRepository;
+    private final ProductVariantRepository productVariantRepository;
+
+    public ImageUrlBackfill(ProductImageRepository productImageRepository,
+                            ProductVariantRepository productVariantRepository) {
+        this.productImageRepository = productImageRepository;
+        this.productVariantRepository = productVariantRepository;
+    }
+
+    @Override
+    @Transactional
+    public void run(String... args) {
+        int updated = 0;
+        List<ProductImage> images = productImageRepository.findWithNonCanonicalUrl();
+        for (ProductImage image : images) {
+            String before = image.getImageUrl();
+            image.canonicalizeUrl();
+            if (!Objects.equals(before, image.getImageUrl())) {
+                updated++;
+            }
+        }
+        List<ProductVariant> variants = productVariantRepository.findWithNonCanonicalImage();
+        for (ProductVariant variant : variants) {
+            String before = variant.getVariantImage();
+            variant.setVariantImage(ImageUrls.canonicalize(before));
+            if (!Objects.equals(before, variant.getVariantImage())) {
+                updated++;
+            }
+        }
+        if (updated > 0) {
+            log.info("Canonicalized {} stored image URLs", updated);
+        }
+    }
+}
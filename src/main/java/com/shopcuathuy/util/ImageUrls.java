@@ -0,0 +1,72 @@
+package com.shopcuathuy.util;
+
+/**
+ * Canonical form of stored image URLs. Files we host are stored as the proxy path
+ * {@code /api/upload/image/<objectName>}; third-party absolute URLs are kept as-is.
+ * Values are canonicalized when written, so readers can return them unchanged.
+ */
+public class ImageUrls {
+
+    public static final String PROXY_PREFIX = "/api/upload/image/";
+
+    private ImageUrls() {
+    }
+
+    public static String proxyUrl(String objectName) {
+        return PROXY_PREFIX + objectName;
+    }
+
+    /**
+     * True if the value needs no rewriting before it is served.
+     */
+    public static boolean isCanonical(String url) {
+        return url == null || url.isEmpty() || url.startsWith(PROXY_PREFIX) || isExternal(url);
+    }
+
+    /**
+     * Read-side guard for rows not yet canonicalized; a prefix check for canonical values.
+     */
+    public static String toPublicUrl(String url) {
+        return isCanonical(url) ? url : canonicalize(url);
+    }
+
+    /**
+     * Rewrites MinIO URLs and bare object paths to the proxy path.
+     * Example: http://localhost:9000/shopcuathuy/images/xxx.webp -> /api/upload/image/images/xxx.webp
+     */
+    public static String canonicalize(String url) {
+        if (url == null || url.isEmpty()) {
+            return url;
+        }
+        String value = url.trim();
+        if (value.startsWith(PROXY_PREFIX) || isExternal(value)) {
+            return value;
+        }
+
+        if (value.startsWith("http://") || value.startsWith("https://")) {
+            // MinIO URL: drop scheme, host and the bucket segment
+            int pathStart = value.indexOf('/', value.indexOf("://") + 3);
+            if (pathStart < 0) {
+                return value;
+            }
+            int bucketEnd = value.indexOf('/', pathStart + 1);
+            if (bucketEnd < 0 || bucketEnd == value.length() - 1) {
+                return value;
+            }
+            int queryStart = value.indexOf('?', bucketEnd);
+            return PROXY_PREFIX + value.substring(bucketEnd + 1, queryStart < 0 ? value.length() : queryStart);
+        }
+
+        if (value.startsWith("/api/")) {
+            return value;
+        }
+        // Relative object path, with or without a leading slash
+        return PROXY_PREFIX + (value.startsWith("/") ? value.substring(1) : value);
+    }
+
+    private static boolean isExternal(String url) {
+        return (url.startsWith("http://") || url.startsWith("https://"))
+            && !url.contains("localhost:9000")
+            && !url.contains("minio");
+    }
+}
@@ -0,0 +1,65 @@
+package com.shopcuathuy.util;
+
+import com.shopcuathuy.entity.InventoryHistory;
+import com.shopcuathuy.entity.Product;
+import com.shopcuathuy.entity.ProductVariant;
+import com.shopcuathuy.repository.InventoryHistoryRepository;
+import com.shopcuathuy.repository.ProductRepository;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes an opening balance into the inventory ledger for products that predate it,
+ * so replaying the ledger reproduces their stock. Runs once the application is ready,
+ * after DataInitializer has seeded its products.
+ */
+@Component
+public class InventoryLedgerBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryLedgerBackfill.class);
+    private static final String NOTE = "Số dư đầu kỳ";
+
+    private final ProductRepository productRepository;
+    private final InventoryHistoryRepository inventoryHistoryRepository;
+
+    public InventoryLedgerBackfill(ProductRepository productRepository,
+                                   InventoryHistoryRepository inventoryHistoryRepository) {
+        this.productRepository = productRepository;
+        this.inventoryHistoryRepository = inventoryHistoryRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void run() {
+        List<Product> products = productRepository.findWithoutInventoryHistory();
+        List<InventoryHistory> rows = new ArrayList<>();
+        for (Product product : products) {
+            // Zero rows still mark the product as covered, so it is not picked up again
+            rows.add(openingBalance(product.getId(), null, product.getQuantity()));
+            for (ProductVariant variant : product.getVariants()) {
+                rows.add(openingBalance(product.getId(), variant.getId(), variant.getVariantQuantity()));
+            }
+        }
+        if (!rows.isEmpty()) {
+            inventoryHistoryRepository.saveAll(rows);
+            log.info("Wrote opening inventory balances for {} products", products.size());
+        }
+    }
+
+    private static InventoryHistory openingBalance(String productId, String variantId, Integer quantity) {
+        InventoryHistory row = new InventoryHistory();
+        row.setProductId(productId);
+        row.setVariantId(variantId);
+        row.setQuantityChange(quantity != null ? quantity : 0);
+        row.setReason(InventoryHistory.REASON_ADJUSTMENT);
+        row.setNote(NOTE);
+        row.setUserLabel("system");
+        return row;
+    }
+}
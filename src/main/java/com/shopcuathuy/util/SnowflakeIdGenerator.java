@@ -0,0 +1,71 @@
+package com.shopcuathuy.util;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Snowflake-style 63-bit ids for order and tracking numbers: 41 bits of milliseconds
+ * since 2024-01-01 UTC, 10 bits of node id ({@code ids.node-id}, unique per running
+ * instance) and a 12-bit sequence within the millisecond. Ids are unique without any
+ * coordination between instances and increase over time on each node.
+ *
+ * The last timestamp and sequence live in one {@link AtomicLong} advanced by CAS, so
+ * threads never block each other. When a millisecond runs out of sequence numbers, or
+ * the wall clock steps back, the generator keeps counting on its own clock instead of
+ * waiting; that clock falls back in line once the wall clock passes it.
+ */
+@Component
+public class SnowflakeIdGenerator {
+
+    private static final long EPOCH_MS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+    // (milliseconds since EPOCH_MS << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong last = new AtomicLong();
+
+    @Autowired
+    public SnowflakeIdGenerator(@Value("${ids.node-id:0}") long nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    // Tests supply their own wall clock
+    SnowflakeIdGenerator(long nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("ids.node-id must be between 0 and " + MAX_NODE_ID + ", was " + nodeId);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        long now = (clock.getAsLong() - EPOCH_MS) << SEQUENCE_BITS;
+        // Either a fresh millisecond with sequence 0, or the next sequence after the last id
+        // (an exhausted sequence carries into the timestamp bits)
+        long state = last.updateAndGet(previous -> Math.max(now, previous + 1));
+        long timestamp = state >>> SEQUENCE_BITS;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (state & SEQUENCE_MASK);
+    }
+
+    /**
+     * Order number, e.g. {@code ORD-48193027561472000}.
+     */
+    public String nextOrderNumber() {
+        return "ORD-" + nextId();
+    }
+
+    /**
+     * Shipment tracking number, e.g. {@code TRK48193027561472001}.
+     */
+    public String nextTrackingNumber() {
+        return "TRK" + nextId();
+    }
+}
@@ -0,0 +1,117 @@
+package com.shopcuathuy.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving summary of weighted keys: finds the keys with the largest total weight
+ * while holding at most {@code capacity} counters, each update taking O(log capacity).
+ * A key not held takes over the smallest counter and its count, so counts can only
+ * overestimate: with W the total weight added, every key whose total exceeds
+ * W / capacity is held, and no count is more than W / capacity above its key's total.
+ *
+ * Negative weights are taken off a held key and ignored otherwise, which keeps the
+ * summary close for streams that are mostly positive (orders placed, a few cancelled)
+ * but voids the bound above. Thread-safe.
+ */
+public final class SpaceSaving {
+
+    private static final Comparator<Counter> BY_COUNT =
+        Comparator.comparingDouble((Counter counter) -> counter.count).thenComparing(counter -> counter.key);
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    // Same counters, smallest first
+    private final TreeSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public synchronized void add(String key, double weight) {
+        if (weight == 0) {
+            return;
+        }
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            // Re-inserted, as its position depends on the count
+            byCount.remove(counter);
+            counter.count = Math.max(counter.count + weight, 0);
+            byCount.add(counter);
+            return;
+        }
+        if (weight < 0) {
+            return;
+        }
+        double floor = 0;
+        if (counters.size() >= capacity) {
+            Counter smallest = byCount.pollFirst();
+            counters.remove(smallest.key);
+            floor = smallest.count;
+        }
+        counter = new Counter(key, floor + weight);
+        counters.put(key, counter);
+        byCount.add(counter);
+    }
+
+    /**
+     * Up to {@code n} keys with the largest counts, largest first.
+     */
+    public synchronized List<String> top(int n) {
+        List<String> keys = new ArrayList<>(Math.min(n, byCount.size()));
+        Iterator<Counter> largest = byCount.descendingIterator();
+        while (keys.size() < n && largest.hasNext()) {
+            keys.add(largest.next().key);
+        }
+        return keys;
+    }
+
+    /**
+     * Summary of the union of the streams behind {@code summaries} (for instance, one per
+     * day of a range): counts of the same key add up and the {@code capacity} largest
+     * sums are kept, picked with a min-heap of that size. A key missing from one summary
+     * loses what it had there, at most that summary's smallest count.
+     */
+    public static SpaceSaving merge(Collection<SpaceSaving> summaries, int capacity) {
+        Map<String, Double> sums = new HashMap<>();
+        for (SpaceSaving summary : summaries) {
+            synchronized (summary) {
+                summary.counters.values().forEach(counter -> sums.merge(counter.key, counter.count, Double::sum));
+            }
+        }
+        PriorityQueue<Map.Entry<String, Double>> largest = new PriorityQueue<>(capacity + 1, Map.Entry.comparingByValue());
+        for (Map.Entry<String, Double> sum : sums.entrySet()) {
+            largest.add(sum);
+            if (largest.size() > capacity) {
+                largest.poll();
+            }
+        }
+        SpaceSaving merged = new SpaceSaving(capacity);
+        largest.forEach(sum -> {
+            Counter counter = new Counter(sum.getKey(), sum.getValue());
+            merged.counters.put(counter.key, counter);
+            merged.byCount.add(counter);
+        });
+        return merged;
+    }
+
+    private static final class Counter {
+        private final String key;
+        private double count;
+
+        private Counter(String key, double count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+}
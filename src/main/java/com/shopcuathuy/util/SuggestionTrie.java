@@ -0,0 +1,263 @@
+package com.shopcuathuy.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted prefix trie for autocomplete. Every node caches its top-K completions,
+ * so a lookup costs O(prefix length) regardless of how many entries share the prefix.
+ * Children are kept in sorted parallel arrays instead of per-node maps to stay compact.
+ * Not thread-safe; callers guard it with their own lock.
+ */
+public class SuggestionTrie {
+
+    private final int topK;
+    private final Node root = new Node();
+    // Keys each entry was inserted under, so it can be removed or re-weighted
+    private final Map<String, String[]> keysByEntry = new HashMap<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public SuggestionTrie(int topK) {
+        this.topK = topK;
+    }
+
+    /**
+     * Insert or replace an entry. Each key is a folded string the entry should
+     * complete from (e.g. the full name and every word suffix of it).
+     */
+    public void put(Entry entry, String[] keys) {
+        remove(entry.getKey());
+        entries.put(entry.getKey(), entry);
+        keysByEntry.put(entry.getKey(), keys);
+        for (String key : keys) {
+            insert(key, entry);
+        }
+    }
+
+    public void remove(String entryKey) {
+        Entry entry = entries.remove(entryKey);
+        String[] keys = keysByEntry.remove(entryKey);
+        if (entry == null || keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            delete(key, entry);
+        }
+    }
+
+    public Entry get(String entryKey) {
+        return entries.get(entryKey);
+    }
+
+    public List<Entry> complete(String prefix, int limit) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node == null || node.top.length == 0) {
+            return Collections.emptyList();
+        }
+        int count = Math.min(limit, node.top.length);
+        List<Entry> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(node.top[i]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        root.labels = new char[0];
+        root.children = new Node[0];
+        root.terminals = new Entry[0];
+        root.top = new Entry[0];
+        entries.clear();
+        keysByEntry.clear();
+    }
+
+    private void insert(String key, Entry entry) {
+        Node[] path = new Node[key.length() + 1];
+        Node node = root;
+        path[0] = node;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.childOrCreate(key.charAt(i));
+            path[i + 1] = node;
+        }
+        node.terminals = append(node.terminals, entry);
+        // A new entry can only push others down, so offering it along the path is enough
+        for (Node n : path) {
+            n.offer(entry, topK);
+        }
+    }
+
+    private void delete(String key, Entry entry) {
+        Node[] path = new Node[key.length() + 1];
+        Node node = root;
+        path[0] = node;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.child(key.charAt(i));
+            if (node == null) {
+                return;
+            }
+            path[i + 1] = node;
+        }
+        node.terminals = without(node.terminals, entry);
+        // Recompute cached tops bottom-up and prune branches that became empty
+        for (int i = key.length(); i >= 0; i--) {
+            Node n = path[i];
+            n.recompute(topK);
+            if (i > 0 && n.top.length == 0) {
+                path[i - 1].removeChild(key.charAt(i - 1));
+            }
+        }
+    }
+
+    private static Entry[] append(Entry[] entries, Entry entry) {
+        Entry[] copy = Arrays.copyOf(entries, entries.length + 1);
+        copy[entries.length] = entry;
+        return copy;
+    }
+
+    private static Entry[] without(Entry[] entries, Entry entry) {
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] == entry) {
+                Entry[] copy = new Entry[entries.length - 1];
+                System.arraycopy(entries, 0, copy, 0, i);
+                System.arraycopy(entries, i + 1, copy, i, entries.length - i - 1);
+                return copy;
+            }
+        }
+        return entries;
+    }
+
+    public static class Entry {
+        private final String key;
+        private final String text;
+        private final String type;
+        private final String refId;
+        private final long weight;
+
+        public Entry(String key, String text, String type, String refId, long weight) {
+            this.key = key;
+            this.text = text;
+            this.type = type;
+            this.refId = refId;
+            this.weight = weight;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getRefId() {
+            return refId;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+    }
+
+    private static class Node {
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        Entry[] terminals = new Entry[0];
+        Entry[] top = new Entry[0];
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            Node node = new Node();
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newLabels[at] = c;
+            newChildren[at] = node;
+            System.arraycopy(labels, at, newLabels, at + 1, labels.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            labels = newLabels;
+            children = newChildren;
+            return node;
+        }
+
+        void removeChild(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            if (i < 0) {
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            System.arraycopy(labels, i + 1, newLabels, i, labels.length - i - 1);
+            System.arraycopy(children, i + 1, newChildren, i, children.length - i - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        void offer(Entry entry, int topK) {
+            for (Entry existing : top) {
+                if (existing == entry) {
+                    return;
+                }
+            }
+            if (top.length == topK && compare(entry, top[topK - 1]) >= 0) {
+                return;
+            }
+            Entry[] merged = Arrays.copyOf(top, Math.min(topK, top.length + 1));
+            int i = Math.min(top.length, topK - 1);
+            while (i > 0 && compare(entry, merged[i - 1]) < 0) {
+                merged[i] = merged[i - 1];
+                i--;
+            }
+            merged[i] = entry;
+            top = merged;
+        }
+
+        void recompute(int topK) {
+            top = new Entry[0];
+            for (Entry entry : terminals) {
+                offer(entry, topK);
+            }
+            for (Node child : children) {
+                for (Entry entry : child.top) {
+                    offer(entry, topK);
+                }
+            }
+        }
+
+        // Heavier first, then shorter text, then alphabetical for a stable order
+        private static int compare(Entry a, Entry b) {
+            int byWeight = Long.compare(b.weight, a.weight);
+            if (byWeight != 0) {
+                return byWeight;
+            }
+            int byLength = Integer.compare(a.text.length(), b.text.length());
+            return byLength != 0 ? byLength : a.text.compareTo(b.text);
+        }
+    }
+}
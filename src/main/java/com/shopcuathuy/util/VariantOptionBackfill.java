@@ -0,0 +1,42 @@
+package com.shopcuathuy.util;
+
+import com.shopcuathuy.entity.ProductVariant;
+import com.shopcuathuy.repository.ProductVariantRepository;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Fills option_size/option_color for variants saved before those columns existed.
+ * Variants whose attributes yield no options are re-checked on each start, which is cheap.
+ */
+@Component
+public class VariantOptionBackfill implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(VariantOptionBackfill.class);
+
+    private final ProductVariantRepository productVariantRepository;
+
+    public VariantOptionBackfill(ProductVariantRepository productVariantRepository) {
+        this.productVariantRepository = productVariantRepository;
+    }
+
+    @Override
+    @Transactional
+    public void run(String... args) {
+        List<ProductVariant> variants = productVariantRepository.findWithoutParsedOptions();
+        int updated = 0;
+        for (ProductVariant variant : variants) {
+            variant.projectOptions();
+            if (variant.getOptionSize() != null || variant.getOptionColor() != null) {
+                updated++;
+            }
+        }
+        if (updated > 0) {
+            log.info("Backfilled size/color options for {} product variants", updated);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.shopcuathuy.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts the size/colour option of a product variant, from its attributes JSON
+ * ({"size": "M", "color": "Red"}) or, failing that, from a "Red - M" style name.
+ * Runs when a variant is saved so listing conversion only reads the stored result.
+ *
+ * In a name, every part that looks like a size (XS..XXXL or a number) is a size and
+ * every other part a colour, so "32 - M" has the sizes 32 and M and no colour, and
+ * "Red - Blue - M" the colours Red and Blue. Several values of one option are stored
+ * joined by {@link #VALUE_SEPARATOR} and read back with {@link #values}.
+ */
+public class VariantOptionParser {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final Pattern NAME_SEPARATOR = Pattern.compile("\\s*-\\s*");
+    private static final Pattern SIZE = Pattern.compile("(?i)^(XS|S|M|L|XL|XXL|XXXL|\\d+)$");
+
+    public static final char VALUE_SEPARATOR = '|';
+
+    private VariantOptionParser() {
+    }
+
+    /**
+     * @return {size, color}; either element may be null
+     */
+    public static String[] parse(String attributes, String variantName) {
+        if (attributes != null && !attributes.isEmpty()) {
+            try {
+                JsonNode attrs = OBJECT_MAPPER.readTree(attributes);
+                if (attrs != null && attrs.isObject()) {
+                    return new String[] {text(attrs.get("size")), text(attrs.get("color"))};
+                }
+            } catch (Exception e) {
+                // Malformed JSON: fall back to the variant name
+            }
+        }
+        return parseName(variantName);
+    }
+
+    /**
+     * The values of a stored option, in order; empty for null.
+     */
+    public static List<String> values(String option) {
+        if (option == null || option.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (option.indexOf(VALUE_SEPARATOR) < 0) {
+            return Collections.singletonList(option);
+        }
+        List<String> values = new ArrayList<>();
+        for (String value : option.split(Pattern.quote(String.valueOf(VALUE_SEPARATOR)))) {
+            if (!value.isEmpty()) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    private static String[] parseName(String variantName) {
+        if (variantName == null) {
+            return new String[2];
+        }
+        StringBuilder sizes = new StringBuilder();
+        StringBuilder colors = new StringBuilder();
+        for (String part : NAME_SEPARATOR.split(variantName)) {
+            part = part.trim();
+            if (part.isEmpty()) {
+                continue;
+            }
+            StringBuilder option = SIZE.matcher(part).matches() ? sizes : colors;
+            if (option.length() > 0) {
+                option.append(VALUE_SEPARATOR);
+            }
+            option.append(part);
+        }
+        return new String[] {sizes.length() > 0 ? sizes.toString() : null, colors.length() > 0 ? colors.toString() : null};
+    }
+
+    private static String text(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        String value = node.asText();
+        return value.isEmpty() || "null".equals(value) ? null : value;
+    }
+}
@@ -0,0 +1,134 @@
+package com.shopcuathuy.benchmark;
+
+import com.shopcuathuy.ECommerceBackendApplication;
+import com.shopcuathuy.service.DistinctCustomerCounter;
+import com.shopcuathuy.service.TopSalesTracker;
+import com.shopcuathuy.util.HyperLogLog;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * The streamed rollup readers over a year of rollup rows, in a fork capped at 192 MB of
+ * heap: {@link TopSalesTracker#rebuildClosedDays} folds every [day, seller, revenue] row of
+ * the retained days, and {@link DistinctCustomerCounter#count} merges a year of customer
+ * sketches. The app runs on the test profile against a file H2 database seeded with
+ * {@code rows} seller rows; {@code MAX_MEMORY_ROWS} has H2 keep larger results on disk, as
+ * {@code useCursorFetch} leaves them on the MySQL server, so the rebuild takes the same heap
+ * for a million rows as for a hundred thousand. Run with {@code mvn test-compile} and then
+ * {@link #main}, or {@code java -cp <test classpath> org.openjdk.jmh.Main StreamedRollupFoldBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx192m")
+public class StreamedRollupFoldBenchmark {
+
+    private static final int DAYS = 365;
+    private static final int CUSTOMERS_PER_DAY = 2000;
+    private static final int BATCH = 5000;
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private Path dir;
+    private ConfigurableApplicationContext context;
+    private TopSalesTracker topSalesTracker;
+    private DistinctCustomerCounter distinctCustomerCounter;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        dir = Files.createTempDirectory("rollup-bench");
+        context = new SpringApplicationBuilder(ECommerceBackendApplication.class)
+            .web(WebApplicationType.NONE)
+            .profiles("test")
+            .run("--spring.datasource.url=jdbc:h2:file:" + dir.resolve("db").toAbsolutePath()
+                + ";MODE=MySQL;MAX_MEMORY_ROWS=10000");
+        topSalesTracker = context.getBean(TopSalesTracker.class);
+        distinctCustomerCounter = context.getBean(DistinctCustomerCounter.class);
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void rebuildTopSellers() {
+        topSalesTracker.rebuildClosedDays();
+    }
+
+    @Benchmark
+    public long countCustomersOverAYear() {
+        LocalDate today = LocalDate.now();
+        return distinctCustomerCounter.count(null, today.minusDays(DAYS - 1), today);
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        LocalDate first = LocalDate.now().minusDays(DAYS);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int sellers = (rows + DAYS - 1) / DAYS;
+        List<Object[]> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[] {UUID.randomUUID().toString(), now, now,
+                String.format("00000000-0000-0000-0000-%012d", i % sellers), Date.valueOf(first.plusDays(i / sellers)),
+                1 + i % 7, BigDecimal.valueOf(100000 + i % 997, 2)});
+            if (batch.size() == BATCH || i == rows - 1) {
+                jdbc.batchUpdate("INSERT INTO daily_seller_stats (id, created_at, updated_at, seller_id, stat_date, "
+                    + "orders, revenue, cancelled_orders) VALUES (?, ?, ?, ?, ?, ?, ?, 0)", batch);
+                batch.clear();
+            }
+        }
+        for (int day = 0; day < DAYS; day++) {
+            HyperLogLog customers = new HyperLogLog();
+            for (int c = 0; c < CUSTOMERS_PER_DAY; c++) {
+                customers.add("customer-" + (day * CUSTOMERS_PER_DAY / 2 + c));
+            }
+            batch.add(new Object[] {UUID.randomUUID().toString(), now, now,
+                Date.valueOf(first.plusDays(day)), customers.toBytes()});
+        }
+        jdbc.batchUpdate("INSERT INTO daily_customer_sketches (id, created_at, updated_at, stat_date, customer_sketch) "
+            + "VALUES (?, ?, ?, ?, ?)", batch);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StreamedRollupFoldBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,115 @@
+package com.shopcuathuy.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopcuathuy.util.VariantOptionParser;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Cost of collecting a product's sizes and colours for a listing: parsing every variant
+ * on each conversion, as before, against reading the options stored when the variant
+ * was saved. Run with {@code mvn test-compile} and then {@link #main}, or
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main VariantOptionParseBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariantOptionParseBenchmark {
+
+    private static final String[] COLORS = {"Đỏ", "Xanh navy", "Đen", "Trắng", "Be"};
+    private static final String[] SIZES = {"S", "M", "L", "XL", "XXL"};
+
+    @Param({"5", "25"})
+    public int variants;
+
+    private final List<String> attributes = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<String[]> stored = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < variants; i++) {
+            String color = COLORS[i % COLORS.length];
+            String size = SIZES[(i / COLORS.length) % SIZES.length];
+            // Half the variants carry attributes JSON, the rest only a "Color - Size" name
+            attributes.add(i % 2 == 0 ? "{\"size\": \"" + size + "\", \"color\": \"" + color + "\"}" : null);
+            names.add(color + " - " + size);
+            stored.add(VariantOptionParser.parse(attributes.get(i), names.get(i)));
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Object parsePerConversion() {
+        Set<String> sizes = new LinkedHashSet<>();
+        Set<String> colors = new LinkedHashSet<>();
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (int i = 0; i < variants; i++) {
+            String attrs = attributes.get(i);
+            if (attrs != null) {
+                try {
+                    Map<String, Object> values = objectMapper.readValue(attrs, Map.class);
+                    sizes.add(String.valueOf(values.get("size")));
+                    colors.add(String.valueOf(values.get("color")));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            } else {
+                for (String part : names.get(i).split("\\s*-\\s*")) {
+                    part = part.trim();
+                    if (part.matches("(?i)^(XS|S|M|L|XL|XXL|XXXL|\\d+)$")) {
+                        sizes.add(part);
+                    } else if (part.length() > 0) {
+                        colors.add(part);
+                    }
+                }
+            }
+        }
+        return new Object[] {sizes, colors};
+    }
+
+    @Benchmark
+    public Object parseOnSave() {
+        List<String[]> options = new ArrayList<>(variants);
+        for (int i = 0; i < variants; i++) {
+            options.add(VariantOptionParser.parse(attributes.get(i), names.get(i)));
+        }
+        return options;
+    }
+
+    @Benchmark
+    public Object readStoredOptions() {
+        Set<String> sizes = new LinkedHashSet<>();
+        Set<String> colors = new LinkedHashSet<>();
+        for (String[] options : stored) {
+            sizes.addAll(VariantOptionParser.values(options[0]));
+            colors.addAll(VariantOptionParser.values(options[1]));
+        }
+        return new Object[] {sizes, colors};
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VariantOptionParseBenchmark.class.getSimpleName()).build()).run();
+    }
+}
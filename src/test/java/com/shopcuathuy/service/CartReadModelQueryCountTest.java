@@ -0,0 +1,163 @@
+package com.shopcuathuy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.shopcuathuy.dto.request.CheckoutItemRequestDTO;
+import com.shopcuathuy.entity.CartItem;
+import com.shopcuathuy.entity.Category;
+import com.shopcuathuy.entity.Product;
+import com.shopcuathuy.entity.ProductImage;
+import com.shopcuathuy.entity.ProductVariant;
+import com.shopcuathuy.entity.Seller;
+import com.shopcuathuy.entity.User;
+import com.shopcuathuy.repository.CartItemRepository;
+import com.shopcuathuy.repository.CategoryRepository;
+import com.shopcuathuy.repository.ProductRepository;
+import com.shopcuathuy.repository.SellerRepository;
+import com.shopcuathuy.repository.UserRepository;
+import com.shopcuathuy.support.StatementCounter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Loading and pricing a cart takes the same few statements whether it has two lines or
+ * twenty, including reading every line's image, stock and variant afterwards.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CartReadModelQueryCountTest {
+
+    @Autowired
+    private CartReadModel cartReadModel;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void savedCartLoadsInOneQueryWhateverItsSize() {
+        String smallCart = createCart(2);
+        String largeCart = createCart(20);
+
+        long small = statementsFor(() -> cartReadModel.forUser(smallCart));
+        long large = statementsFor(() -> cartReadModel.forUser(largeCart));
+
+        assertThat(small).isEqualTo(1);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void requestedLinesLoadInTwoQueriesWhateverTheirNumber() {
+        List<CheckoutItemRequestDTO> smallCart = checkoutItems(createProducts(2));
+        List<CheckoutItemRequestDTO> largeCart = checkoutItems(createProducts(20));
+
+        long small = statementsFor(() -> cartReadModel.forItems(smallCart));
+        long large = statementsFor(() -> cartReadModel.forItems(largeCart));
+
+        assertThat(small).isEqualTo(2);
+        assertThat(large).isEqualTo(small);
+    }
+
+    // Statements run by the load and by reading every line, in one transaction as the callers do
+    private long statementsFor(Supplier<List<CartReadModel.Line>> load) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            StatementCounter.reset();
+            List<CartReadModel.Line> lines = load.get();
+            for (CartReadModel.Line line : lines) {
+                assertThat(line.isValid()).as(line.getError()).isTrue();
+                assertThat(line.getImageUrl()).isNotNull();
+                assertThat(line.getAvailableQuantity()).isPositive();
+                assertThat(line.getVariant().getVariantPrice()).isNotNull();
+                assertThat(line.getProduct().getName()).isNotNull();
+            }
+            return StatementCounter.count();
+        });
+    }
+
+    private List<ProductVariant> createProducts(int count) {
+        Seller seller = sellerRepository.findAll().get(0);
+        Category category = categoryRepository.findAll().get(0);
+        List<ProductVariant> variants = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setSeller(seller);
+            product.setCategory(category);
+            product.setName("Cart " + i);
+            product.setSku("CART-" + UUID.randomUUID());
+            product.setPrice(BigDecimal.valueOf(100000));
+            product.setQuantity(50);
+            product.setStatus(Product.ProductStatus.ACTIVE);
+            product.setImages(new ArrayList<>());
+            product.setVariants(new ArrayList<>());
+            for (int j = 0; j < 2; j++) {
+                ProductImage image = new ProductImage();
+                image.setProduct(product);
+                image.setImageUrl("https://example.com/cart-" + i + "-" + j + ".jpg");
+                image.setDisplayOrder(j);
+                product.getImages().add(image);
+
+                ProductVariant variant = new ProductVariant();
+                variant.setProduct(product);
+                variant.setVariantName("Đỏ - " + (j == 0 ? "M" : "L"));
+                variant.setVariantSku(product.getSku() + "-" + j);
+                variant.setVariantPrice(BigDecimal.valueOf(90000 + j * 10000));
+                variant.setVariantQuantity(10);
+                product.getVariants().add(variant);
+            }
+            variants.add(productRepository.save(product).getVariants().get(1));
+        }
+        return variants;
+    }
+
+    private String createCart(int lines) {
+        User user = new User();
+        user.setEmail("cart-" + UUID.randomUUID() + "@example.com");
+        user.setPasswordHash("x");
+        user.setFullName("Khách hàng");
+        user = userRepository.save(user);
+        for (ProductVariant variant : createProducts(lines)) {
+            CartItem item = new CartItem();
+            item.setUser(user);
+            item.setProduct(variant.getProduct());
+            item.setVariant(variant);
+            item.setQuantity(2);
+            cartItemRepository.save(item);
+        }
+        return user.getId();
+    }
+
+    private static List<CheckoutItemRequestDTO> checkoutItems(List<ProductVariant> variants) {
+        List<CheckoutItemRequestDTO> items = new ArrayList<>();
+        for (ProductVariant variant : variants) {
+            CheckoutItemRequestDTO item = new CheckoutItemRequestDTO();
+            item.productId = variant.getProduct().getId();
+            item.variantId = variant.getId();
+            item.quantity = 2;
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,119 @@
+package com.shopcuathuy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopcuathuy.api.ApiResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+class IdempotencyStoreTest {
+
+    private final IdempotencyStore store = new IdempotencyStore(new SimpleMeterRegistry(), new ObjectMapper(),
+        1000, Duration.ofHours(1), Duration.ofSeconds(30));
+
+    @Test
+    void concurrentDuplicatesRunOnceAndShareTheResponse() throws Exception {
+        int threads = 16;
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<ResponseEntity<ApiResponse<String>>>> responses = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            responses.add(pool.submit(() -> {
+                start.await();
+                return store.execute("orders", "user-1", "key-1", Map.of("item", "A"), () -> {
+                    executions.incrementAndGet();
+                    sleep(200);
+                    return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success("ORD-1"));
+                });
+            }));
+        }
+        start.countDown();
+        pool.shutdown();
+
+        int replayed = 0;
+        for (Future<ResponseEntity<ApiResponse<String>>> future : responses) {
+            ResponseEntity<ApiResponse<String>> response = future.get();
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+            assertThat(response.getBody().getData()).isEqualTo("ORD-1");
+            if ("true".equals(response.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER))) {
+                replayed++;
+            }
+        }
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(replayed).isEqualTo(threads - 1);
+    }
+
+    @Test
+    void sameKeyWithAnotherBodyIsAConflict() {
+        store.execute("orders", "user-1", "key-2", Map.of("item", "A"), () -> ResponseEntity.ok(ApiResponse.success("ORD-2")));
+
+        ResponseEntity<ApiResponse<String>> response = store.execute("orders", "user-1", "key-2", Map.of("item", "B"),
+            () -> ResponseEntity.ok(ApiResponse.success("ORD-3")));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void serverErrorFreesTheKey() {
+        AtomicInteger executions = new AtomicInteger();
+        store.execute("orders", "user-1", "key-3", Map.of(), () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.<ApiResponse<String>>status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("lỗi"));
+        });
+        ResponseEntity<ApiResponse<String>> retry = store.execute("orders", "user-1", "key-3", Map.of(), () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.ok(ApiResponse.success("ORD-4"));
+        });
+
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void exceptionFreesTheKey() {
+        assertThatThrownBy(() -> store.execute("orders", "user-1", "key-4", Map.of(), () -> {
+            throw new IllegalStateException("hết hàng");
+        })).isInstanceOf(IllegalStateException.class);
+
+        ResponseEntity<ApiResponse<String>> retry = store.execute("orders", "user-1", "key-4", Map.of(),
+            () -> ResponseEntity.ok(ApiResponse.success("ORD-5")));
+
+        assertThat(retry.getBody().getData()).isEqualTo("ORD-5");
+        assertThat(retry.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+    }
+
+    @Test
+    void keysAreScopedToTheUser() {
+        AtomicInteger executions = new AtomicInteger();
+        for (String userId : List.of("user-1", "user-2")) {
+            store.execute("orders", userId, "key-5", Map.of(), () -> {
+                executions.incrementAndGet();
+                return ResponseEntity.ok(ApiResponse.success("ORD"));
+            });
+        }
+
+        assertThat(executions.get()).isEqualTo(2);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.shopcuathuy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+
+import com.shopcuathuy.dto.ReportExportJobDTO;
+import com.shopcuathuy.entity.ReportAudit;
+import com.shopcuathuy.entity.Seller;
+import com.shopcuathuy.repository.ReportAuditRepository;
+import com.shopcuathuy.repository.SellerRepository;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Export jobs move QUEUED, RUNNING, then SUCCESS or FAILED, freeing their slot when they
+ * finish; a seller never has more than {@code report.export.max-per-seller} jobs under
+ * way, however many requests race; and a restart takes over the jobs it left behind.
+ * MinIO is replaced by a mock whose upload can be held open or made to fail.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ReportExportServiceTest {
+
+    private static final int MAX_PER_SELLER = 2;
+
+    @MockBean
+    private MinIOService minIOService;
+
+    @Autowired
+    private ReportExportService reportExportService;
+
+    @Autowired
+    private ReportAuditRepository reportAuditRepository;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    private final CountDownLatch uploads = new CountDownLatch(1);
+    private String userId;
+    private String sellerId;
+
+    @BeforeEach
+    void setUp() {
+        Seller seller = sellerRepository.findAll().get(0);
+        userId = seller.getUser().getId();
+        sellerId = seller.getId();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        uploads.countDown();
+        awaitNoActiveJobs();
+    }
+
+    @Test
+    void finishedJobGoesFromQueuedThroughRunningToSuccessAndFreesItsSlot() throws Exception {
+        holdUploads();
+
+        ReportExportJobDTO submitted = reportExportService.submit(userId, "excel", null, null, "all");
+        assertThat(submitted.getStatus()).isEqualTo(ReportExportService.QUEUED);
+        ReportAudit running = awaitStatus(submitted.getId(), ReportExportService.RUNNING);
+        assertThat(running.getActiveSlot()).isNotNull();
+
+        uploads.countDown();
+        ReportAudit done = awaitStatus(submitted.getId(), ReportExportService.SUCCESS);
+        assertThat(done.getProgress()).isEqualTo(100);
+        assertThat(done.getObjectName()).startsWith("reports/" + sellerId + "/");
+        assertThat(done.getActiveSlot()).isNull();
+        assertThat(reportExportService.getJob(userId, submitted.getId()).getDownloadUrl()).isNotNull();
+    }
+
+    @Test
+    void failedUploadMarksTheJobFailedAndFreesItsSlot() throws Exception {
+        doThrow(new IllegalStateException("MinIO down")).when(minIOService).uploadStream(any(), any(), anyLong(), any());
+
+        ReportExportJobDTO submitted = reportExportService.submit(userId, "excel", null, null, "all");
+        ReportAudit failed = awaitStatus(submitted.getId(), ReportExportService.FAILED);
+
+        assertThat(failed.getNotes()).isEqualTo("MinIO down");
+        assertThat(failed.getActiveSlot()).isNull();
+        assertThat(reportExportService.getJob(userId, submitted.getId()).getError()).isEqualTo("MinIO down");
+    }
+
+    @Test
+    void racingRequestsGetNoMoreThanMaxPerSellerJobs() throws Exception {
+        holdUploads();
+        int threads = 8;
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < threads; i++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    reportExportService.submit(userId, "excel", null, null, "all");
+                    accepted.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    refused.incrementAndGet();
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(failures).isEmpty();
+        assertThat(accepted.get()).isEqualTo(MAX_PER_SELLER);
+        assertThat(refused.get()).isEqualTo(threads - MAX_PER_SELLER);
+        assertThat(activeJobs()).extracting(ReportAudit::getActiveSlot).containsExactlyInAnyOrder(1, 2);
+
+        // Finished jobs give their slots back
+        uploads.countDown();
+        awaitNoActiveJobs();
+        ReportExportJobDTO next = reportExportService.submit(userId, "excel", null, null, "all");
+        awaitStatus(next.getId(), ReportExportService.SUCCESS);
+    }
+
+    @Test
+    void restartFailsRunningJobsAndQueuesWaitingOnesAgain() throws Exception {
+        // Left by an earlier run of this instance (node 0), before this one started and
+        // well inside the timeout, so the sweep leaves them alone
+        LocalDateTime before = LocalDateTime.now().minusMinutes(15);
+        ReportAudit running = reportAuditRepository.save(leftOverJob(ReportExportService.RUNNING, 1, 0, before));
+        ReportAudit queued = reportAuditRepository.save(leftOverJob(ReportExportService.QUEUED, 2, 0, before));
+        ReportAudit otherNode = reportAuditRepository.save(leftOverJob(ReportExportService.RUNNING, 3, 7, before));
+
+        reportExportService.recover();
+
+        ReportAudit interrupted = reportAuditRepository.findById(running.getId()).orElseThrow();
+        assertThat(interrupted.getStatus()).isEqualTo(ReportExportService.FAILED);
+        assertThat(interrupted.getActiveSlot()).isNull();
+        assertThat(awaitStatus(queued.getId(), ReportExportService.SUCCESS).getActiveSlot()).isNull();
+        assertThat(reportAuditRepository.findById(otherNode.getId()).orElseThrow().getStatus())
+            .isEqualTo(ReportExportService.RUNNING);
+
+        reportAuditRepository.delete(otherNode);
+    }
+
+    private void holdUploads() throws Exception {
+        doAnswer(invocation -> {
+            uploads.await(1, TimeUnit.MINUTES);
+            return null;
+        }).when(minIOService).uploadStream(any(), any(), anyLong(), any());
+    }
+
+    private ReportAudit leftOverJob(String status, int slot, int nodeId, LocalDateTime createdAt) {
+        return ReportAudit.builder()
+            .userId(userId)
+            .sellerId(sellerId)
+            .reportType("all")
+            .exportFormat("EXCEL")
+            .periodStart(LocalDate.now().minusDays(30))
+            .periodEnd(LocalDate.now())
+            .status(status)
+            .progress(0)
+            .activeSlot(slot)
+            .nodeId(nodeId)
+            .createdAt(createdAt)
+            .build();
+    }
+
+    private List<ReportAudit> activeJobs() {
+        return reportAuditRepository.findAll().stream()
+            .filter(job -> sellerId.equals(job.getSellerId()) && job.getActiveSlot() != null)
+            .toList();
+    }
+
+    private ReportAudit awaitStatus(String jobId, String status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        ReportAudit job = reportAuditRepository.findById(jobId).orElseThrow();
+        while (!status.equals(job.getStatus()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            job = reportAuditRepository.findById(jobId).orElseThrow();
+        }
+        assertThat(job.getStatus()).isEqualTo(status);
+        return job;
+    }
+
+    private void awaitNoActiveJobs() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!activeJobs().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(activeJobs()).isEmpty();
+    }
+}
@@ -0,0 +1,132 @@
+package com.shopcuathuy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.shopcuathuy.dto.request.CreateOrderItemRequestDTO;
+import com.shopcuathuy.entity.Category;
+import com.shopcuathuy.entity.Product;
+import com.shopcuathuy.entity.Seller;
+import com.shopcuathuy.repository.CategoryRepository;
+import com.shopcuathuy.repository.ProductRepository;
+import com.shopcuathuy.repository.SellerRepository;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Many carts over the same few products, each listing them in its own random order,
+ * reserve stock at once: no reservation may fail on a lock (deadlock or timeout), and
+ * the units handed out must add up to exactly what left each product's stock.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class StockReservationServiceStressTest {
+
+    private static final int PRODUCTS = 5;
+    private static final int STOCK = 60;
+    private static final int THREADS = 16;
+    private static final int CARTS_PER_THREAD = 25;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Test
+    void concurrentCartsInAnyOrderNeitherDeadlockNorOversell() throws Exception {
+        List<String> productIds = createProducts();
+        Map<String, AtomicInteger> reserved = new ConcurrentHashMap<>();
+        productIds.forEach(id -> reserved.put(id, new AtomicInteger()));
+        AtomicInteger soldOut = new AtomicInteger();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < CARTS_PER_THREAD; i++) {
+                        List<CreateOrderItemRequestDTO> cart = randomCart(productIds);
+                        try {
+                            stockReservationService.reserve(cart, productId -> "STRESS").forEach(line ->
+                                reserved.get(line.getProductId()).addAndGet(line.getQuantity()));
+                        } catch (IllegalArgumentException e) {
+                            // Not enough stock left for this cart: expected once products run low
+                            soldOut.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(failures).isEmpty();
+        assertThat(soldOut.get()).isPositive();
+        for (String productId : productIds) {
+            int left = productRepository.findById(productId).orElseThrow().getQuantity();
+            assertThat(left).isGreaterThanOrEqualTo(0);
+            assertThat(reserved.get(productId).get()).isEqualTo(STOCK - left);
+        }
+    }
+
+    private List<String> createProducts() {
+        Seller seller = sellerRepository.findAll().get(0);
+        Category category = categoryRepository.findAll().get(0);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setSeller(seller);
+            product.setCategory(category);
+            product.setName("Stress " + i);
+            product.setSku("STRESS-" + UUID.randomUUID());
+            product.setPrice(BigDecimal.valueOf(100000));
+            product.setQuantity(STOCK);
+            product.setStatus(Product.ProductStatus.ACTIVE);
+            product.setImages(new ArrayList<>());
+            product.setVariants(new ArrayList<>());
+            ids.add(productRepository.save(product).getId());
+        }
+        return ids;
+    }
+
+    // Two to all of the products, shuffled, one to three units each
+    private static List<CreateOrderItemRequestDTO> randomCart(List<String> productIds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String> shuffled = new ArrayList<>(productIds);
+        Collections.shuffle(shuffled, random);
+        List<CreateOrderItemRequestDTO> cart = new ArrayList<>();
+        for (String productId : shuffled.subList(0, 2 + random.nextInt(productIds.size() - 1))) {
+            CreateOrderItemRequestDTO item = new CreateOrderItemRequestDTO();
+            item.productId = productId;
+            item.quantity = 1 + random.nextInt(3);
+            cart.add(item);
+        }
+        return cart;
+    }
+}
@@ -0,0 +1,129 @@
+package com.shopcuathuy.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.shopcuathuy.entity.Voucher;
+import com.shopcuathuy.repository.VoucherRepository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * A thousand checkouts redeem one limited voucher at once, a third of them rejected after
+ * claiming (as when the minimum purchase is not met): the voucher is never used more than
+ * its limit, and every rejected use goes back to it. A voucher stays listed as available
+ * while uses leased to this instance are left, though its row already counts them.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class VoucherRedemptionCounterTest {
+
+    private static final int LIMIT = 300;
+    private static final int REDEMPTIONS = 1000;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private VoucherRedemptionCounter voucherRedemptionCounter;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Test
+    void concurrentRedemptionsNeverExceedTheLimitAndRejectedOnesAreReturned() throws Exception {
+        Voucher voucher = createVoucher();
+        AtomicInteger confirmed = new AtomicInteger();
+        AtomicInteger released = new AtomicInteger();
+        AtomicInteger next = new AtomicInteger();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    int i;
+                    while ((i = next.getAndIncrement()) < REDEMPTIONS) {
+                        VoucherRedemptionCounter.Claim claim = voucherRedemptionCounter.claim(voucher);
+                        if (claim == null) {
+                            continue;
+                        }
+                        if (i % 3 == 0) {
+                            voucherRedemptionCounter.release(claim);
+                            released.incrementAndGet();
+                        } else {
+                            voucherRedemptionCounter.confirm(claim);
+                            confirmed.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(failures).isEmpty();
+        assertThat(released.get()).isPositive();
+        assertThat(confirmed.get()).isLessThanOrEqualTo(LIMIT);
+
+        // The returned uses reach the row on flush and can be redeemed again, up to the limit
+        voucherRedemptionCounter.flush();
+        VoucherRedemptionCounter.Claim claim;
+        while ((claim = voucherRedemptionCounter.claim(voucher)) != null) {
+            voucherRedemptionCounter.confirm(claim);
+            confirmed.incrementAndGet();
+        }
+        voucherRedemptionCounter.flush();
+
+        assertThat(confirmed.get()).isEqualTo(LIMIT);
+        assertThat(voucherRepository.findById(voucher.getId()).orElseThrow().getTotalUses()).isEqualTo(LIMIT);
+        assertThat(voucherRedemptionCounter.claim(voucher)).isNull();
+    }
+
+    @Test
+    void leasedUsesKeepTheVoucherAvailableUntilHandedOut() {
+        Voucher voucher = createVoucher(5);
+
+        // The whole limit fits in one block, so the row reads as used up after the first claim
+        voucherRedemptionCounter.confirm(voucherRedemptionCounter.claim(voucher));
+        assertThat(voucherRedemptionCounter.hasUsesLeft(voucherRepository.findById(voucher.getId()).orElseThrow()))
+            .isTrue();
+
+        for (int i = 0; i < 4; i++) {
+            voucherRedemptionCounter.confirm(voucherRedemptionCounter.claim(voucher));
+        }
+        voucherRedemptionCounter.flush();
+        assertThat(voucherRedemptionCounter.hasUsesLeft(voucherRepository.findById(voucher.getId()).orElseThrow()))
+            .isFalse();
+    }
+
+    private Voucher createVoucher() {
+        return createVoucher(LIMIT);
+    }
+
+    private Voucher createVoucher(int limit) {
+        Voucher voucher = new Voucher();
+        voucher.setCode("STRESS-" + UUID.randomUUID().toString().substring(0, 8));
+        voucher.setDiscountType(Voucher.DiscountType.FIXED_AMOUNT);
+        voucher.setDiscountValue(BigDecimal.valueOf(10000));
+        voucher.setTotalUsesLimit(limit);
+        voucher.setStartDate(LocalDateTime.now().minusDays(1));
+        voucher.setEndDate(LocalDateTime.now().plusDays(1));
+        return voucherRepository.save(voucher);
+    }
+}
@@ -0,0 +1,90 @@
+package com.shopcuathuy.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimatesStayWithinThreeStandardErrors() {
+        for (int n : new int[] {1_000, 10_000, 100_000, 1_000_000}) {
+            HyperLogLog sketch = sketchOf(0, n);
+            // Three standard errors of the 2% worst case documented on HyperLogLog
+            assertThat((double) sketch.estimate()).as("%d values", n).isCloseTo(n, within(n * 0.06));
+        }
+    }
+
+    @Test
+    void smallSetsAreCountedAlmostExactly() {
+        assertThat(new HyperLogLog().estimate()).isZero();
+        assertThat(sketchOf(0, 30).estimate()).isBetween(29L, 31L);
+    }
+
+    @Test
+    void addingTheSameValueAgainChangesNothing() {
+        HyperLogLog sketch = sketchOf(0, 500);
+        long estimate = sketch.estimate();
+        for (int i = 0; i < 500; i++) {
+            sketch.add("customer-" + i);
+        }
+        assertThat(sketch.estimate()).isEqualTo(estimate);
+    }
+
+    @Test
+    void mergeGivesTheSketchOfTheUnion() {
+        HyperLogLog left = sketchOf(0, 60_000);
+        HyperLogLog right = sketchOf(40_000, 100_000);
+        left.merge(right);
+        assertThat(left.toBytes()).isEqualTo(sketchOf(0, 100_000).toBytes());
+    }
+
+    @Test
+    void fewValuesAreStoredSparseAndManyDense() {
+        byte[] quiet = sketchOf(0, 100).toBytes();
+        assertThat(quiet[0]).isEqualTo((byte) 1);
+        assertThat(quiet.length).isLessThan(1 + 100 * 3 + 1);
+
+        byte[] busy = sketchOf(0, 50_000).toBytes();
+        assertThat(busy[0]).isZero();
+        assertThat(busy).hasSize(HyperLogLog.MAX_BYTES);
+    }
+
+    @Test
+    void sketchesSurviveTheRoundTripOnBothSidesOfTheSwitch() {
+        // A third of the registers set is where the sparse form stops being smaller
+        for (int n : new int[] {10, 1_000, 1_600, 5_000}) {
+            HyperLogLog sketch = sketchOf(0, n);
+            byte[] bytes = sketch.toBytes();
+            assertThat(HyperLogLog.fromBytes(bytes).toBytes()).as("%d values", n).isEqualTo(bytes);
+            assertThat(HyperLogLog.fromBytes(bytes).estimate()).isEqualTo(sketch.estimate());
+        }
+    }
+
+    @Test
+    void sparseAndDenseSketchesMerge() {
+        HyperLogLog merged = HyperLogLog.fromBytes(sketchOf(0, 200).toBytes());
+        merged.merge(HyperLogLog.fromBytes(sketchOf(200, 20_000).toBytes()));
+        assertThat(merged.toBytes()).isEqualTo(sketchOf(0, 20_000).toBytes());
+    }
+
+    @Test
+    void emptyInputReadsAsAnEmptySketchAndGarbageIsRejected() {
+        assertThat(HyperLogLog.fromBytes(null).estimate()).isZero();
+        assertThat(HyperLogLog.fromBytes(new byte[0]).estimate()).isZero();
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[] {0, 1, 2}))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[] {1, (byte) 0xff, (byte) 0xff, 3}))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static HyperLogLog sketchOf(int from, int to) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = from; i < to; i++) {
+            sketch.add("customer-" + i);
+        }
+        return sketch;
+    }
+}
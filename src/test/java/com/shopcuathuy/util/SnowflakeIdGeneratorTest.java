@@ -0,0 +1,101 @@
+package com.shopcuathuy.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final long NOW = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+
+    @Test
+    void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        int threads = 8;
+        int perThread = 50_000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    long previous = Long.MIN_VALUE;
+                    for (int i = 0; i < perThread; i++) {
+                        long id = generator.nextId();
+                        assertThat(id).isGreaterThan(previous);
+                        previous = id;
+                        ids.add(id);
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(failures).isEmpty();
+        assertThat(ids).hasSize(threads * perThread);
+    }
+
+    @Test
+    void exhaustedMillisecondCarriesIntoTheNext() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, () -> NOW);
+        long previous = generator.nextId();
+        // 4096 sequence numbers per millisecond: the frozen clock runs out of them several times
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertThat(id).isGreaterThan(previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void clockSteppingBackNeitherRepeatsNorDecreases() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock::get);
+        long beforeStep = generator.nextId();
+
+        clock.set(NOW - 5_000);
+        long afterStep = generator.nextId();
+        long next = generator.nextId();
+
+        assertThat(afterStep).isGreaterThan(beforeStep);
+        assertThat(next).isGreaterThan(afterStep);
+
+        // Once the wall clock passes the generator's own, ids follow it again
+        clock.set(NOW + 1_000);
+        long caughtUp = generator.nextId();
+        assertThat(caughtUp).isGreaterThan(next);
+        assertThat(caughtUp).isEqualTo(new SnowflakeIdGenerator(1, clock::get).nextId());
+    }
+
+    @Test
+    void nodeIdSeparatesInstancesAtTheSameInstant() {
+        long first = new SnowflakeIdGenerator(1, () -> NOW).nextId();
+        long second = new SnowflakeIdGenerator(2, () -> NOW).nextId();
+
+        assertThat(first).isNotEqualTo(second);
+    }
+
+    @Test
+    void rejectsNodeIdOutOfRange() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(1024)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
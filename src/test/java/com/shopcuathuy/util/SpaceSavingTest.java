@@ -0,0 +1,115 @@
+package com.shopcuathuy.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SpaceSavingTest {
+
+    @Test
+    void ranksExactlyWhileEveryKeyFits() {
+        SpaceSaving summary = new SpaceSaving(10);
+        summary.add("a", 5);
+        summary.add("b", 20);
+        summary.add("c", 1);
+        summary.add("a", 30);
+
+        assertThat(summary.top(2)).containsExactly("a", "b");
+        assertThat(summary.top(10)).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void keepsEveryKeyAboveTheBoundInASkewedStream() {
+        int capacity = 50;
+        SpaceSaving summary = new SpaceSaving(capacity);
+        Map<String, Double> totals = new HashMap<>();
+        Random random = new Random(42);
+        double total = 0;
+        for (int i = 0; i < 200_000; i++) {
+            // A few sellers take most of the revenue, thousands share the rest
+            String key = random.nextInt(10) < 6 ? "big-" + random.nextInt(5) : "small-" + random.nextInt(5_000);
+            double weight = 1 + random.nextInt(100);
+            summary.add(key, weight);
+            totals.merge(key, weight, Double::sum);
+            total += weight;
+        }
+
+        double bound = total / capacity;
+        List<String> held = summary.top(capacity);
+        totals.forEach((key, sum) -> {
+            if (sum > bound) {
+                assertThat(held).contains(key);
+            }
+        });
+        assertThat(summary.top(5)).containsExactlyInAnyOrder("big-0", "big-1", "big-2", "big-3", "big-4");
+    }
+
+    @Test
+    void aNewKeyTakesOverTheSmallestCounter() {
+        SpaceSaving summary = new SpaceSaving(2);
+        summary.add("a", 10);
+        summary.add("b", 3);
+        // Evicts b and starts from its 3, so c counts 3 + 8 = 11 and overtakes a
+        summary.add("c", 8);
+
+        assertThat(summary.top(2)).containsExactly("c", "a");
+    }
+
+    @Test
+    void negativeWeightsComeOffHeldKeysOnly() {
+        SpaceSaving summary = new SpaceSaving(3);
+        summary.add("a", 10);
+        summary.add("b", 8);
+        summary.add("a", -5);
+        assertThat(summary.top(2)).containsExactly("b", "a");
+
+        // Never below zero, and a key not held is not added by a cancellation
+        summary.add("b", -20);
+        summary.add("z", -1);
+        assertThat(summary.top(3)).containsExactly("a", "b");
+    }
+
+    @Test
+    void mergeAddsUpTheCountsOfEachKey() {
+        SpaceSaving monday = new SpaceSaving(10);
+        monday.add("a", 10);
+        monday.add("b", 7);
+        SpaceSaving tuesday = new SpaceSaving(10);
+        tuesday.add("b", 7);
+        tuesday.add("c", 12);
+
+        SpaceSaving week = SpaceSaving.merge(List.of(monday, tuesday), 10);
+
+        assertThat(week.top(3)).containsExactly("b", "c", "a");
+    }
+
+    @Test
+    void mergeKeepsTheLargestSumsUpToCapacity() {
+        SpaceSaving first = new SpaceSaving(4);
+        SpaceSaving second = new SpaceSaving(4);
+        for (int i = 0; i < 4; i++) {
+            first.add("k" + i, i + 1);
+            second.add("k" + (i + 2), 3 * (i + 1));
+        }
+
+        // Sums: k0 1, k1 2, k2 3 + 3, k3 4 + 6, k4 9, k5 12
+        SpaceSaving merged = SpaceSaving.merge(List.of(first, second), 3);
+
+        assertThat(merged.top(10)).containsExactly("k5", "k3", "k4");
+    }
+
+    @Test
+    void mergeOfNothingIsEmpty() {
+        assertThat(SpaceSaving.merge(List.of(), 5).top(5)).isEmpty();
+    }
+
+    @Test
+    void capacityMustBePositive() {
+        assertThatThrownBy(() -> new SpaceSaving(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,64 @@
+package com.shopcuathuy.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class VariantOptionParserTest {
+
+    @Test
+    void readsSizeAndColorFromAttributes() {
+        String[] options = VariantOptionParser.parse("{\"size\": \"M\", \"color\": \"Đỏ\"}", "ignored - L");
+
+        assertThat(options).containsExactly("M", "Đỏ");
+    }
+
+    @Test
+    void treatsMissingOrNullAttributeValuesAsAbsent() {
+        assertThat(VariantOptionParser.parse("{\"size\": null, \"color\": \"\"}", "Red - M")).containsExactly(null, null);
+        assertThat(VariantOptionParser.parse("{\"color\": \"Blue\"}", null)).containsExactly(null, "Blue");
+    }
+
+    @Test
+    void fallsBackToTheNameOnMalformedAttributes() {
+        assertThat(VariantOptionParser.parse("{not json", "Red - M")).containsExactly("M", "Red");
+        assertThat(VariantOptionParser.parse("[\"M\"]", "Red - M")).containsExactly("M", "Red");
+    }
+
+    @Test
+    void splitsNameIntoSizeAndColorParts() {
+        assertThat(VariantOptionParser.parse(null, "Red - M")).containsExactly("M", "Red");
+        assertThat(VariantOptionParser.parse("", "m")).containsExactly("m", null);
+        assertThat(VariantOptionParser.parse(null, "Xanh navy")).containsExactly(null, "Xanh navy");
+        assertThat(VariantOptionParser.parse(null, null)).containsExactly(null, null);
+    }
+
+    @Test
+    void keepsEverySizeLikePartAsASize() {
+        String[] options = VariantOptionParser.parse(null, "32 - M");
+
+        assertThat(options[1]).isNull();
+        assertThat(VariantOptionParser.values(options[0])).containsExactly("32", "M");
+    }
+
+    @Test
+    void keepsEveryOtherPartAsAColor() {
+        String[] options = VariantOptionParser.parse(null, "Red - Blue - XL");
+
+        assertThat(options[0]).isEqualTo("XL");
+        assertThat(VariantOptionParser.values(options[1])).containsExactly("Red", "Blue");
+    }
+
+    @Test
+    void skipsEmptyNameParts() {
+        assertThat(VariantOptionParser.parse(null, " - Red -  - M - ")).containsExactly("M", "Red");
+    }
+
+    @Test
+    void readsBackStoredValues() {
+        assertThat(VariantOptionParser.values(null)).isEmpty();
+        assertThat(VariantOptionParser.values("")).isEmpty();
+        assertThat(VariantOptionParser.values("Đỏ")).containsExactly("Đỏ");
+        assertThat(VariantOptionParser.values("S|M||L")).containsExactly("S", "M", "L");
+    }
+}